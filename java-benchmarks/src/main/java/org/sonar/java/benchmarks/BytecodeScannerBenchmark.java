@@ -0,0 +1,83 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.JavaSquid;
+import org.sonar.java.bytecode.BytecodeScanner;
+import org.sonar.java.bytecode.visitor.DependenciesVisitor;
+import org.sonar.squidbridge.api.SourceCode;
+import org.sonar.squidbridge.api.SourceCodeEdge;
+import org.sonar.squidbridge.indexer.SquidIndex;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan of class files of corpus with construction of dependency graph, classes being indexed once from sources of corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BytecodeScannerBenchmark {
+
+  @Param("1")
+  public int threads;
+
+  private SquidIndex index;
+  private Collection<File> binaryDirs;
+
+  @Setup
+  public void setup() {
+    Corpus corpus = Corpus.get();
+    JavaSquid squid = new JavaSquid(new JavaConfiguration(Charsets.UTF_8));
+    squid.scanDirectories(Collections.singleton(corpus.sourceDir()), Collections.<File>emptyList());
+    index = squid.getIndex();
+    binaryDirs = Collections.singleton(corpus.binaryDir());
+  }
+
+  @Benchmark
+  public DirectedGraph<SourceCode, SourceCodeEdge> scan() {
+    DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+    BytecodeScanner bytecodeScanner = new BytecodeScanner(index, threads);
+    bytecodeScanner.accept(new DependenciesVisitor(graph));
+    bytecodeScanner.scan(binaryDirs);
+    return graph;
+  }
+
+}
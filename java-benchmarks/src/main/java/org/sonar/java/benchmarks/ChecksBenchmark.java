@@ -0,0 +1,87 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.JavaSquid;
+import org.sonar.java.checks.CheckList;
+import org.sonar.squidbridge.api.CodeVisitor;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis of sources of corpus with all checks, that is parsing and visit of each file by {@link org.sonar.java.model.VisitorsBridge}.
+ * Cost of parsing alone is measured by {@link ParserBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChecksBenchmark {
+
+  @Param("1")
+  public int threads;
+
+  private File sourceDir;
+
+  @Setup
+  public void setup() {
+    sourceDir = Corpus.get().sourceDir();
+  }
+
+  @Benchmark
+  public JavaSquid scanWithAllChecks() throws Exception {
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setAnalysisThreads(threads);
+    JavaSquid squid = new JavaSquid(conf, null, null, createChecks());
+    squid.scanDirectories(Collections.singleton(sourceDir), Collections.<File>emptyList());
+    return squid;
+  }
+
+  /**
+   * Checks have state, so that they are created for each analysis.
+   */
+  private static CodeVisitor[] createChecks() throws Exception {
+    List<Class> checkClasses = CheckList.getChecks();
+    CodeVisitor[] checks = new CodeVisitor[checkClasses.size()];
+    for (int i = 0; i < checks.length; i++) {
+      checks[i] = (CodeVisitor) checkClasses.get(i).newInstance();
+    }
+    return checks;
+  }
+
+}
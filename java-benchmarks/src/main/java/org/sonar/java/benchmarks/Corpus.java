@@ -0,0 +1,91 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Project analyzed by benchmarks, unpacked by the build into target/corpus.
+ * Another project can be used with system property {@value #CORPUS_PROPERTY}, pointing to a directory with "src" and "bin" subdirectories.
+ */
+final class Corpus {
+
+  static final String CORPUS_PROPERTY = "sonar.java.benchmarks.corpus";
+
+  private final File baseDir;
+
+  private Corpus(File baseDir) {
+    this.baseDir = baseDir;
+  }
+
+  static Corpus get() {
+    File baseDir = new File(System.getProperty(CORPUS_PROPERTY, "target/corpus/struts-core-1.3.9"));
+    if (!baseDir.isDirectory()) {
+      throw new IllegalStateException("Corpus not found: " + baseDir.getAbsolutePath());
+    }
+    return new Corpus(baseDir);
+  }
+
+  File sourceDir() {
+    return new File(baseDir, "src");
+  }
+
+  File binaryDir() {
+    return new File(baseDir, "bin");
+  }
+
+  Collection<File> sourceFiles() {
+    return FileUtils.listFiles(sourceDir(), new String[] {"java"}, true);
+  }
+
+  Collection<File> classFiles() {
+    return FileUtils.listFiles(binaryDir(), new String[] {"class"}, true);
+  }
+
+  /**
+   * Contents are read once, so that benchmarks do not measure I/O.
+   */
+  List<SourceFileContent> readSourceFiles() throws IOException {
+    List<SourceFileContent> result = new ArrayList<SourceFileContent>();
+    for (File file : sourceFiles()) {
+      result.add(new SourceFileContent(file, Files.toString(file, Charsets.UTF_8).toCharArray()));
+    }
+    return result;
+  }
+
+  static class SourceFileContent {
+    final File file;
+    final char[] content;
+
+    SourceFileContent(File file, char[] content) {
+      this.file = file;
+      this.content = content;
+    }
+  }
+
+}
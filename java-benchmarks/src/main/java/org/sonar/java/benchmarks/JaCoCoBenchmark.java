@@ -0,0 +1,186 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.plugins.jacoco.JaCoCoClassFiles;
+import org.sonar.plugins.jacoco.JaCoCoSensor;
+import org.sonar.plugins.jacoco.JacocoConfiguration;
+import org.sonar.plugins.java.api.JavaResourceLocator;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reading of JaCoCo execution data by {@link org.sonar.plugins.jacoco.ExecutionDataAnalyzer#readExecutionData(File, SensorContext)},
+ * with class files of corpus and execution data generated for them: each test session executes half of probes of some classes.
+ * SonarQube components are stubbed, so that all classes of corpus are considered as sources of project.
+ * Parameter {@link #threads} is the amount of threads used to compute coverage per test, which should be compared to the amount of available processors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JaCoCoBenchmark {
+
+  @Param("100")
+  public int tests;
+
+  @Param("20")
+  public int classesPerTest;
+
+  @Param({"1", "2", "4"})
+  public int threads;
+
+  private File executionData;
+  private JacocoConfiguration configuration;
+  private ModuleFileSystem fileSystem;
+  private PathResolver pathResolver;
+  private JavaResourceLocator javaResourceLocator;
+  private ResourcePerspectives perspectives;
+  private Project project;
+  private SensorContext context;
+
+  @Setup
+  public void setup() throws IOException {
+    Corpus corpus = Corpus.get();
+    executionData = File.createTempFile("jacoco", ".exec");
+    writeExecutionData(corpus, executionData);
+
+    configuration = mock(JacocoConfiguration.class);
+    when(configuration.getCoveragePerTestThreads()).thenReturn(threads);
+    fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(corpus.binaryDir()));
+    pathResolver = mock(PathResolver.class);
+    when(pathResolver.relativeFile(any(File.class), anyString())).thenReturn(executionData);
+    javaResourceLocator = mock(JavaResourceLocator.class);
+    perspectives = mock(ResourcePerspectives.class);
+    JavaFile resource = new JavaFile("org.sonar.Resource");
+    when(javaResourceLocator.findResourceByClassName(anyString())).thenReturn(resource);
+    project = mock(Project.class);
+    context = mock(SensorContext.class);
+    when(context.getResource(any(Resource.class))).thenReturn(resource);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executionData.delete();
+  }
+
+  /**
+   * Class files are shared by sensors of a module, so that a new instance is created for each analysis.
+   */
+  @Benchmark
+  public void analyse() {
+    JaCoCoClassFiles classFiles = new JaCoCoClassFiles(fileSystem);
+    new JaCoCoSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, classFiles).analyse(project, context);
+  }
+
+  private void writeExecutionData(Corpus corpus, File file) throws IOException {
+    List<ExecutionData> classes = new ArrayList<ExecutionData>();
+    for (File classFile : corpus.classFiles()) {
+      byte[] bytes = Files.toByteArray(classFile);
+      String name = new ClassReader(bytes).getClassName();
+      classes.add(new ExecutionData(CRC64.checksum(bytes), name, probeCount(bytes)));
+    }
+    Random random = new Random(0);
+    OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+    try {
+      ExecutionDataWriter writer = new ExecutionDataWriter(output);
+      for (int test = 0; test < tests; test++) {
+        writer.visitSessionInfo(new SessionInfo("org.sonar.BenchmarkTest test" + test, 0, 0));
+        for (int i = 0; i < classesPerTest; i++) {
+          ExecutionData data = classes.get(random.nextInt(classes.size()));
+          boolean[] probes = new boolean[data.getProbes().length];
+          for (int probe = 0; probe < probes.length; probe += 2) {
+            probes[probe] = true;
+          }
+          writer.visitClassExecution(new ExecutionData(data.getId(), data.getName(), probes));
+        }
+      }
+    } finally {
+      Closeables.closeQuietly(output);
+    }
+  }
+
+  private static int probeCount(byte[] classFile) {
+    ProbeCounter counter = new ProbeCounter();
+    new ClassReader(classFile).accept(new ClassProbesAdapter(counter, false), 0);
+    return counter.count;
+  }
+
+  private static class ProbeCounter extends ClassProbesVisitor {
+    private int count;
+
+    @Override
+    public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      return null;
+    }
+
+    @Override
+    public void visitTotalProbeCount(int count) {
+      this.count = count;
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.ast.parser.ActionParser;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.benchmarks.Corpus.SourceFileContent;
+import org.sonar.java.model.JavaTreeMaker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of parser, parsing of corpus and creation of trees from parsed corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParserBenchmark {
+
+  private List<SourceFileContent> files;
+  private ActionParser parser;
+  private List<AstNode> astNodes;
+
+  @Setup
+  public void setup() throws IOException {
+    files = Corpus.get().readSourceFiles();
+    parser = JavaParser.createParser(Charsets.UTF_8, false);
+    astNodes = new ArrayList<AstNode>();
+    for (SourceFileContent file : files) {
+      astNodes.add(parser.parse(file.file, file.content));
+    }
+  }
+
+  @Benchmark
+  public ActionParser createParser() {
+    return JavaParser.createParser(Charsets.UTF_8, false);
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (SourceFileContent file : files) {
+      blackhole.consume(parser.parse(file.file, file.content));
+    }
+  }
+
+  @Benchmark
+  public void compilationUnit(Blackhole blackhole) {
+    JavaTreeMaker treeMaker = new JavaTreeMaker();
+    for (AstNode astNode : astNodes) {
+      blackhole.consume(treeMaker.compilationUnit(astNode));
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.ast.parser.ActionParser;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.benchmarks.Corpus.SourceFileContent;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaTreeMaker;
+import org.sonar.java.resolve.BytecodeCompleter;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of semantic model of each file of corpus, with completer of JDK symbols shared between files as during analysis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SemanticModelBenchmark {
+
+  private List<SourceFileContent> files;
+  private SquidClassLoader projectClassLoader;
+  private ActionParser parser;
+  private BytecodeCompleter librariesCompleter;
+  private List<CompilationUnitTree> trees;
+
+  @Setup
+  public void setup() throws IOException {
+    Corpus corpus = Corpus.get();
+    files = corpus.readSourceFiles();
+    projectClassLoader = ClassLoaderBuilder.create(ImmutableList.of(corpus.binaryDir()));
+    parser = JavaParser.createParser(Charsets.UTF_8, false);
+    librariesCompleter = SemanticModel.createLibrariesCompleter(ImmutableList.<File>of());
+  }
+
+  /**
+   * Semantic model sets symbols on trees, so that each invocation starts from fresh trees.
+   */
+  @Setup(Level.Invocation)
+  public void createTrees() {
+    JavaTreeMaker treeMaker = new JavaTreeMaker();
+    trees = new ArrayList<CompilationUnitTree>();
+    for (SourceFileContent file : files) {
+      trees.add(treeMaker.compilationUnit(parser.parse(file.file, file.content)));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    projectClassLoader.close();
+    librariesCompleter.done();
+  }
+
+  @Benchmark
+  public void createFor(Blackhole blackhole) {
+    for (CompilationUnitTree tree : trees) {
+      blackhole.consume(SemanticModel.createFor(tree, librariesCompleter, projectClassLoader));
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.ast.parser.ActionParser;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.benchmarks.Corpus.SourceFileContent;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaTreeMaker;
+import org.sonar.java.resolve.BytecodeCompleter;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.resolve.Symbol;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of symbols and usages of every identifier of corpus, as done by checks and by symbol table of SonarQube.
+ * Run with {@code -prof gc} to see allocations of lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SemanticModelLookupBenchmark {
+
+  private final List<SemanticModel> semanticModels = new ArrayList<SemanticModel>();
+  private final List<List<IdentifierTree>> identifiers = new ArrayList<List<IdentifierTree>>();
+
+  @Setup
+  public void setup() throws IOException {
+    Corpus corpus = Corpus.get();
+    SquidClassLoader projectClassLoader = ClassLoaderBuilder.create(ImmutableList.of(corpus.binaryDir()));
+    ActionParser parser = JavaParser.createParser(Charsets.UTF_8, false);
+    JavaTreeMaker treeMaker = new JavaTreeMaker();
+    BytecodeCompleter librariesCompleter = SemanticModel.createLibrariesCompleter(ImmutableList.<File>of());
+    try {
+      for (SourceFileContent file : corpus.readSourceFiles()) {
+        CompilationUnitTree tree = treeMaker.compilationUnit(parser.parse(file.file, file.content));
+        semanticModels.add(SemanticModel.createFor(tree, librariesCompleter, projectClassLoader));
+        final List<IdentifierTree> fileIdentifiers = new ArrayList<IdentifierTree>();
+        tree.accept(new BaseTreeVisitor() {
+          @Override
+          public void visitIdentifier(IdentifierTree tree) {
+            fileIdentifiers.add(tree);
+          }
+        });
+        identifiers.add(fileIdentifiers);
+      }
+    } finally {
+      projectClassLoader.close();
+      librariesCompleter.done();
+    }
+  }
+
+  @Benchmark
+  public void getSymbolAndUsages(Blackhole blackhole) {
+    for (int i = 0; i < semanticModels.size(); i++) {
+      SemanticModel semanticModel = semanticModels.get(i);
+      for (IdentifierTree identifier : identifiers.get(i)) {
+        Symbol symbol = semanticModel.getSymbol(identifier);
+        blackhole.consume(symbol);
+        blackhole.consume(semanticModel.getUsages(symbol));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.SourceAwareScannerContext;
+import org.sonar.java.ast.SourceBuffer;
+import org.sonar.java.ast.parser.ActionParser;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.ast.visitors.ComplexityVisitor;
+import org.sonar.java.ast.visitors.SubscriptionMultiplexer;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.checks.CheckList;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaTreeMaker;
+import org.sonar.java.resolve.BytecodeCompleter;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Visit of each file of corpus by checks which can be multiplexed by {@link SubscriptionMultiplexer}, either with a single walk
+ * of the tree for all of them or with a walk per check. Trees and semantic models are created beforehand, so that only visit is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SubscriptionVisitorsBenchmark {
+
+  @Param({"true", "false"})
+  public boolean multiplexed;
+
+  private final List<SourceBuffer> sourceBuffers = new ArrayList<SourceBuffer>();
+  private final List<CompilationUnitTree> trees = new ArrayList<CompilationUnitTree>();
+  private final List<SemanticModel> semanticModels = new ArrayList<SemanticModel>();
+  private BytecodeCompleter librariesCompleter;
+  private SquidClassLoader projectClassLoader;
+  private List<JavaFileScannerContext> contexts;
+  private List<JavaFileScanner> scanners;
+
+  @Setup
+  public void setup() throws Exception {
+    Corpus corpus = Corpus.get();
+    projectClassLoader = ClassLoaderBuilder.create(ImmutableList.of(corpus.binaryDir()));
+    ActionParser parser = JavaParser.createParser(Charsets.UTF_8, false);
+    JavaTreeMaker treeMaker = new JavaTreeMaker();
+    librariesCompleter = SemanticModel.createLibrariesCompleter(ImmutableList.<File>of());
+    for (File file : corpus.sourceFiles()) {
+      SourceBuffer sourceBuffer = SourceBuffer.read(file, Charsets.UTF_8);
+      CompilationUnitTree tree = treeMaker.compilationUnit(parser.parse(file, sourceBuffer.getContent()));
+      sourceBuffers.add(sourceBuffer);
+      trees.add(tree);
+      semanticModels.add(SemanticModel.createFor(tree, librariesCompleter, projectClassLoader));
+    }
+  }
+
+  /**
+   * Checks have state and issues are logged on source files, so that both are created for each invocation.
+   */
+  @Setup(Level.Invocation)
+  public void createChecksAndContexts() throws Exception {
+    List<SubscriptionVisitor> checks = new ArrayList<SubscriptionVisitor>();
+    for (Class checkClass : CheckList.getChecks()) {
+      Object check = checkClass.newInstance();
+      if (SubscriptionMultiplexer.canBeMultiplexed(check)) {
+        checks.add((SubscriptionVisitor) check);
+      }
+    }
+    scanners = multiplexed ? ImmutableList.<JavaFileScanner>of(new SubscriptionMultiplexer(checks)) : ImmutableList.<JavaFileScanner>copyOf(checks);
+    contexts = new ArrayList<JavaFileScannerContext>();
+    for (int i = 0; i < trees.size(); i++) {
+      SourceBuffer sourceBuffer = sourceBuffers.get(i);
+      SourceFile sourceFile = new SourceFile(sourceBuffer.getFile().getPath());
+      contexts.add(new BenchmarkContext(trees.get(i), sourceFile, sourceBuffer, semanticModels.get(i)));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    projectClassLoader.close();
+    librariesCompleter.done();
+  }
+
+  @Benchmark
+  public List<JavaFileScannerContext> visit() {
+    for (JavaFileScannerContext context : contexts) {
+      for (JavaFileScanner scanner : scanners) {
+        scanner.scanFile(context);
+      }
+    }
+    return contexts;
+  }
+
+  /**
+   * Same context as the one given to checks during analysis, which logs issues on the source file.
+   */
+  private static class BenchmarkContext implements SourceAwareScannerContext {
+    private final CompilationUnitTree tree;
+    private final SourceFile sourceFile;
+    private final SourceBuffer sourceBuffer;
+    private final SemanticModel semanticModel;
+    private final ComplexityVisitor complexityVisitor = new ComplexityVisitor(false);
+
+    BenchmarkContext(CompilationUnitTree tree, SourceFile sourceFile, SourceBuffer sourceBuffer, SemanticModel semanticModel) {
+      this.tree = tree;
+      this.sourceFile = sourceFile;
+      this.sourceBuffer = sourceBuffer;
+      this.semanticModel = semanticModel;
+    }
+
+    @Override
+    public CompilationUnitTree getTree() {
+      return tree;
+    }
+
+    @Override
+    public void addIssue(Tree tree, RuleKey ruleKey, String message) {
+      addIssue(((JavaTree) tree).getLine(), ruleKey, message);
+    }
+
+    @Override
+    public void addIssueOnFile(RuleKey ruleKey, String message) {
+      addIssue(-1, ruleKey, message);
+    }
+
+    @Override
+    public void addIssue(int line, RuleKey ruleKey, String message) {
+      CheckMessage checkMessage = new CheckMessage(ruleKey, message);
+      if (line > 0) {
+        checkMessage.setLine(line);
+      }
+      sourceFile.log(checkMessage);
+    }
+
+    @Override
+    public Object getSemanticModel() {
+      return semanticModel;
+    }
+
+    @Override
+    public String getFileName() {
+      return sourceFile.getName();
+    }
+
+    @Override
+    public File getFile() {
+      return sourceBuffer.getFile();
+    }
+
+    @Override
+    public SourceBuffer getSourceBuffer() {
+      return sourceBuffer;
+    }
+
+    @Override
+    public int getComplexity(Tree tree) {
+      return complexityVisitor.scan(tree);
+    }
+
+    @Override
+    public int getMethodComplexity(ClassTree enclosingClass, MethodTree methodTree) {
+      return complexityVisitor.scan(enclosingClass, methodTree);
+    }
+
+  }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+/**
+ * JMH benchmarks of analysis over a corpus of sources and class files, see {@link org.sonar.java.benchmarks.Corpus}.
+ * Benchmarks report throughput and sampled latency, allocation rate is reported by GC profiler:
+ * <pre>
+ * mvn install -Pbenchmarks -DskipTests
+ * cd java-benchmarks
+ * java -jar target/benchmarks.jar -prof gc
+ * </pre>
+ */
+@javax.annotation.ParametersAreNonnullByDefault
+package org.sonar.java.benchmarks;
@@ -19,18 +19,13 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.io.Files;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.java.SourceAwareScannerContext;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -39,7 +34,7 @@ import java.util.List;
   key = "S1451",
   priority = Priority.BLOCKER,
   tags={"convention"})
-public class FileHeaderCheck extends SubscriptionBaseVisitor implements CharsetAwareVisitor {
+public class FileHeaderCheck extends SubscriptionBaseVisitor {
 
   private static final String DEFAULT_HEADER_FORMAT = "";
 
@@ -49,14 +44,8 @@ public class FileHeaderCheck extends SubscriptionBaseVisitor implements CharsetA
     defaultValue = DEFAULT_HEADER_FORMAT)
   public String headerFormat = DEFAULT_HEADER_FORMAT;
 
-  private Charset charset;
   private String[] expectedLines;
 
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
-
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Collections.emptyList();
@@ -66,18 +55,7 @@ public class FileHeaderCheck extends SubscriptionBaseVisitor implements CharsetA
   public void scanFile(JavaFileScannerContext context) {
     super.context = context;
     expectedLines = headerFormat.split("(?:\r)?\n|\r");
-    visitFile(context.getFile());
-  }
-
-  public void visitFile(File file) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(file, charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
-
-    if (!matches(expectedLines, lines)) {
+    if (!matches(expectedLines, ((SourceAwareScannerContext) context).getSourceBuffer().getLines())) {
       addIssueOnFile("Add or update the header of this file.");
     }
   }
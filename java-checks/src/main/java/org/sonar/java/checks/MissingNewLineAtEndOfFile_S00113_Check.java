@@ -19,23 +19,18 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.io.Closeables;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.java.SourceAwareScannerContext;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.Collections;
 import java.util.List;
 
 @Rule(key = "S00113", priority = Priority.MINOR, tags = {"convention"})
 public class MissingNewLineAtEndOfFile_S00113_Check extends SubscriptionBaseVisitor {
 
-
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Collections.emptyList();
@@ -44,34 +39,8 @@ public class MissingNewLineAtEndOfFile_S00113_Check extends SubscriptionBaseVisi
   @Override
   public void scanFile(JavaFileScannerContext context) {
     super.context = context;
-    visitFile(context.getFile());
-  }
-
-  public void visitFile(File file) {
-    RandomAccessFile randomAccessFile = null;
-    try {
-      randomAccessFile = new RandomAccessFile(file, "r");
-      if (!endsWithNewline(randomAccessFile)) {
-
-        addIssueOnFile("Add a new line at the end of this file.");
-      }
-    } catch (IOException e) {
-      throw new SonarException(e);
-    } finally {
-      Closeables.closeQuietly(randomAccessFile);
-    }
-  }
-
-  private boolean endsWithNewline(RandomAccessFile randomAccessFile) throws IOException {
-    if (randomAccessFile.length() < 1) {
-      return false;
-    }
-    randomAccessFile.seek(randomAccessFile.length() - 1);
-    byte[] chars = new byte[1];
-    if (randomAccessFile.read(chars) < 1) {
-      return false;
+    if (!((SourceAwareScannerContext) context).getSourceBuffer().endsWithNewLine()) {
+      addIssueOnFile("Add a new line at the end of this file.");
     }
-    String ch = new String(chars);
-    return "\n".equals(ch) || "\r".equals(ch);
   }
 }
@@ -19,18 +19,13 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.io.Files;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.java.SourceAwareScannerContext;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.List;
 
@@ -39,14 +34,7 @@ import java.util.List;
   priority = Priority.MINOR,
   tags={"convention"})
 @BelongsToProfile(title = "Sonar way", priority = Priority.MINOR)
-public class TabCharacter_S00105_Check extends SubscriptionBaseVisitor implements CharsetAwareVisitor {
-
-  private Charset charset;
-
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
+public class TabCharacter_S00105_Check extends SubscriptionBaseVisitor {
 
   @Override
   public List<Tree.Kind> nodesToVisit() {
@@ -56,17 +44,7 @@ public class TabCharacter_S00105_Check extends SubscriptionBaseVisitor implement
   @Override
   public void scanFile(JavaFileScannerContext context) {
     super.context = context;
-    visitFile(context.getFile());
-  }
-
-  public void visitFile(File file) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(file, charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
-    for (String line : lines) {
+    for (String line : ((SourceAwareScannerContext) context).getSourceBuffer().getLines()) {
       if (line.contains("\t")) {
         addIssueOnFile("Replace all tab characters in this file by sequences of white-spaces.");
         break;
@@ -19,18 +19,13 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.io.Files;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.java.SourceAwareScannerContext;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
@@ -39,7 +34,7 @@ import java.util.List;
   key = "S00103",
   priority = Priority.MINOR,
   tags={"convention"})
-public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor implements CharsetAwareVisitor {
+public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor {
 
   private static final int DEFAULT_MAXIMUM_LINE_LENHGTH = 80;
 
@@ -48,31 +43,15 @@ public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor implements
     defaultValue = "" + DEFAULT_MAXIMUM_LINE_LENHGTH)
   public int maximumLineLength = DEFAULT_MAXIMUM_LINE_LENHGTH;
 
-  private Charset charset;
-
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Collections.emptyList();
   }
 
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
-
   @Override
   public void scanFile(JavaFileScannerContext context) {
     super.context = context;
-    visitFile(context.getFile());
-  }
-
-  public void visitFile(File file) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(file, charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
+    List<String> lines = ((SourceAwareScannerContext) context).getSourceBuffer().getLines();
     for (int i = 0; i < lines.size(); i++) {
       String line = lines.get(i);
       if (line.length() > maximumLineLength) {
@@ -0,0 +1,455 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.IFrame;
+import org.jacoco.core.internal.flow.LabelInfo;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Control flow of a class file reduced to what is needed to compute its coverage from its probes:
+ * line, branches and predecessor of each instruction, and instruction which precedes each probe.
+ * It is computed once from the class file, so that coverage of the class for any execution data, whether of a single test or of a whole report,
+ * is obtained without analyzing the class file again.
+ * <p/>
+ * Control flow is built and coverage is computed exactly as JaCoCo {@code MethodAnalyzer} does: an instruction is covered when a probe is executed
+ * after it in the chain of its predecessors, and a line is covered when one of its instructions is covered.
+ */
+class ClassProbesLines {
+
+  private static final int NONE = -1;
+
+  private final long classId;
+  private final String packageName;
+  private final String sourceFileName;
+  private final int[] lines;
+  private final int[] branches;
+  private final int[] predecessors;
+  private final int[] instructionsByProbe;
+  private final int[][] linesByProbe;
+
+  private ClassProbesLines(long classId, String packageName, String sourceFileName, List<Instruction> instructions, int[] instructionsByProbe) {
+    this.classId = classId;
+    this.packageName = packageName;
+    this.sourceFileName = sourceFileName;
+    int count = instructions.size();
+    this.lines = new int[count];
+    this.branches = new int[count];
+    this.predecessors = new int[count];
+    for (int i = 0; i < count; i++) {
+      Instruction instruction = instructions.get(i);
+      lines[i] = instruction.line;
+      branches[i] = instruction.branches;
+      predecessors[i] = instruction.predecessor == null ? NONE : instruction.predecessor.index;
+    }
+    this.instructionsByProbe = instructionsByProbe;
+    this.linesByProbe = new int[instructionsByProbe.length][];
+    int[] seenByProbe = new int[count];
+    for (int probeId = 0; probeId < instructionsByProbe.length; probeId++) {
+      linesByProbe[probeId] = linesOfPredecessors(instructionsByProbe[probeId], seenByProbe, probeId + 1);
+    }
+  }
+
+  /**
+   * Lines covered when a probe following given instruction is executed.
+   * Loops bring back to an instruction already seen, which stops propagation as in JaCoCo.
+   */
+  private int[] linesOfPredecessors(int instruction, int[] seenByProbe, int probe) {
+    BitSet result = new BitSet();
+    int i = instruction;
+    while (i != NONE && seenByProbe[i] != probe) {
+      seenByProbe[i] = probe;
+      if (lines[i] >= 0) {
+        result.set(lines[i]);
+      }
+      i = predecessors[i];
+    }
+    int[] resultLines = new int[result.cardinality()];
+    int index = 0;
+    for (int line = result.nextSetBit(0); line >= 0; line = result.nextSetBit(line + 1)) {
+      resultLines[index] = line;
+      index++;
+    }
+    return resultLines;
+  }
+
+  /**
+   * Returns null when the class file has no information about its source file, because its coverage can not be attached to any resource.
+   *
+   * @throws IllegalStateException if the class file was instrumented by JaCoCo, as JaCoCo {@code Analyzer} does
+   */
+  @CheckForNull
+  static ClassProbesLines analyze(byte[] classFile) {
+    ClassLinesVisitor visitor = new ClassLinesVisitor();
+    new ClassReader(classFile).accept(new ClassProbesAdapter(visitor, false), 0);
+    if (visitor.sourceFileName == null) {
+      return null;
+    }
+    return new ClassProbesLines(CRC64.checksum(classFile), visitor.packageName, visitor.sourceFileName, visitor.instructions, visitor.instructionsByProbe);
+  }
+
+  long getClassId() {
+    return classId;
+  }
+
+  String getPackageName() {
+    return packageName;
+  }
+
+  String getSourceFileName() {
+    return sourceFileName;
+  }
+
+  /**
+   * JaCoCo ignores classes without instructions, such as interfaces without initializer.
+   */
+  boolean hasInstructions() {
+    return lines.length > 0;
+  }
+
+  /**
+   * Adds to given set lines covered by executed probes of given execution data, if this data belongs to this class.
+   */
+  void addCoveredLines(ExecutionData data, BitSet coveredLines) {
+    if (data.getId() != classId) {
+      return;
+    }
+    boolean[] probes = data.getProbes();
+    for (int probeId = 0; probeId < probes.length && probeId < linesByProbe.length; probeId++) {
+      if (probes[probeId]) {
+        for (int line : linesByProbe[probeId]) {
+          coveredLines.set(line);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds coverage of instructions and branches of this class to given lines, as JaCoCo {@code MethodAnalyzer} computes it for given probes.
+   *
+   * @param probes executed probes, or null when the class was not executed
+   */
+  void addCoverage(@Nullable BitSet probes, LinesCoverage coverage) {
+    int[] coveredBranches = new int[lines.length];
+    if (probes != null) {
+      for (int probeId = probes.nextSetBit(0); probeId >= 0 && probeId < instructionsByProbe.length; probeId = probes.nextSetBit(probeId + 1)) {
+        setCovered(instructionsByProbe[probeId], coveredBranches);
+      }
+    }
+    for (int i = 0; i < lines.length; i++) {
+      if (lines[i] >= 0) {
+        boolean hasBranches = branches[i] > 1;
+        coverage.increment(lines[i], coveredBranches[i] > 0, hasBranches ? branches[i] : 0, hasBranches ? coveredBranches[i] : 0);
+      }
+    }
+  }
+
+  /**
+   * Same as {@code Instruction#setCovered()} of JaCoCo: propagation stops at first instruction already covered.
+   */
+  private void setCovered(int instruction, int[] coveredBranches) {
+    int i = instruction;
+    while (i != NONE) {
+      coveredBranches[i]++;
+      if (coveredBranches[i] > 1) {
+        return;
+      }
+      i = predecessors[i];
+    }
+  }
+
+  private static class ClassLinesVisitor extends ClassProbesVisitor {
+
+    private String className;
+    private String packageName;
+    private String sourceFileName;
+    private final List<Instruction> instructions = Lists.newArrayList();
+    private final Map<Integer, Instruction> probes = Maps.newHashMap();
+    private int[] instructionsByProbe = new int[0];
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+      className = name;
+      int lastSlash = name.lastIndexOf('/');
+      packageName = lastSlash < 0 ? "" : name.substring(0, lastSlash);
+    }
+
+    @Override
+    public void visitSource(String source, String debug) {
+      sourceFileName = source;
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      InstrSupport.assertNotInstrumented(name, className);
+      return super.visitField(access, name, desc, signature, value);
+    }
+
+    @Override
+    public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      InstrSupport.assertNotInstrumented(name, className);
+      if ((access & Opcodes.ACC_SYNTHETIC) != 0) {
+        // Ignored by JaCoCo
+        return null;
+      }
+      return new MethodLinesVisitor(instructions, probes);
+    }
+
+    @Override
+    public void visitTotalProbeCount(int count) {
+      instructionsByProbe = new int[count];
+      for (int probeId = 0; probeId < count; probeId++) {
+        Instruction instruction = probes.get(probeId);
+        instructionsByProbe[probeId] = instruction == null ? NONE : instruction.index;
+      }
+    }
+
+  }
+
+  private static class MethodLinesVisitor extends MethodProbesVisitor {
+
+    private final List<Instruction> instructions;
+    private final Map<Integer, Instruction> probes;
+    private final List<Label> currentLabels = Lists.newArrayList();
+    private final Map<Label, Instruction> instructionsByLabel = Maps.newHashMap();
+    private final List<Instruction> jumpSources = Lists.newArrayList();
+    private final List<Label> jumpTargets = Lists.newArrayList();
+    private int currentLine = -1;
+    private Instruction lastInstruction;
+
+    MethodLinesVisitor(List<Instruction> instructions, Map<Integer, Instruction> probes) {
+      this.instructions = instructions;
+      this.probes = probes;
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+      currentLabels.add(label);
+      if (!LabelInfo.isSuccessor(label)) {
+        lastInstruction = null;
+      }
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+      currentLine = line;
+    }
+
+    private void visitInstruction() {
+      Instruction instruction = new Instruction(instructions.size(), currentLine);
+      instructions.add(instruction);
+      if (lastInstruction != null) {
+        instruction.setPredecessor(lastInstruction);
+      }
+      for (Label label : currentLabels) {
+        instructionsByLabel.put(label, instruction);
+      }
+      currentLabels.clear();
+      lastInstruction = instruction;
+    }
+
+    private void addJump(Label target) {
+      jumpSources.add(lastInstruction);
+      jumpTargets.add(target);
+    }
+
+    private void addProbe(int probeId) {
+      if (lastInstruction != null) {
+        lastInstruction.branches++;
+      }
+      probes.put(probeId, lastInstruction);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+      visitInstruction();
+      addJump(label);
+    }
+
+    @Override
+    public void visitLdcInsn(Object cst) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitIincInsn(int var, int increment) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+      visitSwitchInsn(dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+      visitSwitchInsn(dflt, labels);
+    }
+
+    private void visitSwitchInsn(Label dflt, Label[] labels) {
+      visitInstruction();
+      LabelInfo.resetDone(labels);
+      addJump(dflt);
+      LabelInfo.setDone(dflt);
+      for (Label label : labels) {
+        if (!LabelInfo.isDone(label)) {
+          addJump(label);
+          LabelInfo.setDone(label);
+        }
+      }
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String desc, int dims) {
+      visitInstruction();
+    }
+
+    @Override
+    public void visitProbe(int probeId) {
+      addProbe(probeId);
+      lastInstruction = null;
+    }
+
+    @Override
+    public void visitJumpInsnWithProbe(int opcode, Label label, int probeId, IFrame frame) {
+      visitInstruction();
+      addProbe(probeId);
+    }
+
+    @Override
+    public void visitInsnWithProbe(int opcode, int probeId) {
+      visitInstruction();
+      addProbe(probeId);
+    }
+
+    @Override
+    public void visitTableSwitchInsnWithProbes(int min, int max, Label dflt, Label[] labels, IFrame frame) {
+      visitSwitchInsnWithProbes(dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsnWithProbes(Label dflt, int[] keys, Label[] labels, IFrame frame) {
+      visitSwitchInsnWithProbes(dflt, labels);
+    }
+
+    private void visitSwitchInsnWithProbes(Label dflt, Label[] labels) {
+      visitInstruction();
+      LabelInfo.resetDone(dflt);
+      LabelInfo.resetDone(labels);
+      visitSwitchTarget(dflt);
+      for (Label label : labels) {
+        visitSwitchTarget(label);
+      }
+    }
+
+    private void visitSwitchTarget(Label label) {
+      int probeId = LabelInfo.getProbeId(label);
+      if (!LabelInfo.isDone(label)) {
+        if (probeId == LabelInfo.NO_PROBE) {
+          addJump(label);
+        } else {
+          addProbe(probeId);
+        }
+        LabelInfo.setDone(label);
+      }
+    }
+
+    @Override
+    public void visitEnd() {
+      for (int i = 0; i < jumpSources.size(); i++) {
+        instructionsByLabel.get(jumpTargets.get(i)).setPredecessor(jumpSources.get(i));
+      }
+    }
+
+  }
+
+  private static class Instruction {
+
+    private final int index;
+    private final int line;
+    private int branches;
+    private Instruction predecessor;
+
+    Instruction(int index, int line) {
+      this.index = index;
+      this.line = line;
+    }
+
+    void setPredecessor(Instruction predecessor) {
+      this.predecessor = predecessor;
+      predecessor.branches++;
+    }
+
+  }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import org.apache.commons.lang.StringUtils;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.ResourceUtils;
+import org.sonar.api.test.MutableTestCase;
+import org.sonar.api.test.MutableTestPlan;
+import org.sonar.api.test.MutableTestable;
+import org.sonar.api.test.Testable;
+import org.sonar.plugins.java.api.JavaResourceLocator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Saves measures of coverage computed from JaCoCo execution data, either read from a file or already merged from several reports.
+ */
+public abstract class ExecutionDataAnalyzer {
+
+  private final ResourcePerspectives perspectives;
+  private final JavaResourceLocator javaResourceLocator;
+  private final JaCoCoClassFiles classFiles;
+  private int coveragePerTestThreads = 1;
+
+  public ExecutionDataAnalyzer(ResourcePerspectives perspectives, JavaResourceLocator javaResourceLocator, JaCoCoClassFiles classFiles) {
+    this.perspectives = perspectives;
+    this.javaResourceLocator = javaResourceLocator;
+    this.classFiles = classFiles;
+  }
+
+  /**
+   * Amount of threads used to compute coverage per test, see {@link JacocoConfiguration#COVERAGE_PER_TEST_THREADS_PROPERTY}.
+   */
+  public final void setCoveragePerTestThreads(int coveragePerTestThreads) {
+    this.coveragePerTestThreads = coveragePerTestThreads;
+  }
+
+  static String fullyQualifiedClassName(String packageName, String simpleClassName) {
+    return ("".equals(packageName) ? "" : packageName + "/") + StringUtils.substringBeforeLast(simpleClassName, ".");
+  }
+
+  private Resource getResource(String className, SensorContext context) {
+    Resource resourceInContext = context.getResource(javaResourceLocator.findResourceByClassName(className));
+    if (resourceInContext == null) {
+      // Do not save measures on resource which doesn't exist in the context
+      return null;
+    }
+    if (ResourceUtils.isUnitTestClass(resourceInContext)) {
+      // Ignore unit tests
+      return null;
+    }
+
+    return resourceInContext;
+  }
+
+  /**
+   * Coverage can not be analyzed without class files.
+   */
+  final boolean hasClassFiles() {
+    if (classFiles.isEmpty()) {
+      JaCoCoExtensions.LOG.info("No JaCoCo analysis of project coverage can be done since there is no class files.");
+      return false;
+    }
+    return true;
+  }
+
+  public final void readExecutionData(File jacocoExecutionData, final SensorContext context) throws IOException {
+    final Map<String, Resource> testResources = Maps.newHashMap();
+    final LinesCoveredByTests linesCoveredByTests = new LinesCoveredByTests(classFiles, coveragePerTestThreads);
+    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor() {
+      @Override
+      protected void visitSession(String sessionId, ExecutionDataStore executionDataStore) {
+        collectLinesCoveredByTest(sessionId, executionDataStore, testResources, linesCoveredByTests, context);
+      }
+    };
+
+    Map<String, Map<String, BitSet>> linesBySession;
+    try {
+      if (jacocoExecutionData == null || !jacocoExecutionData.isFile()) {
+        JaCoCoExtensions.LOG.info("Project coverage is set to 0% as no JaCoCo execution data has been dumped: {}", jacocoExecutionData);
+        jacocoExecutionData = null;
+      } else {
+        JaCoCoExtensions.LOG.info("Analysing {}", jacocoExecutionData);
+
+        InputStream inputStream = null;
+        try {
+          inputStream = new BufferedInputStream(new FileInputStream(jacocoExecutionData));
+          ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+          reader.setSessionInfoVisitor(executionDataVisitor);
+          reader.setExecutionDataVisitor(executionDataVisitor);
+          reader.read();
+          executionDataVisitor.visitEnd();
+        } finally {
+          Closeables.closeQuietly(inputStream);
+        }
+      }
+      linesBySession = linesCoveredByTests.getResult();
+    } finally {
+      linesCoveredByTests.stop();
+    }
+
+    boolean collectedCoveragePerTest = false;
+    for (Map.Entry<String, Map<String, BitSet>> entry : linesBySession.entrySet()) {
+      if (saveLinesCoveredByTest(entry.getKey(), testResources.get(entry.getKey()), entry.getValue(), context)) {
+        collectedCoveragePerTest = true;
+      }
+    }
+
+    int analyzedResources = saveCoverage(executionDataVisitor.getMerged(), context);
+    if (analyzedResources == 0) {
+      logNoCoverage();
+    } else if (collectedCoveragePerTest) {
+      JaCoCoExtensions.LOG.info("Information about coverage per test has been collected.");
+    } else if (jacocoExecutionData != null) {
+      JaCoCoExtensions.LOG.info("No information about coverage per test.");
+    }
+  }
+
+  /**
+   * Saves coverage of execution data which was already read by caller, such as merge of several reports.
+   * Coverage per test is not collected, because sessions of tests are not part of merged execution data.
+   */
+  public final void analyse(ExecutionDataStore executionDataStore, SensorContext context) {
+    if (hasClassFiles() && saveCoverage(probesByClassId(executionDataStore), context) == 0) {
+      logNoCoverage();
+    }
+  }
+
+  private static Map<Long, BitSet> probesByClassId(ExecutionDataStore executionDataStore) {
+    Map<Long, BitSet> result = Maps.newHashMap();
+    for (ExecutionData data : executionDataStore.getContents()) {
+      boolean[] probes = data.getProbes();
+      BitSet executedProbes = new BitSet(probes.length);
+      for (int probeId = 0; probeId < probes.length; probeId++) {
+        if (probes[probeId]) {
+          executedProbes.set(probeId);
+        }
+      }
+      result.put(data.getId(), executedProbes);
+    }
+    return result;
+  }
+
+  private static void logNoCoverage() {
+    JaCoCoExtensions.LOG.warn("Coverage information was not collected. Perhaps you forget to include debug information into compiled classes?");
+  }
+
+  private int saveCoverage(Map<Long, BitSet> probesByClassId, SensorContext context) {
+    int analyzedResources = 0;
+    for (Map.Entry<String, LinesCoverage> entry : analyze(probesByClassId).entrySet()) {
+      Resource resource = getResource(entry.getKey(), context);
+      if (resource != null) {
+        saveMeasures(context, resource, entry.getValue().createMeasuresBuilder().createMeasures());
+        analyzedResources++;
+      }
+    }
+    return analyzedResources;
+  }
+
+  /**
+   * Resolves test of a session as soon as the session has been read, and submits computation of lines it covers,
+   * so that its execution data can be released.
+   * Test is resolved by the thread which reads the report, because {@link SensorContext} is not thread-safe.
+   */
+  private void collectLinesCoveredByTest(String sessionId, ExecutionDataStore executionDataStore, Map<String, Resource> testResources,
+                                         LinesCoveredByTests linesCoveredByTests, SensorContext context) {
+    if (!testResources.containsKey(sessionId)) {
+      int i = sessionId.indexOf(' ');
+      if (i < 0) {
+        return;
+      }
+      String testClassName = sessionId.substring(0, i);
+      Resource testResource = context.getResource(javaResourceLocator.findResourceByClassName(testClassName));
+      if (testResource == null) {
+        // No such test class
+        return;
+      }
+      testResources.put(sessionId, testResource);
+    }
+    linesCoveredByTests.add(sessionId, executionDataStore.getContents());
+  }
+
+  private boolean saveLinesCoveredByTest(String sessionId, Resource testResource, Map<String, BitSet> coveredLinesByClassName, SensorContext context) {
+    String testName = sessionId.substring(sessionId.indexOf(' ') + 1);
+    boolean result = false;
+    for (Map.Entry<String, BitSet> entry : coveredLinesByClassName.entrySet()) {
+      Resource resource = getResource(entry.getKey(), context);
+      if (resource != null) {
+        List<Integer> coveredLines = getCoveredLines(entry.getValue());
+        if (!coveredLines.isEmpty() && addCoverage(resource, testResource, testName, coveredLines)) {
+          result = true;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<Integer> getCoveredLines(BitSet lines) {
+    List<Integer> linesCover = newArrayList();
+    for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+      linesCover.add(line);
+    }
+    return linesCover;
+  }
+
+  private boolean addCoverage(Resource resource, Resource testFile, String testName, List<Integer> coveredLines) {
+    boolean result = false;
+    Testable testAbleFile = perspectives.as(MutableTestable.class, resource);
+    if (testAbleFile != null) {
+      MutableTestPlan testPlan = perspectives.as(MutableTestPlan.class, testFile);
+      if (testPlan != null) {
+        for (MutableTestCase testCase : testPlan.testCasesByName(testName)) {
+          testCase.setCoverageBlock(testAbleFile, coveredLines);
+          result = true;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Coverage of lines by source file, computed from class files analyzed once for all reports.
+   */
+  private Map<String, LinesCoverage> analyze(Map<Long, BitSet> probesByClassId) {
+    Map<String, LinesCoverage> coverageBySourceFile = Maps.newHashMap();
+    for (ClassProbesLines classProbesLines : classFiles.getAll(probesByClassId.keySet())) {
+      if (classProbesLines.hasInstructions()) {
+        String className = fullyQualifiedClassName(classProbesLines.getPackageName(), classProbesLines.getSourceFileName());
+        LinesCoverage coverage = coverageBySourceFile.get(className);
+        if (coverage == null) {
+          coverage = new LinesCoverage();
+          coverageBySourceFile.put(className, coverage);
+        }
+        classProbesLines.addCoverage(probesByClassId.get(classProbesLines.getClassId()), coverage);
+      }
+    }
+    return coverageBySourceFile;
+  }
+
+  protected abstract void saveMeasures(SensorContext context, Resource resource, Collection<Measure> measures);
+
+}
@@ -26,42 +26,72 @@ import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.jacoco.core.data.SessionInfo;
 
+import java.util.BitSet;
 import java.util.Map;
 
+/**
+ * Visits sessions as they are read: execution data of a session is given to {@link #visitSession(String, ExecutionDataStore)} at its end and then released,
+ * so that memory does not depend on amount of sessions, which is one per test when coverage per test is recorded.
+ * Only the merge of all sessions is kept, as executed probes packed in bit sets by class id.
+ */
 public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionDataVisitor {
 
-  private final Map<String, ExecutionDataStore> sessions = Maps.newHashMap();
+  private final Map<Long, BitSet> merged = Maps.newHashMap();
 
+  private String sessionId;
   private ExecutionDataStore executionDataStore;
-  private ExecutionDataStore merged = new ExecutionDataStore();
 
   public void visitSessionInfo(SessionInfo info) {
-    String sessionId = info.getId();
-    executionDataStore = sessions.get(sessionId);
-    if (executionDataStore == null) {
-      executionDataStore = new ExecutionDataStore();
-      sessions.put(sessionId, executionDataStore);
-    }
+    endSession();
+    sessionId = info.getId();
+    executionDataStore = new ExecutionDataStore();
   }
 
   public void visitClassExecution(ExecutionData data) {
-    executionDataStore.put(data);
-    merged.put(defensiveCopy(data));
+    if (executionDataStore != null) {
+      executionDataStore.put(data);
+    }
+    BitSet probes = merged.get(data.getId());
+    if (probes == null) {
+      probes = new BitSet();
+      merged.put(data.getId(), probes);
+    }
+    boolean[] dataProbes = data.getProbes();
+    for (int probeId = 0; probeId < dataProbes.length; probeId++) {
+      if (dataProbes[probeId]) {
+        probes.set(probeId);
+      }
+    }
   }
 
-  public Map<String, ExecutionDataStore> getSessions() {
-    return sessions;
+  /**
+   * Must be called once all execution data has been read, to end the last session.
+   */
+  public void visitEnd() {
+    endSession();
   }
 
-  public ExecutionDataStore getMerged() {
-    return merged;
+  private void endSession() {
+    if (sessionId != null) {
+      visitSession(sessionId, executionDataStore);
+      sessionId = null;
+      executionDataStore = null;
+    }
   }
 
-  private static ExecutionData defensiveCopy(ExecutionData data) {
-    boolean[] src = data.getProbes();
-    boolean[] dest = new boolean[src.length];
-    System.arraycopy(src, 0, dest, 0, src.length);
-    return new ExecutionData(data.getId(), data.getName(), dest);
+  /**
+   * Called at the end of each session with its execution data. Same session identifier can be visited several times,
+   * for example when the same tests are executed several times with the same JaCoCo report.
+   * Does nothing by default.
+   */
+  protected void visitSession(String sessionId, ExecutionDataStore executionDataStore) {
+  }
+
+  /**
+   * Executed probes of all sessions by class id.
+   */
+  public Map<Long, BitSet> getMerged() {
+    return merged;
   }
 
 }
@@ -0,0 +1,189 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.api.utils.SonarException;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Class files of the module, shared by {@link JaCoCoSensor}, {@link JaCoCoItSensor} and {@link JaCoCoOverallSensor},
+ * so that binary directories are listed once and each class file is analyzed at most once, whatever the amount of reports and tests.
+ * Thread-safe, so that class files can be analyzed while computing coverage per test on several threads.
+ */
+public class JaCoCoClassFiles implements BatchExtension {
+
+  private final ModuleFileSystem fileSystem;
+
+  private ListMultimap<String, File> classFiles;
+  private final ConcurrentMap<File, FutureTask<ClassProbesLines>> analyzedClassFiles = new ConcurrentHashMap<File, FutureTask<ClassProbesLines>>();
+
+  public JaCoCoClassFiles(ModuleFileSystem fileSystem) {
+    this.fileSystem = fileSystem;
+  }
+
+  /**
+   * Class files by VM class name. Same class can be found in several binary directories, in which case its class files are kept in order of directories.
+   */
+  private synchronized ListMultimap<String, File> classFiles() {
+    if (classFiles == null) {
+      classFiles = ArrayListMultimap.create();
+      for (File classesDir : fileSystem.binaryDirs()) {
+        populateClassFiles(classesDir, "");
+      }
+    }
+    return classFiles;
+  }
+
+  private void populateClassFiles(File dir, String path) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        populateClassFiles(file, path + file.getName() + "/");
+      } else if (file.getName().endsWith(".class")) {
+        String className = path + StringUtils.removeEnd(file.getName(), ".class");
+        if (classFiles.containsKey(className)) {
+          JaCoCoExtensions.LOG.debug("Class " + className + " found in several binary directories, the one matching execution data is used: " + file.getAbsolutePath());
+        }
+        classFiles.put(className, file);
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return classFiles().isEmpty();
+  }
+
+  /**
+   * Returns class file with given name, which matches given class id of execution data when several class files have this name.
+   * Returns null when there is no such class file, or when it has no information about its source file.
+   */
+  @CheckForNull
+  ClassProbesLines get(String vmClassName, long classId) {
+    List<File> candidates = classFiles().get(vmClassName);
+    if (candidates.size() == 1) {
+      return get(vmClassName, candidates.get(0));
+    }
+    for (File classFile : candidates) {
+      ClassProbesLines classProbesLines = get(vmClassName, classFile);
+      if (classProbesLines != null && classProbesLines.getClassId() == classId) {
+        return classProbesLines;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Class file is analyzed by the first thread which needs it, while other threads needing it at the same time wait for its result.
+   */
+  @CheckForNull
+  private ClassProbesLines get(final String vmClassName, final File classFile) {
+    FutureTask<ClassProbesLines> result = analyzedClassFiles.get(classFile);
+    if (result == null) {
+      FutureTask<ClassProbesLines> task = new FutureTask<ClassProbesLines>(new Callable<ClassProbesLines>() {
+        @Override
+        public ClassProbesLines call() {
+          return analyze(vmClassName, classFile);
+        }
+      });
+      result = analyzedClassFiles.putIfAbsent(classFile, task);
+      if (result == null) {
+        result = task;
+        task.run();
+      }
+    }
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while analyzing class " + vmClassName, e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * One class file per class of the module, among those which have information about their source file.
+   * When several class files have the same name, the one which was executed is chosen, or otherwise the one of the first binary directory.
+   *
+   * @param executedClassIds class ids of execution data
+   */
+  List<ClassProbesLines> getAll(Set<Long> executedClassIds) {
+    List<ClassProbesLines> result = Lists.newArrayList();
+    for (Map.Entry<String, Collection<File>> entry : classFiles().asMap().entrySet()) {
+      ClassProbesLines chosen = null;
+      for (File classFile : entry.getValue()) {
+        ClassProbesLines classProbesLines = get(entry.getKey(), classFile);
+        if (classProbesLines != null && executedClassIds.contains(classProbesLines.getClassId())) {
+          chosen = classProbesLines;
+          break;
+        } else if (chosen == null) {
+          chosen = classProbesLines;
+        }
+      }
+      if (chosen != null) {
+        result.add(chosen);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Class files which can not be analyzed, for example because they were instrumented offline or are corrupted, are skipped as JaCoCo does.
+   */
+  @CheckForNull
+  private static ClassProbesLines analyze(String vmClassName, File classFile) {
+    try {
+      return ClassProbesLines.analyze(Files.toByteArray(classFile));
+    } catch (IOException e) {
+      logAnalysisFailure(vmClassName, classFile, e);
+    } catch (RuntimeException e) {
+      logAnalysisFailure(vmClassName, classFile, e);
+    }
+    return null;
+  }
+
+  private static void logAnalysisFailure(String vmClassName, File classFile, Exception e) {
+    JaCoCoExtensions.LOG.warn("Exception during analysis of class " + vmClassName + " in file " + classFile.getAbsolutePath(), e);
+  }
+
+}
@@ -39,14 +39,16 @@ public class JaCoCoItSensor implements Sensor {
   private final ModuleFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final JavaResourceLocator javaResourceLocator;
+  private final JaCoCoClassFiles classFiles;
 
   public JaCoCoItSensor(JacocoConfiguration configuration, ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
-                        JavaResourceLocator javaResourceLocator) {
+                        JavaResourceLocator javaResourceLocator, JaCoCoClassFiles classFiles) {
     this.configuration = configuration;
     this.perspectives = perspectives;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.javaResourceLocator = javaResourceLocator;
+    this.classFiles = classFiles;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -60,12 +62,14 @@ public class JaCoCoItSensor implements Sensor {
   }
 
   public void analyse(Project project, SensorContext context) {
-    new ITAnalyzer(perspectives).analyse(project, context);
+    ITAnalyzer analyzer = new ITAnalyzer(perspectives);
+    analyzer.setCoveragePerTestThreads(configuration.getCoveragePerTestThreads());
+    analyzer.analyse(project, context);
   }
 
   class ITAnalyzer extends AbstractAnalyzer {
     public ITAnalyzer(ResourcePerspectives perspectives) {
-      super(perspectives, fileSystem, pathResolver, javaResourceLocator);
+      super(perspectives, fileSystem, pathResolver, javaResourceLocator, classFiles);
     }
 
     @Override
@@ -19,10 +19,14 @@
  */
 package org.sonar.plugins.jacoco;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.data.SessionInfoStore;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
@@ -37,16 +41,24 @@ import org.sonar.api.utils.SonarException;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class JaCoCoOverallSensor implements Sensor {
 
+  /**
+   * @deprecated since plugin 2.5, reports are merged in memory and this file is no longer written
+   */
+  @Deprecated
   public static final String JACOCO_OVERALL = "jacoco-overall.exec";
 
   private final JacocoConfiguration configuration;
@@ -54,14 +66,16 @@ public class JaCoCoOverallSensor implements Sensor {
   private final ModuleFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final JavaResourceLocator javaResourceLocator;
+  private final JaCoCoClassFiles classFiles;
 
   public JaCoCoOverallSensor(JacocoConfiguration configuration, ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
-                             JavaResourceLocator javaResourceLocator) {
+                             JavaResourceLocator javaResourceLocator, JaCoCoClassFiles classFiles) {
     this.configuration = configuration;
     this.perspectives = perspectives;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.javaResourceLocator = javaResourceLocator;
+    this.classFiles = classFiles;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -82,62 +96,68 @@ public class JaCoCoOverallSensor implements Sensor {
       return;
     }
 
-    File reportOverall = new File(fileSystem.workingDir(), JACOCO_OVERALL);
-    reportOverall.getParentFile().mkdirs();
-
-    mergeReports(reportOverall, reportUTs, reportITs);
-
-    new OverallAnalyzer(reportOverall, perspectives).analyse(project, context);
+    new OverallAnalyzer(perspectives).analyse(mergeReports(reportUTs, reportITs), context);
   }
 
-  private void mergeReports(File reportOverall, File... reports) {
-    SessionInfoStore infoStore = new SessionInfoStore();
-    ExecutionDataStore dataStore = new ExecutionDataStore();
-
-    loadSourceFiles(infoStore, dataStore, reports);
-
-    BufferedOutputStream outputStream = null;
+  /**
+   * Merges execution data of given reports in memory: probes of a class are OR-ed in place into the ones read first.
+   * Reports are read in parallel, because each of them can be big, for example when tests are split in several shards.
+   */
+  static ExecutionDataStore mergeReports(File... reports) {
+    JaCoCoExtensions.LOG.info("Analysing {}", Joiner.on(", ").join(reports));
+    if (reports.length == 1) {
+      return readReport(reports[0]);
+    }
+    int threads = Math.min(reports.length, Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("jacoco-reader-%d").setDaemon(true).build());
     try {
-      outputStream = new BufferedOutputStream(new FileOutputStream(reportOverall));
-      ExecutionDataWriter dataWriter = new ExecutionDataWriter(outputStream);
-
-      infoStore.accept(dataWriter);
-      dataStore.accept(dataWriter);
-    } catch (IOException e) {
-      throw new SonarException(String.format("Unable to write overall coverage report %s", reportOverall.getAbsolutePath()), e);
+      List<Future<ExecutionDataStore>> stores = Lists.newArrayList();
+      for (final File report : reports) {
+        stores.add(executor.submit(new Callable<ExecutionDataStore>() {
+          @Override
+          public ExecutionDataStore call() {
+            return readReport(report);
+          }
+        }));
+      }
+      ExecutionDataStore merged = stores.get(0).get();
+      for (int i = 1; i < stores.size(); i++) {
+        for (ExecutionData data : stores.get(i).get().getContents()) {
+          merged.put(data);
+        }
+      }
+      return merged;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while reading JaCoCo reports", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     } finally {
-      Closeables.closeQuietly(outputStream);
+      executor.shutdownNow();
     }
   }
 
-  private void loadSourceFiles(SessionInfoStore infoStore, ExecutionDataStore dataStore, File... reports) {
-    for (File report : reports) {
-      InputStream resourceStream = null;
-      try {
-        resourceStream = new BufferedInputStream(new FileInputStream(report));
-        ExecutionDataReader reader = new ExecutionDataReader(resourceStream);
-        reader.setSessionInfoVisitor(infoStore);
-        reader.setExecutionDataVisitor(dataStore);
-        reader.read();
-      } catch (IOException e) {
-        throw new SonarException(String.format("Unable to read %s", report.getAbsolutePath()), e);
-      } finally {
-        Closeables.closeQuietly(resourceStream);
-      }
+  private static ExecutionDataStore readReport(File report) {
+    ExecutionDataStore dataStore = new ExecutionDataStore();
+    InputStream resourceStream = null;
+    try {
+      resourceStream = new BufferedInputStream(new FileInputStream(report));
+      ExecutionDataReader reader = new ExecutionDataReader(resourceStream);
+      reader.setSessionInfoVisitor(new SessionInfoStore());
+      reader.setExecutionDataVisitor(dataStore);
+      reader.read();
+    } catch (IOException e) {
+      throw new SonarException(String.format("Unable to read %s", report.getAbsolutePath()), e);
+    } finally {
+      Closeables.closeQuietly(resourceStream);
     }
+    return dataStore;
   }
 
-  class OverallAnalyzer extends AbstractAnalyzer {
-    private final File report;
-
-    OverallAnalyzer(File report, ResourcePerspectives perspectives) {
-      super(perspectives, fileSystem, pathResolver, javaResourceLocator);
-      this.report = report;
-    }
+  class OverallAnalyzer extends ExecutionDataAnalyzer {
 
-    @Override
-    protected String getReportPath(Project project) {
-      return report.getAbsolutePath();
+    OverallAnalyzer(ResourcePerspectives perspectives) {
+      super(perspectives, javaResourceLocator, classFiles);
     }
 
     @Override
@@ -40,14 +40,16 @@ public class JaCoCoSensor implements Sensor {
   private final ModuleFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final JavaResourceLocator javaResourceLocator;
+  private final JaCoCoClassFiles classFiles;
 
   public JaCoCoSensor(JacocoConfiguration configuration, ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
-                      JavaResourceLocator javaResourceLocator) {
+                      JavaResourceLocator javaResourceLocator, JaCoCoClassFiles classFiles) {
     this.configuration = configuration;
     this.perspectives = perspectives;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.javaResourceLocator = javaResourceLocator;
+    this.classFiles = classFiles;
   }
 
   /**
@@ -59,7 +61,9 @@ public class JaCoCoSensor implements Sensor {
   }
 
   public void analyse(Project project, SensorContext context) {
-    new UnitTestsAnalyzer(perspectives).analyse(project, context);
+    UnitTestsAnalyzer analyzer = new UnitTestsAnalyzer(perspectives);
+    analyzer.setCoveragePerTestThreads(configuration.getCoveragePerTestThreads());
+    analyzer.analyse(project, context);
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -74,7 +78,7 @@ public class JaCoCoSensor implements Sensor {
 
   class UnitTestsAnalyzer extends AbstractAnalyzer {
     public UnitTestsAnalyzer(ResourcePerspectives perspectives) {
-      super(perspectives, fileSystem, pathResolver, javaResourceLocator);
+      super(perspectives, fileSystem, pathResolver, javaResourceLocator, classFiles);
     }
 
     @Override
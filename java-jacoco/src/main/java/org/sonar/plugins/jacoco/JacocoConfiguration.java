@@ -38,6 +38,8 @@ public class JacocoConfiguration implements BatchExtension {
   public static final String IT_REPORT_PATH_DEFAULT_VALUE = "target/jacoco-it.exec";
   public static final String REPORT_MISSING_FORCE_ZERO = "sonar.jacoco.reportMissing.force.zero";
   public static final boolean REPORT_MISSING_FORCE_ZERO_DEFAULT_VALUE = false;
+  public static final String COVERAGE_PER_TEST_THREADS_PROPERTY = "sonar.jacoco.coveragePerTest.threads";
+  public static final int COVERAGE_PER_TEST_THREADS_DEFAULT_VALUE = 1;
 
   private final Settings settings;
   private final FileSystem fileSystem;
@@ -63,6 +65,10 @@ public class JacocoConfiguration implements BatchExtension {
     return settings.getString(IT_REPORT_PATH_PROPERTY);
   }
 
+  public int getCoveragePerTestThreads() {
+    return Math.max(1, settings.getInt(COVERAGE_PER_TEST_THREADS_PROPERTY));
+  }
+
   private boolean isCoverageToZeroWhenNoReport() {
     return settings.getBoolean(REPORT_MISSING_FORCE_ZERO);
   }
@@ -94,6 +100,15 @@ public class JacocoConfiguration implements BatchExtension {
             .description("Force coverage to 0% if no JaCoCo reports are found during analysis.")
             .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
             .type(PropertyType.BOOLEAN)
+            .build(),
+        PropertyDefinition.builder(JacocoConfiguration.COVERAGE_PER_TEST_THREADS_PROPERTY)
+            .defaultValue(JacocoConfiguration.COVERAGE_PER_TEST_THREADS_DEFAULT_VALUE + "")
+            .name("Coverage per test threads")
+            .category(CoreProperties.CATEGORY_JAVA)
+            .subCategory(subCategory)
+            .description("Number of threads used to compute coverage per test from JaCoCo reports, including analysis of class files covered by tests.")
+            .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+            .type(PropertyType.INTEGER)
             .build()
     );
   }
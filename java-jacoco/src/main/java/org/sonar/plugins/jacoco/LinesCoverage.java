@@ -0,0 +1,72 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import org.sonar.api.measures.CoverageMeasuresBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Coverage of lines of a source file, summed over its classes as JaCoCo does for {@code ISourceFileCoverage}.
+ */
+class LinesCoverage {
+
+  private int[] instructions = new int[0];
+  private int[] coveredInstructions = new int[0];
+  private int[] branches = new int[0];
+  private int[] coveredBranches = new int[0];
+
+  void increment(int line, boolean covered, int branchesOfInstruction, int coveredBranchesOfInstruction) {
+    ensureCapacity(line);
+    instructions[line]++;
+    if (covered) {
+      coveredInstructions[line]++;
+    }
+    branches[line] += branchesOfInstruction;
+    coveredBranches[line] += coveredBranchesOfInstruction;
+  }
+
+  private void ensureCapacity(int line) {
+    if (line >= instructions.length) {
+      int length = Math.max(line + 1, 2 * instructions.length);
+      instructions = Arrays.copyOf(instructions, length);
+      coveredInstructions = Arrays.copyOf(coveredInstructions, length);
+      branches = Arrays.copyOf(branches, length);
+      coveredBranches = Arrays.copyOf(coveredBranches, length);
+    }
+  }
+
+  /**
+   * Line is hit when at least one of its instructions is covered, and lines without instructions are ignored.
+   */
+  CoverageMeasuresBuilder createMeasuresBuilder() {
+    CoverageMeasuresBuilder builder = CoverageMeasuresBuilder.create();
+    for (int line = 0; line < instructions.length; line++) {
+      if (instructions[line] > 0) {
+        builder.setHits(line, coveredInstructions[line] > 0 ? 1 : 0);
+        if (branches[line] > 0) {
+          builder.setConditions(line, branches[line], coveredBranches[line]);
+        }
+      }
+    }
+    return builder;
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jacoco.core.data.ExecutionData;
+import org.sonar.api.utils.SonarException;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lines covered by each test, computed from execution data of its sessions on a pool of threads: analysis of class files of a session
+ * and computation of the lines it covers are done by the same task.
+ * Sessions are submitted by the thread which reads the report, and their results are merged by this same thread in order of submission,
+ * so that threads of the pool share only {@link JaCoCoClassFiles}, which is thread-safe, and coverage per test can then be saved from a single thread.
+ * Amount of sessions waiting for computation is bounded, so that memory does not depend on amount of tests.
+ */
+class LinesCoveredByTests {
+
+  private final JaCoCoClassFiles classFiles;
+  private final int threads;
+  private final int maxPending;
+  private final Deque<PendingSession> pending = new ArrayDeque<PendingSession>();
+  private final Map<String, Map<String, BitSet>> linesBySession = Maps.newLinkedHashMap();
+  private ExecutorService executor;
+
+  LinesCoveredByTests(JaCoCoClassFiles classFiles, int threads) {
+    this.classFiles = classFiles;
+    this.threads = threads;
+    this.maxPending = 2 * threads;
+  }
+
+  void add(String sessionId, final Collection<ExecutionData> executions) {
+    if (threads <= 1) {
+      merge(sessionId, linesCoveredBySession(classFiles, executions));
+      return;
+    }
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("jacoco-tests-%d").setDaemon(true).build());
+    }
+    while (pending.size() >= maxPending) {
+      mergeNextPending();
+    }
+    pending.add(new PendingSession(sessionId, executor.submit(new Callable<Map<String, BitSet>>() {
+      @Override
+      public Map<String, BitSet> call() {
+        return linesCoveredBySession(classFiles, executions);
+      }
+    })));
+  }
+
+  /**
+   * Waits for computation of all sessions and returns covered lines by class name for each session identifier.
+   */
+  Map<String, Map<String, BitSet>> getResult() {
+    while (!pending.isEmpty()) {
+      mergeNextPending();
+    }
+    return linesBySession;
+  }
+
+  void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void mergeNextPending() {
+    PendingSession session = pending.remove();
+    try {
+      merge(session.sessionId, session.lines.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while computing coverage per test", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Same test can be executed in several sessions, in which case it covers lines of all of them.
+   */
+  private void merge(String sessionId, Map<String, BitSet> lines) {
+    Map<String, BitSet> result = linesBySession.get(sessionId);
+    if (result == null) {
+      linesBySession.put(sessionId, lines);
+      return;
+    }
+    for (Map.Entry<String, BitSet> entry : lines.entrySet()) {
+      BitSet coveredLines = result.get(entry.getKey());
+      if (coveredLines == null) {
+        result.put(entry.getKey(), entry.getValue());
+      } else {
+        coveredLines.or(entry.getValue());
+      }
+    }
+  }
+
+  private static Map<String, BitSet> linesCoveredBySession(JaCoCoClassFiles classFiles, Collection<ExecutionData> executions) {
+    Map<String, BitSet> coveredLinesByClassName = Maps.newHashMap();
+    for (ExecutionData data : executions) {
+      ClassProbesLines classProbesLines = classFiles.get(data.getName(), data.getId());
+      if (classProbesLines != null) {
+        String className = ExecutionDataAnalyzer.fullyQualifiedClassName(classProbesLines.getPackageName(), classProbesLines.getSourceFileName());
+        BitSet coveredLines = coveredLinesByClassName.get(className);
+        if (coveredLines == null) {
+          coveredLines = new BitSet();
+          coveredLinesByClassName.put(className, coveredLines);
+        }
+        classProbesLines.addCoveredLines(data, coveredLines);
+      }
+    }
+    return coveredLinesByClassName;
+  }
+
+  private static class PendingSession {
+
+    private final String sessionId;
+    private final Future<Map<String, BitSet>> lines;
+
+    PendingSession(String sessionId, Future<Map<String, BitSet>> lines) {
+      this.sessionId = sessionId;
+      this.lines = lines;
+    }
+
+  }
+
+}
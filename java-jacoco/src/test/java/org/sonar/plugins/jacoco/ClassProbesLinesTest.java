@@ -0,0 +1,262 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.sonar.api.measures.CoverageMeasuresBuilder;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassProbesLinesTest {
+
+  private static final int MAX_PROBES = 256;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void should_cover_same_lines_as_jacoco_analyzer() throws Exception {
+    assertSameLinesAsAnalyzer(Sample.class);
+    assertSameLinesAsAnalyzer(ClassProbesLines.class);
+    assertSameLinesAsAnalyzer(ExecutionDataAnalyzer.class);
+  }
+
+  @Test
+  public void should_return_package_and_source_file() throws Exception {
+    ClassProbesLines classProbesLines = ClassProbesLines.analyze(classFile(Sample.class));
+    assertThat(classProbesLines.getPackageName()).isEqualTo("org/sonar/plugins/jacoco");
+    assertThat(classProbesLines.getSourceFileName()).isEqualTo("ClassProbesLinesTest.java");
+  }
+
+  @Test
+  public void should_ignore_execution_data_of_other_version_of_class() throws Exception {
+    byte[] classFile = classFile(Sample.class);
+    BitSet lines = new BitSet();
+    ClassProbesLines.analyze(classFile).addCoveredLines(new ExecutionData(CRC64.checksum(classFile) + 1, "", allProbes()), lines);
+    assertThat(lines.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void should_compute_same_coverage_as_jacoco_analyzer() throws Exception {
+    assertSameCoverageAsAnalyzer(Sample.class);
+    assertSameCoverageAsAnalyzer(ClassProbesLines.class);
+    assertSameCoverageAsAnalyzer(ExecutionDataAnalyzer.class);
+  }
+
+  @Test
+  public void should_fail_on_instrumented_class() throws Exception {
+    byte[] classFile = classFile(Sample.class);
+    ClassWriter writer = new ClassWriter(0);
+    new ClassReader(classFile).accept(writer, 0);
+    writer.visitField(Opcodes.ACC_STATIC, "$jacocoData", "[Z", null, null);
+    thrown.expect(IllegalStateException.class);
+    ClassProbesLines.analyze(writer.toByteArray());
+  }
+
+  private static void assertSameCoverageAsAnalyzer(Class<?> clazz) throws IOException {
+    byte[] classFile = classFile(clazz);
+    ClassProbesLines classProbesLines = ClassProbesLines.analyze(classFile);
+    assertThat(classProbesLines.hasInstructions()).isTrue();
+    assertSameCoverageAsAnalyzer(classFile, classProbesLines, null);
+    assertSameCoverageAsAnalyzer(classFile, classProbesLines, allProbes());
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      boolean[] probes = new boolean[MAX_PROBES];
+      for (int probeId = 0; probeId < MAX_PROBES; probeId++) {
+        probes[probeId] = random.nextInt(4) == 0;
+      }
+      assertSameCoverageAsAnalyzer(classFile, classProbesLines, probes);
+    }
+  }
+
+  private static void assertSameCoverageAsAnalyzer(byte[] classFile, ClassProbesLines classProbesLines, @Nullable boolean[] probes) throws IOException {
+    LinesCoverage linesCoverage = new LinesCoverage();
+    classProbesLines.addCoverage(probes == null ? null : bitSet(probes), linesCoverage);
+    CoverageMeasuresBuilder actual = linesCoverage.createMeasuresBuilder();
+
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    if (probes != null) {
+      executionDataStore.put(new ExecutionData(CRC64.checksum(classFile), "", probes));
+    }
+    CoverageBuilder coverageBuilder = new CoverageBuilder();
+    new Analyzer(executionDataStore, coverageBuilder).analyzeClass(classFile, "");
+    CoverageMeasuresBuilder expected = CoverageMeasuresBuilder.create();
+    for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
+      for (int line = coverage.getFirstLine(); line <= coverage.getLastLine(); line++) {
+        ILine lineCoverage = coverage.getLine(line);
+        int status = lineCoverage.getInstructionCounter().getStatus();
+        if (status != ICounter.EMPTY) {
+          expected.setHits(line, status == ICounter.NOT_COVERED ? 0 : 1);
+          if (lineCoverage.getBranchCounter().getTotalCount() > 0) {
+            expected.setConditions(line, lineCoverage.getBranchCounter().getTotalCount(), lineCoverage.getBranchCounter().getCoveredCount());
+          }
+        }
+      }
+    }
+
+    assertThat(actual.getHitsByLine()).isEqualTo(expected.getHitsByLine());
+    assertThat(actual.getConditionsByLine()).isEqualTo(expected.getConditionsByLine());
+    assertThat(actual.getCoveredConditionsByLine()).isEqualTo(expected.getCoveredConditionsByLine());
+  }
+
+  private static BitSet bitSet(boolean[] probes) {
+    BitSet result = new BitSet();
+    for (int probeId = 0; probeId < probes.length; probeId++) {
+      if (probes[probeId]) {
+        result.set(probeId);
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameLinesAsAnalyzer(Class<?> clazz) throws IOException {
+    byte[] classFile = classFile(clazz);
+    long classId = CRC64.checksum(classFile);
+    ClassProbesLines classProbesLines = ClassProbesLines.analyze(classFile);
+
+    BitSet allLines = new BitSet();
+    classProbesLines.addCoveredLines(new ExecutionData(classId, "", allProbes()), allLines);
+    assertThat(allLines.isEmpty()).isFalse();
+    assertThat(allLines).isEqualTo(linesCoveredByAnalyzer(classFile, allProbes()));
+
+    for (int probeId = 0; probeId < MAX_PROBES; probeId++) {
+      boolean[] probes = new boolean[MAX_PROBES];
+      probes[probeId] = true;
+      BitSet lines = new BitSet();
+      classProbesLines.addCoveredLines(new ExecutionData(classId, "", probes), lines);
+      assertThat(lines).as(clazz.getName() + " probe " + probeId).isEqualTo(linesCoveredByAnalyzer(classFile, probes));
+    }
+  }
+
+  private static BitSet linesCoveredByAnalyzer(byte[] classFile, boolean[] probes) throws IOException {
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    executionDataStore.put(new ExecutionData(CRC64.checksum(classFile), "", probes));
+    CoverageBuilder coverageBuilder = new CoverageBuilder();
+    new Analyzer(executionDataStore, coverageBuilder).analyzeClass(classFile, "");
+    BitSet lines = new BitSet();
+    for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
+      for (int line = coverage.getFirstLine(); line <= coverage.getLastLine(); line++) {
+        int status = coverage.getLine(line).getInstructionCounter().getStatus();
+        if (status == ICounter.FULLY_COVERED || status == ICounter.PARTLY_COVERED) {
+          lines.set(line);
+        }
+      }
+    }
+    return lines;
+  }
+
+  private static boolean[] allProbes() {
+    boolean[] probes = new boolean[MAX_PROBES];
+    for (int i = 0; i < probes.length; i++) {
+      probes[i] = true;
+    }
+    return probes;
+  }
+
+  static byte[] classFile(Class<?> clazz) throws IOException {
+    InputStream inputStream = clazz.getResourceAsStream("/" + clazz.getName().replace('.', '/') + ".class");
+    try {
+      return ByteStreams.toByteArray(inputStream);
+    } finally {
+      Closeables.closeQuietly(inputStream);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static class Sample {
+
+    int loop(int[] values) {
+      int sum = 0;
+      for (int value : values) {
+        if (value > 0) {
+          sum += value;
+        } else {
+          continue;
+        }
+      }
+      return sum;
+    }
+
+    String tableSwitch(int i) {
+      switch (i) {
+        case 0:
+          return "zero";
+        case 1:
+        case 2:
+          return "small";
+        default:
+          return i > 10 ? "big" : "medium";
+      }
+    }
+
+    int lookupSwitch(int i) {
+      int result = 0;
+      switch (i) {
+        case 10:
+          result = 1;
+          break;
+        case 1000:
+          result = 2;
+          break;
+        default:
+          result = 3;
+      }
+      return result;
+    }
+
+    int tryCatch(String s) {
+      try {
+        return Integer.parseInt(s);
+      } catch (NumberFormatException e) {
+        return -1;
+      } finally {
+        s = null;
+      }
+    }
+
+    boolean condition(boolean a, boolean b) {
+      return a && b || !a && !b;
+    }
+
+  }
+
+}
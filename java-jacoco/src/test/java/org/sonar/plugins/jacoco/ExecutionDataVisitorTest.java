@@ -19,33 +19,63 @@
  */
 package org.sonar.plugins.jacoco;
 
+import com.google.common.collect.Lists;
 import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.SessionInfo;
 import org.junit.Test;
 
+import java.util.BitSet;
+import java.util.List;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 public class ExecutionDataVisitorTest {
 
   @Test
   public void test() {
-    ExecutionDataVisitor visitor = new ExecutionDataVisitor();
+    final List<String> sessionIds = Lists.newArrayList();
+    final List<boolean[]> sessionProbes = Lists.newArrayList();
+    ExecutionDataVisitor visitor = new ExecutionDataVisitor() {
+      @Override
+      protected void visitSession(String sessionId, ExecutionDataStore executionDataStore) {
+        sessionIds.add(sessionId);
+        assertThat(executionDataStore.getContents()).hasSize(1);
+        sessionProbes.add(executionDataStore.get(1).getProbes());
+      }
+    };
 
     visitor.visitSessionInfo(new SessionInfo("foo", 1L, 1L));
     visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {true, false, false}));
 
     visitor.visitSessionInfo(new SessionInfo("bar", 2L, 2L));
     visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {false, true, false}));
+    assertThat(sessionIds).containsOnly("foo");
 
     visitor.visitSessionInfo(new SessionInfo("foo", 3L, 3L));
     visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {false, false, true}));
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {false, true, false}));
+    visitor.visitEnd();
+
+    assertThat(sessionIds).isEqualTo(Lists.newArrayList("foo", "bar", "foo"));
+    assertThat(sessionProbes.get(0)).isEqualTo(new boolean[] {true, false, false});
+    assertThat(sessionProbes.get(1)).isEqualTo(new boolean[] {false, true, false});
+    assertThat(sessionProbes.get(2)).isEqualTo(new boolean[] {false, true, true});
+
+    BitSet expected = new BitSet();
+    expected.set(0, 3);
+    assertThat(visitor.getMerged()).hasSize(1);
+    assertThat(visitor.getMerged().get(1L)).isEqualTo(expected);
+  }
+
+  @Test
+  public void should_merge_execution_data_without_session() {
+    ExecutionDataVisitor visitor = new ExecutionDataVisitor();
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {false, true}));
+    visitor.visitEnd();
 
-    assertThat(visitor.getSessions()).hasSize(2);
-    assertThat(visitor.getSessions().get("foo").getContents()).hasSize(1);
-    assertThat(visitor.getSessions().get("foo").get(1).getProbes()).isEqualTo(new boolean[] {true, false, true});
-    assertThat(visitor.getSessions().get("bar").getContents()).hasSize(1);
-    assertThat(visitor.getSessions().get("bar").get(1).getProbes()).isEqualTo(new boolean[] {false, true, false});
-    assertThat(visitor.getMerged().get(1).getProbes()).isEqualTo(new boolean[] {true, true, true});
+    assertThat(visitor.getMerged().get(1L).cardinality()).isEqualTo(1);
+    assertThat(visitor.getMerged().get(1L).get(1)).isTrue();
   }
 
 }
@@ -0,0 +1,145 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.jacoco.core.internal.data.CRC64;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.test.TestUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JaCoCoClassFilesTest {
+
+  private static final Set<Long> NOT_EXECUTED = Collections.emptySet();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_analyze_class_files_once() throws Exception {
+    File outputDir = TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/");
+    Files.copy(TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/org/example/App.class.toCopy"), new File(outputDir, "org/example/App.class"));
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    JaCoCoClassFiles classFiles = new JaCoCoClassFiles(fileSystem);
+
+    assertThat(classFiles.isEmpty()).isFalse();
+    ClassProbesLines classProbesLines = classFiles.get("org/example/App", 0);
+    assertThat(classProbesLines).isNotNull();
+    assertThat(classProbesLines.getSourceFileName()).isEqualTo("App.java");
+    assertThat(classFiles.get("org/example/App", 0)).isSameAs(classProbesLines);
+    assertThat(classFiles.get("org/example/Unknown", 0)).isNull();
+    assertThat(classFiles.getAll(NOT_EXECUTED)).containsOnly(classProbesLines);
+    assertThat(classFiles.getAll(NOT_EXECUTED)).containsOnly(classProbesLines);
+    verify(fileSystem, times(1)).binaryDirs();
+  }
+
+  @Test
+  public void should_skip_class_files_which_can_not_be_analyzed() throws Exception {
+    File outputDir = temporaryFolder.newFolder("classes");
+    Files.write(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0}, new File(outputDir, "Broken.class"));
+    Files.copy(TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/org/example/App.class.toCopy"), new File(outputDir, "App.class"));
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    JaCoCoClassFiles classFiles = new JaCoCoClassFiles(fileSystem);
+
+    assertThat(classFiles.get("Broken", 0)).isNull();
+    assertThat(classFiles.getAll(NOT_EXECUTED)).hasSize(1);
+    assertThat(classFiles.getAll(NOT_EXECUTED).get(0).getSourceFileName()).isEqualTo("App.java");
+  }
+
+  @Test
+  public void should_choose_class_file_matching_execution_data_when_class_is_in_several_directories() throws Exception {
+    File firstDir = temporaryFolder.newFolder("classes");
+    File secondDir = temporaryFolder.newFolder("other-classes");
+    Files.copy(TestUtils.getResource("/HelloWorld.class.toCopy"), new File(firstDir, "App.class"));
+    Files.copy(TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/org/example/App.class.toCopy"), new File(secondDir, "App.class"));
+    long firstId = CRC64.checksum(Files.toByteArray(new File(firstDir, "App.class")));
+    long secondId = CRC64.checksum(Files.toByteArray(new File(secondDir, "App.class")));
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(firstDir, secondDir));
+    JaCoCoClassFiles classFiles = new JaCoCoClassFiles(fileSystem);
+
+    assertThat(classFiles.get("App", firstId).getClassId()).isEqualTo(firstId);
+    assertThat(classFiles.get("App", secondId).getClassId()).isEqualTo(secondId);
+    assertThat(classFiles.get("App", 0)).isNull();
+    assertThat(classFiles.getAll(ImmutableSet.of(secondId))).hasSize(1);
+    assertThat(classFiles.getAll(ImmutableSet.of(secondId)).get(0).getClassId()).isEqualTo(secondId);
+    assertThat(classFiles.getAll(NOT_EXECUTED).get(0).getClassId()).isEqualTo(firstId);
+  }
+
+  @Test
+  public void should_return_same_analysis_to_all_threads() throws Exception {
+    File outputDir = temporaryFolder.newFolder("classes");
+    Files.copy(TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/org/example/App.class.toCopy"), new File(outputDir, "App.class"));
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    final JaCoCoClassFiles classFiles = new JaCoCoClassFiles(fileSystem);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<ClassProbesLines>> results = Lists.newArrayList();
+      for (int i = 0; i < 20; i++) {
+        results.add(executor.submit(new Callable<ClassProbesLines>() {
+          @Override
+          public ClassProbesLines call() {
+            return classFiles.get("App", 0);
+          }
+        }));
+      }
+      for (Future<ClassProbesLines> result : results) {
+        assertThat(result.get()).isNotNull().isSameAs(classFiles.get("App", 0));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    verify(fileSystem, times(1)).binaryDirs();
+  }
+
+  @Test
+  public void should_be_empty_without_class_files() {
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(new File("nowhere")));
+
+    assertThat(new JaCoCoClassFiles(fileSystem).isEmpty()).isTrue();
+    assertThat(new JaCoCoClassFiles(fileSystem).getAll(NOT_EXECUTED)).isEmpty();
+  }
+
+}
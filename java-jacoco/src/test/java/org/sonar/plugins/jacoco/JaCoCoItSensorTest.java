@@ -75,7 +75,7 @@ public class JaCoCoItSensorTest {
     perspectives = mock(ResourcePerspectives.class);
     fileSystem = mock(ModuleFileSystem.class);
     pathResolver = mock(PathResolver.class);
-    sensor = new JaCoCoItSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator);
+    sensor = new JaCoCoItSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, new JaCoCoClassFiles(fileSystem));
   }
 
   @Test
@@ -21,6 +21,8 @@ package org.sonar.plugins.jacoco;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.batch.SensorContext;
@@ -32,6 +34,7 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.test.IsMeasure;
+import org.sonar.api.utils.SonarException;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.test.TestUtils;
 
@@ -43,6 +46,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -69,7 +73,7 @@ public class JaCoCoOverallSensorTest {
     pathResolver = mock(PathResolver.class);
     project = mock(Project.class);
     perspectives = mock(ResourcePerspectives.class);
-    sensor = new JaCoCoOverallSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator);
+    sensor = new JaCoCoOverallSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, new JaCoCoClassFiles(fileSystem));
   }
 
   @Test
@@ -120,11 +124,10 @@ public class JaCoCoOverallSensorTest {
     when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(outputDir));
     when(pathResolver.relativeFile(any(File.class), eq("ut.exec"))).thenReturn(new File(outputDir, "ut.exec"));
     when(pathResolver.relativeFile(any(File.class), eq("it.exec"))).thenReturn(new File(outputDir, "it.exec"));
-    when(pathResolver.relativeFile(any(File.class), eq(new File("target/sonar/jacoco-overall.exec").getAbsolutePath()))).thenReturn(new File("target/sonar/jacoco-overall.exec"));
-    when(fileSystem.workingDir()).thenReturn(new File("target/sonar"));
 
     sensor.analyse(project, context);
 
+    verify(fileSystem, never()).workingDir();
     verify(context, times(1)).getResource(resource);
     verify(context).saveMeasure(eq(resource), argThat(new IsMeasure(CoreMetrics.OVERALL_LINES_TO_COVER, 12.0)));
     verify(context).saveMeasure(eq(resource), argThat(new IsMeasure(CoreMetrics.OVERALL_UNCOVERED_LINES, 2.0)));
@@ -135,6 +138,37 @@ public class JaCoCoOverallSensorTest {
     verify(context).saveMeasure(eq(resource), argThat(new IsMeasure(CoreMetrics.OVERALL_COVERED_CONDITIONS_BY_LINE, (String) null)));
   }
 
+  @Test
+  public void should_merge_probes_of_reports() {
+    File outputDir = TestUtils.getResource(JaCoCoOverallSensorTest.class, ".");
+    File reportUTs = new File(outputDir, "ut.exec");
+    File reportITs = new File(outputDir, "it.exec");
+    ExecutionDataStore storeUTs = JaCoCoOverallSensor.mergeReports(reportUTs);
+    ExecutionDataStore storeITs = JaCoCoOverallSensor.mergeReports(reportITs);
+
+    ExecutionDataStore merged = JaCoCoOverallSensor.mergeReports(reportUTs, reportITs, reportUTs);
+
+    assertThat(merged.getContents()).isNotEmpty();
+    for (ExecutionData data : merged.getContents()) {
+      boolean[] probesUTs = probes(storeUTs, data.getId());
+      boolean[] probesITs = probes(storeITs, data.getId());
+      for (int i = 0; i < data.getProbes().length; i++) {
+        assertThat(data.getProbes()[i]).isEqualTo((probesUTs != null && probesUTs[i]) || (probesITs != null && probesITs[i]));
+      }
+    }
+  }
+
+  private static boolean[] probes(ExecutionDataStore store, long classId) {
+    ExecutionData data = store.get(classId);
+    return data == null ? null : data.getProbes();
+  }
+
+  @Test(expected = SonarException.class)
+  public void should_fail_when_report_can_not_be_read() {
+    File outputDir = TestUtils.getResource(JaCoCoOverallSensorTest.class, ".");
+    JaCoCoOverallSensor.mergeReports(new File(outputDir, "ut.exec"), new File(outputDir, "it.not.found.exec"));
+  }
+
   @Test
   public void should_no_save_measures_when_it_report_is_not_found() throws IOException {
     File outputDir = TestUtils.getResource(JaCoCoOverallSensorTest.class, ".");
@@ -81,7 +81,7 @@ public class JaCoCoSensorTest {
 
     configuration = mock(JacocoConfiguration.class);
     perspectives = mock(ResourcePerspectives.class);
-    sensor = new JaCoCoSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator);
+    sensor = new JaCoCoSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, new JaCoCoClassFiles(fileSystem));
   }
 
   @Test
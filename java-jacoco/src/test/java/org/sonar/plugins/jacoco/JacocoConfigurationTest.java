@@ -64,6 +64,16 @@ public class JacocoConfigurationTest {
   public void defaults() {
     assertThat(jacocoSettings.getReportPath()).isEqualTo("target/jacoco.exec");
     assertThat(jacocoSettings.getItReportPath()).isEqualTo("target/jacoco-it.exec");
+    assertThat(jacocoSettings.getCoveragePerTestThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_return_coverage_per_test_threads() {
+    settings.setProperty(JacocoConfiguration.COVERAGE_PER_TEST_THREADS_PROPERTY, 4);
+    assertThat(jacocoSettings.getCoveragePerTestThreads()).isEqualTo(4);
+
+    settings.setProperty(JacocoConfiguration.COVERAGE_PER_TEST_THREADS_PROPERTY, 0);
+    assertThat(jacocoSettings.getCoveragePerTestThreads()).isEqualTo(1);
   }
 
   @Test
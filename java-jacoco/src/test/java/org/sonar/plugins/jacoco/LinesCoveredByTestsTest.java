@@ -0,0 +1,111 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.internal.data.CRC64;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LinesCoveredByTestsTest {
+
+  private static final String CLASS_NAME = "org/sonar/plugins/jacoco/ClassProbesLines";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private long classId;
+  private ModuleFileSystem fileSystem;
+
+  @Before
+  public void setUp() throws Exception {
+    byte[] classFile = ClassProbesLinesTest.classFile(ClassProbesLines.class);
+    classId = CRC64.checksum(classFile);
+    File outputDir = temporaryFolder.newFolder("classes");
+    File file = new File(outputDir, CLASS_NAME + ".class");
+    Files.createParentDirs(file);
+    Files.write(classFile, file);
+    fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.binaryDirs()).thenReturn(ImmutableList.of(outputDir));
+  }
+
+  @Test
+  public void should_compute_same_lines_in_parallel() throws Exception {
+    LinesCoveredByTests sequential = new LinesCoveredByTests(new JaCoCoClassFiles(fileSystem), 1);
+    LinesCoveredByTests parallel = new LinesCoveredByTests(new JaCoCoClassFiles(fileSystem), 4);
+    Random random = new Random(0);
+    for (int i = 0; i < 200; i++) {
+      // Some tests are executed in several sessions
+      String sessionId = "Test test" + random.nextInt(100);
+      boolean[] probes = new boolean[256];
+      probes[random.nextInt(probes.length)] = true;
+      sequential.add(sessionId, ImmutableList.of(new ExecutionData(classId, CLASS_NAME, probes), new ExecutionData(1, "Unknown", probes)));
+      parallel.add(sessionId, ImmutableList.of(new ExecutionData(classId, CLASS_NAME, probes), new ExecutionData(1, "Unknown", probes)));
+    }
+
+    Map<String, Map<String, BitSet>> expected = sequential.getResult();
+    try {
+      assertThat(parallel.getResult()).isEqualTo(expected);
+    } finally {
+      parallel.stop();
+    }
+    assertThat(expected.size()).isGreaterThan(1);
+  }
+
+  @Test
+  public void should_merge_lines_of_sessions_of_same_test() throws Exception {
+    boolean[] firstProbe = new boolean[256];
+    firstProbe[0] = true;
+    boolean[] secondProbe = new boolean[256];
+    secondProbe[1] = true;
+
+    JaCoCoClassFiles classFiles = new JaCoCoClassFiles(fileSystem);
+    LinesCoveredByTests linesCoveredByTests = new LinesCoveredByTests(classFiles, 2);
+    try {
+      linesCoveredByTests.add("Test test", ImmutableList.of(new ExecutionData(classId, CLASS_NAME, firstProbe)));
+      linesCoveredByTests.add("Test test", ImmutableList.of(new ExecutionData(classId, CLASS_NAME, secondProbe)));
+
+      BitSet expected = new BitSet();
+      ClassProbesLines classProbesLines = classFiles.get(CLASS_NAME, classId);
+      classProbesLines.addCoveredLines(new ExecutionData(classId, CLASS_NAME, firstProbe), expected);
+      classProbesLines.addCoveredLines(new ExecutionData(classId, CLASS_NAME, secondProbe), expected);
+      Map<String, Map<String, BitSet>> result = linesCoveredByTests.getResult();
+      assertThat(result).hasSize(1);
+      assertThat(result.get("Test test").get(CLASS_NAME)).isEqualTo(expected);
+    } finally {
+      linesCoveredByTests.stop();
+    }
+  }
+
+}
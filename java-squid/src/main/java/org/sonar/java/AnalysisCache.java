@@ -0,0 +1,366 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.ast.SourceBuffer;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Results of analysis of files, stored on disk between analyses, so that analysis of files which did not change since
+ * previous analysis can be replayed instead of being done again.
+ * Results are valid only for the same content of file, the same fingerprint of configuration (active rules, libraries...),
+ * and the same content of class files of the project, which were read during analysis of the file.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+  private static final int FORMAT_VERSION = 2;
+
+  /**
+   * Hash of a class file, which does not exist.
+   */
+  private static final String ABSENT = "";
+
+  private final File file;
+  private final String fingerprint;
+  private final List<File> projectBinaries;
+  private final Map<String, FileAnalysis> previousAnalyses;
+  private final Map<String, FileAnalysis> analyses = Maps.newHashMap();
+
+  /**
+   * Hashes of class files of the project indexed by resource name, so that each class file is read at most once per analysis.
+   */
+  private final Map<String, String> classFileHashes = Maps.newHashMap();
+  private SquidClassLoader classLoader;
+  private int hits;
+  private int misses;
+
+  private AnalysisCache(File file, String fingerprint, List<File> projectBinaries, Map<String, FileAnalysis> previousAnalyses) {
+    this.file = file;
+    this.fingerprint = fingerprint;
+    this.projectBinaries = projectBinaries;
+    this.previousAnalyses = previousAnalyses;
+  }
+
+  /**
+   * Loads results stored in given file, only if they were computed with the same fingerprint of configuration.
+   *
+   * @param projectBinaries directories with class files of the project, which are checked for each file separately
+   */
+  @SuppressWarnings("unchecked")
+  public static AnalysisCache load(File file, String configuration, List<File> projectBinaries) {
+    String fingerprint = sha1(configuration);
+    Map<String, FileAnalysis> previousAnalyses = Maps.newHashMap();
+    if (file.isFile()) {
+      ObjectInputStream in = null;
+      try {
+        in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+        if (in.readInt() == FORMAT_VERSION && fingerprint.equals(in.readUTF())) {
+          previousAnalyses = (HashMap<String, FileAnalysis>) in.readObject();
+        } else {
+          LOG.info("Configuration of analysis changed, all files will be analyzed");
+        }
+      } catch (Exception e) {
+        LOG.warn("Unable to read analysis cache " + file.getAbsolutePath() + ", all files will be analyzed", e);
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+    }
+    return new AnalysisCache(file, fingerprint, projectBinaries, previousAnalyses);
+  }
+
+  /**
+   * @return results of previous analysis of given file, or null if its content or one of class files read during its analysis changed
+   */
+  @Nullable
+  public FileAnalysis get(File sourceFile, String contentHash) {
+    String key = sourceFile.getAbsolutePath();
+    FileAnalysis analysis = previousAnalyses.get(key);
+    if (analysis != null && analysis.contentHash.equals(contentHash) && classFilesUnchanged(analysis)) {
+      hits++;
+      analyses.put(key, analysis);
+      return analysis;
+    }
+    misses++;
+    return null;
+  }
+
+  private boolean classFilesUnchanged(FileAnalysis analysis) {
+    for (Map.Entry<String, String> entry : analysis.classFiles.entrySet()) {
+      if (!classFileHash(entry.getKey()).equals(entry.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void put(File sourceFile, FileAnalysis analysis) {
+    for (Map.Entry<String, String> entry : analysis.classFiles.entrySet()) {
+      entry.setValue(classFileHash(entry.getKey()));
+    }
+    analyses.put(sourceFile.getAbsolutePath(), analysis);
+  }
+
+  private String classFileHash(String name) {
+    String hash = classFileHashes.get(name);
+    if (hash == null) {
+      if (classLoader == null) {
+        classLoader = ClassLoaderBuilder.create(projectBinaries);
+      }
+      InputStream in = classLoader.getResourceAsStream(name);
+      if (in == null) {
+        hash = ABSENT;
+      } else {
+        try {
+          hash = sha1(ByteStreams.toByteArray(in));
+        } catch (IOException e) {
+          // will not match any stored hash, so that file is analyzed again
+          hash = e.toString();
+        } finally {
+          Closeables.closeQuietly(in);
+        }
+      }
+      classFileHashes.put(name, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * Stores results of files analyzed by current analysis, results of other files are dropped.
+   */
+  public void save() {
+    LOG.info("Analysis cache: " + hits + " unchanged files, " + misses + " analyzed files");
+    if (classLoader != null) {
+      classLoader.close();
+      classLoader = null;
+    }
+    ObjectOutputStream out = null;
+    try {
+      file.getParentFile().mkdirs();
+      out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file))));
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(fingerprint);
+      out.writeObject(new HashMap<String, FileAnalysis>(analyses));
+    } catch (IOException e) {
+      LOG.warn("Unable to write analysis cache " + file.getAbsolutePath(), e);
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Hashes characters of content as they are, so that content is not copied into a string or encoded.
+   */
+  public static String contentHash(SourceBuffer sourceBuffer) {
+    MessageDigest digest = newSha1();
+    char[] content = sourceBuffer.getContent();
+    byte[] buffer = new byte[8192];
+    int i = 0;
+    while (i < content.length) {
+      int length = 0;
+      while (length < buffer.length && i < content.length) {
+        char c = content[i];
+        buffer[length] = (byte) (c >> 8);
+        buffer[length + 1] = (byte) c;
+        length += 2;
+        i++;
+      }
+      digest.update(buffer, 0, length);
+    }
+    return hex(digest.digest());
+  }
+
+  private static String sha1(String value) {
+    return sha1(value.getBytes(Charsets.UTF_8));
+  }
+
+  private static String sha1(byte[] value) {
+    return hex(newSha1().digest(value));
+  }
+
+  private static MessageDigest newSha1() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static String hex(byte[] digest) {
+    StringBuilder sb = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Results of analysis of one file: issues, measures and symbols.
+   */
+  public static class FileAnalysis implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final String contentHash;
+
+    /**
+     * Hashes of class files of the project read during analysis, indexed by resource name, i.e. "org/example/MyClass.class".
+     * Hashes are computed when analysis is {@link AnalysisCache#put(File, FileAnalysis) stored}.
+     */
+    private final Map<String, String> classFiles = Maps.newHashMap();
+    private final List<Issue> issues = Lists.newArrayList();
+    private final List<Measurement> measures = Lists.newArrayList();
+    private final List<int[]> symbols = Lists.newArrayList();
+
+    public FileAnalysis(String contentHash) {
+      this.contentHash = contentHash;
+    }
+
+    /**
+     * @param name resource name of a class file of the project, on which results of analysis depend
+     */
+    public void addClassFile(String name) {
+      classFiles.put(name, ABSENT);
+    }
+
+    public void addIssue(String ruleKey, int line, String message) {
+      issues.add(new Issue(ruleKey, line, message));
+    }
+
+    public List<Issue> getIssues() {
+      return issues;
+    }
+
+    public void addMeasure(String metricKey, @Nullable Double value, @Nullable String data, boolean memory) {
+      measures.add(new Measurement(metricKey, value, data, memory));
+    }
+
+    public List<Measurement> getMeasures() {
+      return measures;
+    }
+
+    /**
+     * @param symbol start and end offsets of declaration, followed by start offsets of references
+     */
+    public void addSymbol(int[] symbol) {
+      symbols.add(symbol);
+    }
+
+    public List<int[]> getSymbols() {
+      return symbols;
+    }
+
+  }
+
+  public static class Issue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String ruleKey;
+    private final int line;
+    private final String message;
+
+    Issue(String ruleKey, int line, String message) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.message = message;
+    }
+
+    public String getRuleKey() {
+      return ruleKey;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+  }
+
+  public static class Measurement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String metricKey;
+    private final Double value;
+    private final String data;
+    private final boolean memory;
+
+    Measurement(String metricKey, @Nullable Double value, @Nullable String data, boolean memory) {
+      this.metricKey = metricKey;
+      this.value = value;
+      this.data = data;
+      this.memory = memory;
+    }
+
+    public String getMetricKey() {
+      return metricKey;
+    }
+
+    @Nullable
+    public Double getValue() {
+      return value;
+    }
+
+    @Nullable
+    public String getData() {
+      return data;
+    }
+
+    public boolean isMemory() {
+      return memory;
+    }
+
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.sonar.sslr.api.AstNode;
+import org.sonar.java.AnalysisCache.FileAnalysis;
+import org.sonar.java.ast.visitors.JavaAstVisitor;
+import org.sonar.java.ast.visitors.VisitorContext;
+
+import javax.annotation.Nullable;
+
+/**
+ * Decides for each file whether results of its previous analysis can be replayed, and stores results of files which are analyzed.
+ * Must be executed before visitors which use {@link VisitorContext#getCachedAnalysis()} and {@link VisitorContext#getAnalysisToCache()}.
+ */
+public class AnalysisCacheVisitor extends JavaAstVisitor {
+
+  private final AnalysisCache cache;
+
+  public AnalysisCacheVisitor(AnalysisCache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public void visitFile(@Nullable AstNode astNode) {
+    if (astNode == null) {
+      // parse error
+      return;
+    }
+    VisitorContext context = getVisitorContext();
+    String contentHash = AnalysisCache.contentHash(getSourceBuffer());
+    FileAnalysis cachedAnalysis = cache.get(context.getFile(), contentHash);
+    if (cachedAnalysis != null) {
+      context.setCachedAnalysis(cachedAnalysis);
+    } else {
+      context.setAnalysisToCache(new FileAnalysis(contentHash));
+    }
+  }
+
+  @Override
+  public void leaveFile(@Nullable AstNode astNode) {
+    FileAnalysis analysis = getVisitorContext().getAnalysisToCache();
+    if (analysis != null) {
+      cache.put(getContext().getFile(), analysis);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    cache.save();
+  }
+
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.java;
 
+import com.google.common.base.Supplier;
 import com.sonar.sslr.impl.Parser;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
@@ -72,10 +73,16 @@ public final class JavaAstScanner {
     return (SourceFile) sources.iterator().next();
   }
 
-  public static AstScanner create(JavaConfiguration conf, SquidAstVisitor<LexerlessGrammar>... visitors) {
+  public static AstScanner create(final JavaConfiguration conf, SquidAstVisitor<LexerlessGrammar>... visitors) {
     final Parser parser = JavaParser.createParser(conf.getCharset(), conf.getVerifyAssertions());
 
-    AstScanner builder = new AstScanner(parser);
+    AstScanner builder = new AstScanner(parser, conf.getCharset());
+    builder.setParsingThreads(conf.getAnalysisThreads(), new Supplier<Parser<LexerlessGrammar>>() {
+      @Override
+      public Parser<LexerlessGrammar> get() {
+        return JavaParser.createParser(conf.getCharset(), conf.getVerifyAssertions());
+      }
+    });
 
     /* Packages */
     builder.withSquidAstVisitor(new PackageVisitor());
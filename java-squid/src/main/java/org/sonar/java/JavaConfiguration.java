@@ -19,6 +19,9 @@
  */
 package org.sonar.java;
 
+import javax.annotation.Nullable;
+
+import java.io.File;
 import java.nio.charset.Charset;
 
 public class JavaConfiguration {
@@ -26,6 +29,10 @@ public class JavaConfiguration {
   private final Charset charset;
   private boolean analyzePropertyAccessors = true;
   private boolean verifyAssertions = true;
+  private int analysisThreads = 1;
+  private File analysisCacheFile;
+  private String analysisCacheFingerprint;
+  private File bytecodeIndexDir;
 
   public JavaConfiguration(Charset charset) {
     this.charset = charset;
@@ -51,4 +58,45 @@ public class JavaConfiguration {
     this.verifyAssertions = verifyAssertions;
   }
 
+  public int getAnalysisThreads() {
+    return analysisThreads;
+  }
+
+  /**
+   * Amount of threads used to parse source files and class files, visitors are still executed on a single thread.
+   */
+  public void setAnalysisThreads(int analysisThreads) {
+    this.analysisThreads = analysisThreads;
+  }
+
+  @Nullable
+  public File getAnalysisCacheFile() {
+    return analysisCacheFile;
+  }
+
+  public String getAnalysisCacheFingerprint() {
+    return analysisCacheFingerprint;
+  }
+
+  /**
+   * Enables replay of results of files which did not change since previous analysis.
+   * @param fingerprint description of everything apart from content of file which can change results of analysis, such as active rules or classpath
+   */
+  public void setAnalysisCache(File file, String fingerprint) {
+    this.analysisCacheFile = file;
+    this.analysisCacheFingerprint = fingerprint;
+  }
+
+  @Nullable
+  public File getBytecodeIndexDir() {
+    return bytecodeIndexDir;
+  }
+
+  /**
+   * Enables reuse of symbols read from classes of libraries by previous analyses.
+   */
+  public void setBytecodeIndexDir(@Nullable File bytecodeIndexDir) {
+    this.bytecodeIndexDir = bytecodeIndexDir;
+  }
+
 }
@@ -89,20 +89,25 @@ public class JavaSquid implements DirectedGraphAccessor<SourceCode, SourceCodeEd
           visitorsToBridge
       );
     }
+    if (conf.getAnalysisCacheFile() != null) {
+      List<File> projectBinaries = sonarComponents == null ? Collections.<File>emptyList() : sonarComponents.getJavaBinaryDirs();
+      astScanner.accept(new AnalysisCacheVisitor(AnalysisCache.load(conf.getAnalysisCacheFile(), conf.getAnalysisCacheFingerprint(), projectBinaries)));
+    }
     VisitorsBridge visitorsBridge = new VisitorsBridge(visitorsToBridge, sonarComponents);
     visitorsBridge.setCharset(conf.getCharset());
     visitorsBridge.setAnalyseAccessors(conf.isAnalysePropertyAccessors());
+    visitorsBridge.setBytecodeIndexDir(conf.getBytecodeIndexDir());
     astScanner.accept(visitorsBridge);
 
     if (sonarComponents != null) {
-      astScanner.accept(new FileLinesVisitor(sonarComponents, conf.getCharset()));
-      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents, conf.getCharset()));
+      astScanner.accept(new FileLinesVisitor(sonarComponents));
+      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents));
     }
 
     // TODO unchecked cast
     squidIndex = (SquidIndex) astScanner.getIndex();
 
-    bytecodeScanner = new BytecodeScanner(squidIndex);
+    bytecodeScanner = new BytecodeScanner(squidIndex, conf.getAnalysisThreads());
     bytecodeScanner.accept(new DependenciesVisitor(graph));
 
     // External visitors (typically Check ones):
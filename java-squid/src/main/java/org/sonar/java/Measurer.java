@@ -19,9 +19,8 @@
  */
 package org.sonar.java;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Files;
+import com.google.common.collect.Maps;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
@@ -30,6 +29,7 @@ import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.measures.RangeDistributionBuilder;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
+import org.sonar.java.AnalysisCache.FileAnalysis;
 import org.sonar.java.ast.visitors.AccessorVisitor;
 import org.sonar.java.ast.visitors.CommentLinesVisitor;
 import org.sonar.java.ast.visitors.LinesOfCodeVisitor;
@@ -42,13 +42,14 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
+import javax.annotation.Nullable;
+
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
-public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor {
+public class Measurer extends SubscriptionVisitor implements CacheAwareVisitor {
 
   private static final Number[] LIMITS_COMPLEXITY_METHODS = {1, 2, 4, 6, 8, 10, 12};
   private static final Number[] LIMITS_COMPLEXITY_FILES = {0, 5, 10, 20, 30, 60, 90};
@@ -64,8 +65,9 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
 
   private final Deque<ClassTree> classTrees = new LinkedList<ClassTree>();
   private final AccessorVisitor accessorVisitor;
-  private Charset charset;
   private double classes;
+  private FileAnalysis analysisToCache;
+  private Map<String, Metric> metricsByKey;
 
   public Measurer(Project project, SensorContext context, boolean analyseAccessors) {
     this.project = project;
@@ -108,21 +110,12 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
     saveMetricOnFile(CoreMetrics.STATEMENTS, new StatementVisitor().numberOfStatements(context.getTree()));
     saveMetricOnFile(CoreMetrics.NCLOC, new LinesOfCodeVisitor().linesOfCode(context.getTree()));
 
-    sensorContext.saveMeasure(sonarFile, methodComplexityDistribution.build(true).setPersistenceMode(PersistenceMode.MEMORY));
+    saveMeasure(methodComplexityDistribution.build(true).setPersistenceMode(PersistenceMode.MEMORY));
 
     RangeDistributionBuilder fileComplexityDistribution = new RangeDistributionBuilder(CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION, LIMITS_COMPLEXITY_FILES);
-    sensorContext.saveMeasure(sonarFile, fileComplexityDistribution.add(fileComplexity).build(true).setPersistenceMode(PersistenceMode.MEMORY));
-    saveLinesMetric();
-
-  }
+    saveMeasure(fileComplexityDistribution.add(fileComplexity).build(true).setPersistenceMode(PersistenceMode.MEMORY));
+    saveMetricOnFile(CoreMetrics.LINES, ((SourceAwareScannerContext) context).getSourceBuffer().getLineCount());
 
-  private void saveLinesMetric() {
-    try {
-      String content = Files.toString(context.getFile(), charset);
-      saveMetricOnFile(CoreMetrics.LINES, content.split("(\r)?\n|\r", -1).length);
-    } catch (IOException e) {
-      Throwables.propagate(e);
-    }
   }
 
   @Override
@@ -159,13 +152,39 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
   }
 
   private void saveMetricOnFile(Metric metric, double value) {
-    sensorContext.saveMeasure(sonarFile, new Measure(metric, value));
+    saveMeasure(new Measure(metric, value));
+  }
 
+  private void saveMeasure(Measure measure) {
+    sensorContext.saveMeasure(sonarFile, measure);
+    if (analysisToCache != null) {
+      analysisToCache.addMeasure(measure.getMetricKey(), measure.getValue(), measure.getData(), measure.getPersistenceMode() == PersistenceMode.MEMORY);
+    }
   }
 
+  @Override
+  public void recordInto(@Nullable FileAnalysis analysis) {
+    this.analysisToCache = analysis;
+  }
 
   @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
+  public void replay(java.io.File file, FileAnalysis analysis) {
+    if (metricsByKey == null) {
+      metricsByKey = Maps.newHashMap();
+      for (Metric metric : CoreMetrics.getMetrics()) {
+        metricsByKey.put(metric.getKey(), metric);
+      }
+    }
+    File replayedFile = File.fromIOFile(file, project);
+    for (AnalysisCache.Measurement measurement : analysis.getMeasures()) {
+      Measure measure = new Measure(metricsByKey.get(measurement.getMetricKey()));
+      measure.setValue(measurement.getValue());
+      measure.setData(measurement.getData());
+      if (measurement.isMemory()) {
+        measure.setPersistenceMode(PersistenceMode.MEMORY);
+      }
+      sensorContext.saveMeasure(replayedFile, measure);
+    }
   }
+
 }
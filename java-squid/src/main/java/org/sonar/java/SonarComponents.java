@@ -91,4 +91,18 @@ public class SonarComponents implements BatchExtension {
     }
     return javaClasspath.getElements();
   }
+
+  public List<File> getJavaBinaryDirs() {
+    if (javaClasspath == null) {
+      return Lists.newArrayList();
+    }
+    return javaClasspath.getBinaryDirs();
+  }
+
+  public List<File> getJavaLibraries() {
+    if (javaClasspath == null) {
+      return Lists.newArrayList();
+    }
+    return javaClasspath.getLibraries();
+  }
 }
@@ -0,0 +1,33 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import org.sonar.java.ast.SourceBuffer;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+/**
+ * Context given to visitors by {@link org.sonar.java.model.VisitorsBridge}, which also gives access to the content of the file,
+ * read once and shared by all visitors, without making it part of {@link JavaFileScannerContext}.
+ */
+public interface SourceAwareScannerContext extends JavaFileScannerContext {
+
+  SourceBuffer getSourceBuffer();
+
+}
@@ -19,8 +19,8 @@
  */
 package org.sonar.java.ast;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
-import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AuditListener;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.RecognitionException;
@@ -43,6 +43,7 @@ import org.sonar.squidbridge.indexer.SquidIndex;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -58,10 +59,17 @@ public class AstScanner {
   private final List<SquidAstVisitor<LexerlessGrammar>> visitors = Lists.newArrayList();
   private final List<AuditListener> auditListeners = Lists.newArrayList();
   private final Parser<LexerlessGrammar> parser;
+  private final Charset charset;
   private CommentAnalyser commentAnalyser;
+  private int parsingThreads = 1;
+  private Supplier<Parser<LexerlessGrammar>> parserSupplier;
 
-  public AstScanner(Parser<LexerlessGrammar> parser) {
+  /**
+   * @param charset used to read files, which are read once and shared through {@link VisitorContext#getSourceBuffer()}
+   */
+  public AstScanner(Parser<LexerlessGrammar> parser, Charset charset) {
     this.parser = parser;
+    this.charset = charset;
     this.index = new SquidIndex();
   }
 
@@ -70,7 +78,19 @@ public class AstScanner {
    */
   public AstScanner(AstScanner astScanner) {
     this.parser = astScanner.parser;
+    this.charset = astScanner.charset;
     this.index = astScanner.index;
+    this.parsingThreads = astScanner.parsingThreads;
+    this.parserSupplier = astScanner.parserSupplier;
+  }
+
+  /**
+   * Enables parsing of files on given amount of threads, each of them using own parser created by given supplier.
+   * Visitors are still executed sequentially in order of files, so that results do not depend on amount of threads.
+   */
+  public void setParsingThreads(int parsingThreads, Supplier<Parser<LexerlessGrammar>> parserSupplier) {
+    this.parsingThreads = parsingThreads;
+    this.parserSupplier = parserSupplier;
   }
 
   public void scan(Collection<InputFile> files) {
@@ -104,25 +124,43 @@ public class AstScanner {
 
     ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
     progressReport.start(files.size() + " source files to be analyzed");
+    ParallelParser parallelParser = null;
+    if (parsingThreads > 1 && files.size() > 1) {
+      parallelParser = new ParallelParser(parsingThreads, parserSupplier, charset, files);
+    }
     int count = 0;
-    for (InputFile inputFile : files) {
-      File file = inputFile.getFile();
-
-      progressReport.message(count + "/" + files.size() + " files analyzed, current is " + file.getAbsolutePath());
-      count++;
-
-      context.setFile(file);
-
-      try {
-        AstNode ast = parser.parse(file);
-        astWalker.walkAndVisit(ast);
-      } catch (RecognitionException e) {
-        LOG.error("Unable to parse source file : " + file.getAbsolutePath());
-        LOG.error(e.getMessage());
-
-        parseErrorWalkAndVisit(e, file);
-      } catch (Exception e) {
-        throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    try {
+      for (InputFile inputFile : files) {
+        File file = inputFile.getFile();
+
+        progressReport.message(count + "/" + files.size() + " files analyzed, current is " + file.getAbsolutePath());
+        count++;
+
+        context.setFile(file);
+
+        ParsedFile parsedFile;
+        try {
+          parsedFile = parallelParser == null ? ParsedFile.parse(parser, file, charset) : parallelParser.next();
+        } catch (Exception e) {
+          throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+        }
+        context.setSourceBuffer(parsedFile.sourceBuffer);
+        if (parsedFile.parseError == null) {
+          try {
+            astWalker.walkAndVisit(parsedFile.ast);
+          } catch (Exception e) {
+            throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+          }
+        } else {
+          LOG.error("Unable to parse source file : " + file.getAbsolutePath());
+          LOG.error(parsedFile.parseError.getMessage());
+
+          parseErrorWalkAndVisit(parsedFile.parseError, file);
+        }
+      }
+    } finally {
+      if (parallelParser != null) {
+        parallelParser.stop();
       }
     }
     progressReport.stop(files.size() + "/" + files.size() + " source files analyzed");
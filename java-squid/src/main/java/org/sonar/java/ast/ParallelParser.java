@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sonar.sslr.impl.Parser;
+import org.sonar.api.resources.InputFile;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses files ahead of their visit on a pool of threads, each thread using its own parser.
+ * Trees are returned in order of files, so that visit of files stays sequential and its results are the same as without this class.
+ * Amount of files parsed ahead is bounded, so that memory consumption does not depend on amount of files.
+ */
+class ParallelParser {
+
+  private final ExecutorService executor;
+  private final ThreadLocal<Parser<LexerlessGrammar>> parsers;
+  private final Iterator<InputFile> files;
+  private final Deque<Future<ParsedFile>> parsed = new ArrayDeque<Future<ParsedFile>>();
+  private final Charset charset;
+  private final int maxParsedAhead;
+
+  ParallelParser(int threads, final Supplier<Parser<LexerlessGrammar>> parserSupplier, Charset charset, Collection<InputFile> files) {
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("java-parser-%d").setDaemon(true).build());
+    this.parsers = new ThreadLocal<Parser<LexerlessGrammar>>() {
+      @Override
+      protected Parser<LexerlessGrammar> initialValue() {
+        return parserSupplier.get();
+      }
+    };
+    this.files = files.iterator();
+    this.charset = charset;
+    this.maxParsedAhead = 2 * threads;
+  }
+
+  /**
+   * Returns content and tree of next file, or rethrows exception raised during its reading or parsing.
+   */
+  ParsedFile next() {
+    while (parsed.size() < maxParsedAhead && files.hasNext()) {
+      final File file = files.next().getFile();
+      parsed.add(executor.submit(new Callable<ParsedFile>() {
+        @Override
+        public ParsedFile call() {
+          return ParsedFile.parse(parsers.get(), file, charset);
+        }
+      }));
+    }
+    try {
+      return parsed.remove().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for parsing", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  void stop() {
+    executor.shutdownNow();
+  }
+
+}
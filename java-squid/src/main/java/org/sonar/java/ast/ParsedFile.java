@@ -0,0 +1,65 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import org.sonar.java.ast.parser.ActionParser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * Content of a file, read once, together with result of its parsing.
+ */
+class ParsedFile {
+
+  final SourceBuffer sourceBuffer;
+  @Nullable
+  final AstNode ast;
+  @Nullable
+  final RecognitionException parseError;
+
+  private ParsedFile(SourceBuffer sourceBuffer, @Nullable AstNode ast, @Nullable RecognitionException parseError) {
+    this.sourceBuffer = sourceBuffer;
+    this.ast = ast;
+    this.parseError = parseError;
+  }
+
+  static ParsedFile parse(Parser<LexerlessGrammar> parser, File file, Charset charset) {
+    SourceBuffer sourceBuffer = SourceBuffer.read(file, charset);
+    try {
+      AstNode ast;
+      if (parser instanceof ActionParser) {
+        ast = ((ActionParser) parser).parse(file, sourceBuffer.getContent());
+      } else {
+        ast = parser.parse(file);
+      }
+      return new ParsedFile(sourceBuffer, ast, null);
+    } catch (RecognitionException e) {
+      return new ParsedFile(sourceBuffer, null, e);
+    }
+  }
+
+}
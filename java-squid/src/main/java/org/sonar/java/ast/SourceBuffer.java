@@ -0,0 +1,134 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Content of a source file, read and decoded once per analysis and shared between parser and visitors.
+ * Lines are terminated by "\n", "\r\n" or "\r", like for the parser.
+ */
+public final class SourceBuffer {
+
+  private final File file;
+  private final char[] content;
+  private final int[] lineStarts;
+  private List<String> lines;
+
+  private SourceBuffer(File file, char[] content) {
+    this.file = file;
+    this.content = content;
+    this.lineStarts = computeLineStarts(content);
+  }
+
+  public static SourceBuffer read(File file, Charset charset) {
+    try {
+      return new SourceBuffer(file, Files.toString(file, charset).toCharArray());
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static int[] computeLineStarts(char[] content) {
+    int[] result = new int[16];
+    int count = 1;
+    for (int i = 0; i < content.length; i++) {
+      char c = content[i];
+      if (c == '\n' || c == '\r' && (i + 1 == content.length || content[i + 1] != '\n')) {
+        if (count == result.length) {
+          result = Arrays.copyOf(result, count * 2);
+        }
+        result[count] = i + 1;
+        count++;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returned array is shared and must not be modified.
+   */
+  public char[] getContent() {
+    return content;
+  }
+
+  /**
+   * Amount of lines, including the empty last line which follows a line terminator at the end of file.
+   */
+  public int getLineCount() {
+    return lineStarts.length;
+  }
+
+  /**
+   * @param line starts from 1
+   * @return offset in content of first character of given line
+   */
+  public int getLineStart(int line) {
+    return lineStarts[line - 1];
+  }
+
+  /**
+   * @param line starts from 1
+   * @return given line without its terminator
+   */
+  public String getLine(int line) {
+    int start = lineStarts[line - 1];
+    int end = line < lineStarts.length ? lineStarts[line] : content.length;
+    while (end > start && (content[end - 1] == '\n' || content[end - 1] == '\r')) {
+      end--;
+    }
+    return new String(content, start, end - start);
+  }
+
+  /**
+   * Same lines as {@link Files#readLines(File, Charset)}: empty last line is not part of them.
+   */
+  public List<String> getLines() {
+    if (lines == null) {
+      int count = lineStarts.length;
+      if (lineStarts[count - 1] == content.length) {
+        count--;
+      }
+      ImmutableList.Builder<String> builder = ImmutableList.builder();
+      for (int line = 1; line <= count; line++) {
+        builder.add(getLine(line));
+      }
+      lines = builder.build();
+    }
+    return lines;
+  }
+
+  public boolean endsWithNewLine() {
+    return content.length > 0 && (content[content.length - 1] == '\n' || content[content.length - 1] == '\r');
+  }
+
+}
@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.api.Rule;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
@@ -44,6 +45,8 @@ import org.sonar.java.model.JavaTreeMaker;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.text.LocatedText;
 import org.sonar.sslr.internal.vm.CompilationHandler;
 import org.sonar.sslr.internal.vm.FirstOfExpression;
 import org.sonar.sslr.internal.vm.Instruction;
@@ -52,7 +55,11 @@ import org.sonar.sslr.internal.vm.ParsingExpression;
 import org.sonar.sslr.internal.vm.SequenceExpression;
 import org.sonar.sslr.internal.vm.StringExpression;
 import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParseError;
+import org.sonar.sslr.parser.ParseErrorFormatter;
+import org.sonar.sslr.parser.ParseRunner;
 import org.sonar.sslr.parser.ParserAdapter;
+import org.sonar.sslr.parser.ParsingResult;
 
 import javax.annotation.Nullable;
 
@@ -79,6 +86,7 @@ public class ActionParser extends Parser {
 
   private final GrammarBuilderInterceptor grammarBuilderInterceptor;
   private final Parser parser;
+  private final ParseRunner parseRunner;
 
   private AstNode rootNode;
 
@@ -137,7 +145,9 @@ public class ActionParser extends Parser {
     }
 
     b.setRootRule(rootRule);
-    this.parser = new ParserAdapter<LexerlessGrammar>(charset, b.build());
+    LexerlessGrammar lexerlessGrammar = b.build();
+    this.parser = new ParserAdapter<LexerlessGrammar>(charset, lexerlessGrammar);
+    this.parseRunner = new ParseRunner(lexerlessGrammar.getRootRule());
 
     this.verifyAssertions = verifyAssertions;
   }
@@ -149,19 +159,28 @@ public class ActionParser extends Parser {
 
   @Override
   public AstNode parse(File file) {
-    AstNode astNode = parser.parse(file);
-    parse(astNode);
-    return rootNode;
+    return parse(parser.parse(file));
+  }
+
+  /**
+   * Parses given content of file, so that file is not read again when its content is already available.
+   */
+  public AstNode parse(File file, char[] content) {
+    ParsingResult result = parseRunner.parse(content);
+    if (!result.isMatched()) {
+      ParseError parseError = result.getParseError();
+      int line = parseError.getInputBuffer().getPosition(parseError.getErrorIndex()).getLine();
+      throw new RecognitionException(line, new ParseErrorFormatter().format(parseError));
+    }
+    return parse(AstCreator.create(result, new LocatedText(file, content)));
   }
 
   @Override
   public AstNode parse(String source) {
-    AstNode astNode = parser.parse(source);
-    parse(astNode);
-    return rootNode;
+    return parse(parser.parse(source));
   }
 
-  private void parse(AstNode astNode) {
+  private AstNode parse(AstNode astNode) {
     rootNode = astNode;
     applyActions(astNode);
 
@@ -170,6 +189,10 @@ public class ActionParser extends Parser {
     if (verifyAssertions) {
       verifyAllReferencesAstNodesFromStronglyTypedTreeAreInFinalAstNode(rootNode);
     }
+    AstNode result = rootNode;
+    // parser is reused for next files, so it should not retain tree of this one
+    rootNode = null;
+    return result;
   }
 
   private void setAstNodeFields(AstNode astNode, @Nullable AstNode parent, int childIndex, Set<AstNode> ancestors) {
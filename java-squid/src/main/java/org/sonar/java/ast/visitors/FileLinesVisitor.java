@@ -19,9 +19,7 @@
  */
 package org.sonar.java.ast.visitors;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.GenericTokenType;
@@ -31,8 +29,6 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.java.SonarComponents;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
 
@@ -42,26 +38,18 @@ import java.util.Set;
 public class FileLinesVisitor extends JavaAstVisitor implements AstAndTokenVisitor {
 
   private final SonarComponents sonarComponents;
-  private final Charset charset;
   private final Set<Integer> linesOfCode = Sets.newHashSet();
   private final Set<Integer> linesOfComments = Sets.newHashSet();
 
-  public FileLinesVisitor(SonarComponents sonarComponents, Charset charset) {
+  public FileLinesVisitor(SonarComponents sonarComponents) {
     this.sonarComponents = sonarComponents;
-    this.charset = charset;
   }
 
   @Override
   public void leaveFile(AstNode astNode) {
     FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(getContext().getFile());
 
-    // TODO minimize access to files, another one in LinesVisitor
-    int fileLength;
-    try {
-      fileLength = Files.readLines(getContext().getFile(), charset).size();
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    int fileLength = getSourceBuffer().getLines().size();
     for (int line = 1; line <= fileLength; line++) {
       fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.contains(line) ? 1 : 0);
       fileLinesContext.setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, line, linesOfComments.contains(line) ? 1 : 0);
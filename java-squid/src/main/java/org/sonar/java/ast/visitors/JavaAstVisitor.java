@@ -19,6 +19,7 @@
  */
 package org.sonar.java.ast.visitors;
 
+import org.sonar.java.ast.SourceBuffer;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.SourceClass;
 import org.sonar.squidbridge.api.SourceCode;
@@ -39,6 +40,14 @@ public abstract class JavaAstVisitor extends SquidAstVisitor<LexerlessGrammar> {
     return sourceCode.getParent(SourceFile.class);
   }
 
+  protected final VisitorContext getVisitorContext() {
+    return (VisitorContext) getContext();
+  }
+
+  protected final SourceBuffer getSourceBuffer() {
+    return getVisitorContext().getSourceBuffer();
+  }
+
   protected final SourcePackage peekParentPackage() {
     SourceCode sourceCode = getContext().peekSourceCode();
     if (sourceCode.isType(SourcePackage.class)) {
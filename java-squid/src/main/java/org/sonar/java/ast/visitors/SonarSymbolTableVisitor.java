@@ -22,6 +22,7 @@ package org.sonar.java.ast.visitors;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.source.Symbol;
 import org.sonar.api.source.Symbolizable;
+import org.sonar.java.AnalysisCache.FileAnalysis;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
@@ -36,18 +37,42 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
+import javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+
 public class SonarSymbolTableVisitor extends BaseTreeVisitor {
 
   private SemanticModel semanticModel;
   private Symbolizable symbolizable;
   private Symbolizable.SymbolTableBuilder symbolTableBuilder;
   private CompilationUnitTree outerClass;
-
+  private final FileAnalysis analysisToCache;
 
   public SonarSymbolTableVisitor(Symbolizable symbolizable, SemanticModel semanticModel) {
+    this(symbolizable, semanticModel, null);
+  }
+
+  /**
+   * @param analysisToCache if not null, symbols are also recorded in it, so that they can be replayed by {@link #replay(Symbolizable, List)}
+   */
+  public SonarSymbolTableVisitor(Symbolizable symbolizable, SemanticModel semanticModel, @Nullable FileAnalysis analysisToCache) {
     this.symbolizable = symbolizable;
     this.semanticModel = semanticModel;
     this.symbolTableBuilder = symbolizable.newSymbolTableBuilder();
+    this.analysisToCache = analysisToCache;
+  }
+
+  public static void replay(Symbolizable symbolizable, List<int[]> symbols) {
+    Symbolizable.SymbolTableBuilder symbolTableBuilder = symbolizable.newSymbolTableBuilder();
+    for (int[] offsets : symbols) {
+      Symbol symbol = symbolTableBuilder.newSymbol(offsets[0], offsets[1]);
+      for (int i = 2; i < offsets.length; i++) {
+        symbolTableBuilder.newReference(symbol, offsets[i]);
+      }
+    }
+    symbolizable.setSymbolTable(symbolTableBuilder.build());
   }
 
   @Override
@@ -107,9 +132,19 @@ public class SonarSymbolTableVisitor extends BaseTreeVisitor {
   }
 
   private void createSymbol(Tree tree, IdentifierTree identifier) {
-    Symbol symbol = symbolTableBuilder.newSymbol(startOffsetFor(identifier), endOffsetFor(identifier));
-    for (IdentifierTree usage : semanticModel.getUsages(semanticModel.getSymbol(tree))) {
-      symbolTableBuilder.newReference(symbol, startOffsetFor(usage));
+    Collection<IdentifierTree> usages = semanticModel.getUsages(semanticModel.getSymbol(tree));
+    int[] offsets = new int[2 + usages.size()];
+    offsets[0] = startOffsetFor(identifier);
+    offsets[1] = endOffsetFor(identifier);
+    Symbol symbol = symbolTableBuilder.newSymbol(offsets[0], offsets[1]);
+    int i = 2;
+    for (IdentifierTree usage : usages) {
+      offsets[i] = startOffsetFor(usage);
+      symbolTableBuilder.newReference(symbol, offsets[i]);
+      i++;
+    }
+    if (analysisToCache != null) {
+      analysisToCache.addSymbol(offsets);
     }
   }
 
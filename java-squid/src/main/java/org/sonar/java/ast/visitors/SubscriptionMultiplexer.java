@@ -0,0 +1,162 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.Lists;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatches a single walk of the tree and a single iteration over tokens to several {@link SubscriptionVisitor}s,
+ * instead of walking the tree once per visitor.
+ * For each visitor the order of calls is the same as when it scans the file on its own.
+ */
+public class SubscriptionMultiplexer implements JavaFileScanner {
+
+  private static final SubscriptionVisitor[] NO_VISITORS = new SubscriptionVisitor[0];
+
+  private final List<SubscriptionVisitor> visitors;
+  private final Map<Tree.Kind, SubscriptionVisitor[]> visitorsByKind = new EnumMap<Tree.Kind, SubscriptionVisitor[]>(Tree.Kind.class);
+  private final SubscriptionVisitor[] tokenVisitors;
+  private final SubscriptionVisitor[] triviaVisitors;
+
+  public SubscriptionMultiplexer(List<SubscriptionVisitor> visitors) {
+    this.visitors = visitors;
+    Map<Tree.Kind, List<SubscriptionVisitor>> subscriptions = new EnumMap<Tree.Kind, List<SubscriptionVisitor>>(Tree.Kind.class);
+    List<SubscriptionVisitor> tokenSubscriptions = Lists.newArrayList();
+    List<SubscriptionVisitor> triviaSubscriptions = Lists.newArrayList();
+    for (SubscriptionVisitor visitor : visitors) {
+      for (Tree.Kind kind : visitor.subscribedKinds()) {
+        List<SubscriptionVisitor> subscribers = subscriptions.get(kind);
+        if (subscribers == null) {
+          subscribers = Lists.newArrayList();
+          subscriptions.put(kind, subscribers);
+        }
+        subscribers.add(visitor);
+      }
+      if (visitor.isSubscribedToTokens()) {
+        tokenSubscriptions.add(visitor);
+      }
+      if (visitor.isSubscribedToTrivia()) {
+        triviaSubscriptions.add(visitor);
+      }
+    }
+    for (Map.Entry<Tree.Kind, List<SubscriptionVisitor>> entry : subscriptions.entrySet()) {
+      visitorsByKind.put(entry.getKey(), entry.getValue().toArray(NO_VISITORS));
+    }
+    this.tokenVisitors = tokenSubscriptions.toArray(NO_VISITORS);
+    this.triviaVisitors = triviaSubscriptions.toArray(NO_VISITORS);
+  }
+
+  /**
+   * Visitors which change the way the tree or the tokens are visited, by overriding one of
+   * {@link SubscriptionVisitor#scanFile}, {@link SubscriptionVisitor#scanTree}, {@link SubscriptionVisitor#visitTokens}
+   * or {@link SubscriptionVisitor#isSubscribed}, have to scan files on their own.
+   */
+  public static boolean canBeMultiplexed(Object visitor) {
+    if (!(visitor instanceof SubscriptionVisitor)) {
+      return false;
+    }
+    for (Class<?> clazz = visitor.getClass(); clazz != SubscriptionVisitor.class; clazz = clazz.getSuperclass()) {
+      if (declares(clazz, "scanFile", JavaFileScannerContext.class)
+        || declares(clazz, "scanTree", Tree.class)
+        || declares(clazz, "visitTokens", CompilationUnitTree.class)
+        || declares(clazz, "isSubscribed", Tree.class)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean declares(Class<?> clazz, String methodName, Class<?> parameterType) {
+    try {
+      clazz.getDeclaredMethod(methodName, parameterType);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  public List<SubscriptionVisitor> getVisitors() {
+    return visitors;
+  }
+
+  @Override
+  public void scanFile(JavaFileScannerContext context) {
+    for (SubscriptionVisitor visitor : visitors) {
+      visitor.context = context;
+    }
+    CompilationUnitTree tree = context.getTree();
+    visit(tree);
+    if (tokenVisitors.length > 0) {
+      visitTokens(tree);
+    }
+  }
+
+  private void visit(Tree tree) {
+    JavaTree javaTree = (JavaTree) tree;
+    SubscriptionVisitor[] subscribers = visitorsByKind.get(javaTree.getKind());
+    if (subscribers != null) {
+      for (SubscriptionVisitor subscriber : subscribers) {
+        subscriber.visitNode(tree);
+      }
+    }
+    if (!javaTree.isLeaf()) {
+      for (Iterator<Tree> iter = javaTree.childrenIterator(); iter.hasNext(); ) {
+        Tree next = iter.next();
+        if (next != null) {
+          visit(next);
+        }
+      }
+    }
+    if (subscribers != null) {
+      for (SubscriptionVisitor subscriber : subscribers) {
+        subscriber.leaveNode(tree);
+      }
+    }
+  }
+
+  private void visitTokens(CompilationUnitTree tree) {
+    for (SyntaxToken syntaxToken : ((JavaTree.CompilationUnitTreeImpl) tree).tokens()) {
+      for (SubscriptionVisitor visitor : tokenVisitors) {
+        visitor.visitToken(syntaxToken);
+      }
+      if (triviaVisitors.length > 0) {
+        List<SyntaxTrivia> trivias = syntaxToken.trivias();
+        for (SubscriptionVisitor visitor : triviaVisitors) {
+          for (SyntaxTrivia syntaxTrivia : trivias) {
+            visitor.visitTrivia(syntaxTrivia);
+          }
+        }
+      }
+    }
+  }
+
+}
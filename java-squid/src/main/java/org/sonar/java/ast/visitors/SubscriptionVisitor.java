@@ -19,8 +19,6 @@
  */
 package org.sonar.java.ast.visitors;
 
-import com.sonar.sslr.api.Token;
-import org.sonar.java.model.InternalSyntaxToken;
 import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -30,7 +28,7 @@ import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.api.CodeVisitor;
 
-import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -38,7 +36,13 @@ public abstract class SubscriptionVisitor implements JavaFileScanner, CodeVisito
 
 
   protected JavaFileScannerContext context;
-  private Collection<Tree.Kind> nodesToVisit;
+
+  /**
+   * Subscriptions compiled from {@link #nodesToVisit()} on first scan, because this method is expected to return the same kinds for whole life of visitor.
+   */
+  private EnumSet<Tree.Kind> nodesToVisit;
+  private boolean visitTokens;
+  private boolean visitTrivia;
 
   public abstract List<Tree.Kind> nodesToVisit();
 
@@ -66,17 +70,36 @@ public abstract class SubscriptionVisitor implements JavaFileScanner, CodeVisito
   }
 
   protected void scanTree(Tree tree) {
-    nodesToVisit = nodesToVisit();
+    subscribedKinds();
     visit(tree);
   }
 
+  EnumSet<Tree.Kind> subscribedKinds() {
+    if (nodesToVisit == null) {
+      EnumSet<Tree.Kind> kinds = EnumSet.noneOf(Tree.Kind.class);
+      kinds.addAll(nodesToVisit());
+      visitTrivia = kinds.contains(Tree.Kind.TRIVIA);
+      visitTokens = visitTrivia || kinds.contains(Tree.Kind.TOKEN);
+      nodesToVisit = kinds;
+    }
+    return nodesToVisit;
+  }
+
+  boolean isSubscribedToTokens() {
+    subscribedKinds();
+    return visitTokens;
+  }
+
+  boolean isSubscribedToTrivia() {
+    subscribedKinds();
+    return visitTrivia;
+  }
+
   protected void visitTokens(CompilationUnitTree compilationUnitTree) {
-    if (nodesToVisit().contains(Tree.Kind.TOKEN) || nodesToVisit().contains(Tree.Kind.TRIVIA)) {
-      //FIXME relying on ASTNode to iterate over tokens.
-      for (Token token : ((JavaTree) compilationUnitTree).getAstNode().getTokens()) {
-        SyntaxToken syntaxToken = new InternalSyntaxToken(token);
+    if (isSubscribedToTokens()) {
+      for (SyntaxToken syntaxToken : ((JavaTree.CompilationUnitTreeImpl) compilationUnitTree).tokens()) {
         visitToken(syntaxToken);
-        if (nodesToVisit().contains(Tree.Kind.TRIVIA)) {
+        if (visitTrivia) {
           for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
             visitTrivia(syntaxTrivia);
           }
@@ -21,6 +21,8 @@ package org.sonar.java.ast.visitors;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Token;
+import org.sonar.java.AnalysisCache.FileAnalysis;
+import org.sonar.java.ast.SourceBuffer;
 import org.sonar.squidbridge.CommentAnalyser;
 import org.sonar.squidbridge.SquidAstVisitorContext;
 import org.sonar.squidbridge.api.CheckMessage;
@@ -30,6 +32,8 @@ import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.squidbridge.api.SourceProject;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.util.Stack;
 
@@ -41,6 +45,9 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   private final Stack<SourceCode> sourceCodeStack = new Stack<SourceCode>();
   private final SourceProject project;
   private File file;
+  private SourceBuffer sourceBuffer;
+  private FileAnalysis cachedAnalysis;
+  private FileAnalysis analysisToCache;
   private CommentAnalyser commentAnalyser;
 
   public VisitorContext(SourceProject project) {
@@ -83,6 +90,44 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   public void setFile(File file) {
     popTillSourceProject();
     this.file = file;
+    this.sourceBuffer = null;
+    this.cachedAnalysis = null;
+    this.analysisToCache = null;
+  }
+
+  public void setSourceBuffer(SourceBuffer sourceBuffer) {
+    this.sourceBuffer = sourceBuffer;
+  }
+
+  /**
+   * Content of current file, read once and shared between visitors.
+   */
+  public SourceBuffer getSourceBuffer() {
+    return sourceBuffer;
+  }
+
+  public void setCachedAnalysis(@Nullable FileAnalysis cachedAnalysis) {
+    this.cachedAnalysis = cachedAnalysis;
+  }
+
+  /**
+   * Results of previous analysis of current file, which should be replayed instead of analyzing file again.
+   */
+  @Nullable
+  public FileAnalysis getCachedAnalysis() {
+    return cachedAnalysis;
+  }
+
+  public void setAnalysisToCache(@Nullable FileAnalysis analysisToCache) {
+    this.analysisToCache = analysisToCache;
+  }
+
+  /**
+   * Results of analysis of current file, to be filled by visitors and stored for next analysis.
+   */
+  @Nullable
+  public FileAnalysis getAnalysisToCache() {
+    return analysisToCache;
   }
 
   private void popTillSourceProject() {
@@ -19,6 +19,7 @@
  */
 package org.sonar.java.bytecode;
 
+import com.google.common.collect.Lists;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
@@ -37,21 +38,30 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
   private final SquidIndex indexer;
+  private final int threads;
 
   public BytecodeScanner(SquidIndex indexer) {
+    this(indexer, 1);
+  }
+
+  /**
+   * @param threads amount of threads used to parse class files
+   */
+  public BytecodeScanner(SquidIndex indexer, int threads) {
     this.indexer = indexer;
+    this.threads = threads;
   }
 
   public BytecodeScanner scan(Collection<File> bytecodeFilesOrDirectories) {
-    ClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
+    SquidClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
     Collection<SourceCode> classes = indexer.search(new QueryByType(SourceClass.class));
-    scanClasses(classes, new AsmClassProviderImpl(classLoader));
-    // TODO unchecked cast
-    ((SquidClassLoader) classLoader).close();
+    scanClasses(classes, new AsmClassProviderImpl(classLoader, threads));
+    classLoader.close();
     return this;
   }
 
@@ -86,9 +96,11 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
   }
 
   private void loadByteCodeInformation(Collection<SourceCode> classes, AsmClassProvider classProvider) {
+    List<String> internalNames = Lists.newArrayListWithCapacity(classes.size());
     for (SourceCode sourceCode : classes) {
-      classProvider.getClass(sourceCode.getKey(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      internalNames.add(sourceCode.getKey());
     }
+    classProvider.loadClasses(internalNames, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
   }
 
   @Override
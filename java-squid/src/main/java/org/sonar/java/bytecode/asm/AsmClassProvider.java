@@ -19,6 +19,8 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import java.util.Collection;
+
 public abstract class AsmClassProvider {
 
   public enum DETAIL_LEVEL {
@@ -52,4 +54,13 @@ public abstract class AsmClassProvider {
     return getClass(internalName, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
   }
 
+  /**
+   * Loads given classes with given level of details, in order of given collection.
+   */
+  public void loadClasses(Collection<String> internalNames, DETAIL_LEVEL level) {
+    for (String internalName : internalNames) {
+      getClass(internalName, level);
+    }
+  }
+
 }
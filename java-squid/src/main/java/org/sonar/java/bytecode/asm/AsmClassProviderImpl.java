@@ -19,15 +19,27 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class AsmClassProviderImpl extends AsmClassProvider {
 
@@ -35,13 +47,23 @@ public class AsmClassProviderImpl extends AsmClassProvider {
 
   private final ClassLoader classLoader;
   private final Map<String, AsmClass> asmClassCache = new HashMap<String, AsmClass>();
+  private final Map<String, ClassNode> parsedAhead = new HashMap<String, ClassNode>();
+  private final int threads;
 
   public AsmClassProviderImpl() {
-    this.classLoader = Thread.currentThread().getContextClassLoader();
+    this(Thread.currentThread().getContextClassLoader());
   }
 
   public AsmClassProviderImpl(ClassLoader classLoader) {
+    this(classLoader, 1);
+  }
+
+  /**
+   * @param threads amount of threads used by {@link #loadClasses(Collection, DETAIL_LEVEL)} to parse class files
+   */
+  public AsmClassProviderImpl(ClassLoader classLoader, int threads) {
     this.classLoader = classLoader;
+    this.threads = threads;
   }
 
   @Override
@@ -57,6 +79,72 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     return asmClass;
   }
 
+  /**
+   * Class files are parsed ahead on a pool of threads, while classes are still loaded one after another from parsed class files,
+   * because loading of a class updates classes it refers to. Amount of class files parsed ahead is bounded, so that memory consumption
+   * does not depend on amount of classes.
+   */
+  @Override
+  public void loadClasses(Collection<String> internalNames, DETAIL_LEVEL level) {
+    if (threads <= 1) {
+      super.loadClasses(internalNames, level);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("java-bytecode-%d").setDaemon(true).build());
+    try {
+      Iterator<String> toParse = internalNames.iterator();
+      Deque<Future<ClassNode>> parsed = new ArrayDeque<Future<ClassNode>>();
+      int maxParsedAhead = 4 * threads;
+      for (String internalName : internalNames) {
+        while (parsed.size() < maxParsedAhead && toParse.hasNext()) {
+          final String nameToParse = toParse.next();
+          parsed.add(executor.submit(new Callable<ClassNode>() {
+            @Override
+            public ClassNode call() {
+              return parse(nameToParse);
+            }
+          }));
+        }
+        ClassNode classNode = next(parsed);
+        if (classNode != null) {
+          parsedAhead.put(internalName, classNode);
+        }
+        getClass(internalName, level);
+        parsedAhead.remove(internalName);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ClassNode next(Deque<Future<ClassNode>> parsed) {
+    try {
+      return parsed.remove().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for parsing of bytecode", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Returns null if class file can not be parsed, so that its failure is reported when class is loaded.
+   */
+  private ClassNode parse(String internalName) {
+    InputStream input = null;
+    try {
+      input = classLoader.getResourceAsStream(internalName + ".class");
+      ClassNode classNode = new ClassNode();
+      new ClassReader(input).accept(classNode, 0);
+      return classNode;
+    } catch (Exception e) {
+      return null;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
   private AsmClass getAsmClassFromCacheOrCreateIt(String internalName) {
     AsmClass asmClass = asmClassCache.get(internalName);
     if (asmClass == null) {
@@ -71,9 +159,14 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     try {
 
       AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
-      input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
-      ClassReader asmReader = new ClassReader(input);
-      asmReader.accept(classVisitor, 0);
+      ClassNode classNode = parsedAhead.remove(asmClass.getInternalName());
+      if (classNode != null) {
+        classNode.accept(classVisitor);
+      } else {
+        input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
+        ClassReader asmReader = new ClassReader(input);
+        asmReader.accept(classVisitor, 0);
+      }
     } catch (IOException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
     } catch (SecurityException e) {
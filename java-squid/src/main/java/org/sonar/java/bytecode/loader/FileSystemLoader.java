@@ -27,6 +27,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
 
 class FileSystemLoader implements Loader {
 
@@ -54,6 +56,14 @@ class FileSystemLoader implements Loader {
     return null;
   }
 
+  public boolean hasResource(String name) {
+    if (baseDir == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    File file = new File(baseDir, name);
+    return file.exists() && file.isFile();
+  }
+
   public byte[] loadBytes(String name) {
     if (baseDir == null) {
       throw new IllegalStateException("Loader closed");
@@ -73,6 +83,27 @@ class FileSystemLoader implements Loader {
     }
   }
 
+  public Set<String> packages() {
+    if (baseDir == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    Set<String> result = new HashSet<String>();
+    collectPackages(baseDir, "", result);
+    return result;
+  }
+
+  private static void collectPackages(File dir, String name, Set<String> result) {
+    result.add(name);
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.isDirectory()) {
+          collectPackages(file, name.isEmpty() ? file.getName() : (name + "/" + file.getName()), result);
+        }
+      }
+    }
+  }
+
   public void close() {
     baseDir = null;
   }
@@ -28,11 +28,15 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
 class JarLoader implements Loader {
 
+  private final File file;
   private final JarFile jarFile;
   private final URL jarUrl;
 
@@ -43,6 +47,7 @@ class JarLoader implements Loader {
     if (file == null) {
       throw new IllegalArgumentException("file can't be null");
     }
+    this.file = file;
     try {
       jarFile = new JarFile(file);
       jarUrl = new URL("jar", "", -1, file.getAbsolutePath() + "!/");
@@ -51,6 +56,10 @@ class JarLoader implements Loader {
     }
   }
 
+  File getFile() {
+    return file;
+  }
+
   public URL findResource(String name) {
     ZipEntry entry = jarFile.getEntry(name);
     if (entry != null) {
@@ -63,6 +72,10 @@ class JarLoader implements Loader {
     return null;
   }
 
+  public boolean hasResource(String name) {
+    return jarFile.getEntry(name) != null;
+  }
+
   public byte[] loadBytes(String name) {
     InputStream is = null;
     try {
@@ -81,6 +94,15 @@ class JarLoader implements Loader {
     }
   }
 
+  public Set<String> packages() {
+    Set<String> result = new HashSet<String>();
+    Enumeration<? extends ZipEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      result.add(SquidClassLoader.packageOf(entries.nextElement().getName()));
+    }
+    return result;
+  }
+
   public void close() {
     try {
       jarFile.close();
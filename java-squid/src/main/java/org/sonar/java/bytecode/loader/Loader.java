@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.loader;
 
 import java.net.URL;
+import java.util.Set;
 
 /**
  * Specifies resource loading behavior.
@@ -36,6 +37,15 @@ interface Loader {
    */
   URL findResource(String name);
 
+  /**
+   * Checks existence of the resource with the given name.
+   *
+   * @param name resource name
+   * @return <tt>true</tt> if the resource exists, same as {@link #findResource(String)} <tt>!= null</tt>, but without creation of <tt>URL</tt>
+   * @throws IllegalStateException if loader has been closed
+   */
+  boolean hasResource(String name);
+
   /**
    * Loads bytes of the resource with the given name.
    *
@@ -46,6 +56,14 @@ interface Loader {
    */
   byte[] loadBytes(String name);
 
+  /**
+   * Returns names of directories, which contain resources of this loader.
+   *
+   * @return names separated by <tt>/</tt> and without trailing <tt>/</tt>, root directory being an empty string
+   * @throws IllegalStateException if loader has been closed
+   */
+  Set<String> packages();
+
   /**
    * Closes this loader, so that it can no longer be used to load new resources.
    * If loader is already closed, then invoking this method has no effect.
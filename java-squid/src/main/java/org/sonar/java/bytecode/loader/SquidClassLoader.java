@@ -19,11 +19,20 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.ListMultimap;
 
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -31,10 +40,20 @@ import java.util.List;
 
 /**
  * Class loader, which is able to load classes from a list of JAR files and directories.
+ * <p/>
+ * Directories of all JAR files and directories are indexed on first lookup, so that a lookup of resource asks only loaders,
+ * which contain directory of this resource, instead of all loaders, and so that a class loader, which is not used, does not list them.
  */
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
+  /**
+   * Has no parent and so serves only resources of JDK, as parent of this class loader.
+   */
+  private static final ClassLoader BOOTSTRAP_CLASS_LOADER = new ClassLoader(null) {
+  };
+
   private final List<Loader> loaders;
+  private volatile ListMultimap<String, Loader> loadersByPackage;
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
@@ -53,22 +72,57 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
     }
   }
 
+  /**
+   * Built once, by the first lookup, even if several threads look up resources.
+   */
+  private ListMultimap<String, Loader> loadersByPackage() {
+    ListMultimap<String, Loader> result = loadersByPackage;
+    if (result == null) {
+      synchronized (loaders) {
+        result = loadersByPackage;
+        if (result == null) {
+          result = ArrayListMultimap.create();
+          for (Loader loader : loaders) {
+            for (String packageName : loader.packages()) {
+              result.put(packageName, loader);
+            }
+          }
+          loadersByPackage = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @VisibleForTesting
+  boolean isIndexed() {
+    return loadersByPackage != null;
+  }
+
+  static String packageOf(String resourceName) {
+    int end = resourceName.endsWith("/") ? resourceName.length() - 1 : resourceName.length();
+    int lastSlash = resourceName.lastIndexOf('/', end - 1);
+    return lastSlash < 0 ? "" : resourceName.substring(0, lastSlash);
+  }
+
+  private List<Loader> loadersFor(String resourceName) {
+    return loadersByPackage().get(packageOf(resourceName));
+  }
+
   @Override
   protected Class findClass(String name) throws ClassNotFoundException {
     String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
-      byte[] classBytes = loader.loadBytes(resourceName);
-      if (classBytes != null) {
-        // TODO Godin: definePackage ?
-        return defineClass(name, classBytes, 0, classBytes.length);
-      }
+    byte[] classBytes = findResourceBytes(resourceName);
+    if (classBytes != null) {
+      // TODO Godin: definePackage ?
+      return defineClass(name, classBytes, 0, classBytes.length);
     }
     throw new ClassNotFoundException(name);
   }
 
   @Override
   public URL findResource(String name) {
-    for (Loader loader : loaders) {
+    for (Loader loader : loadersFor(name)) {
       URL url = loader.findResource(name);
       if (url != null) {
         return url;
@@ -80,7 +134,7 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
     List<URL> result = new ArrayList<URL>();
-    for (Loader loader : loaders) {
+    for (Loader loader : loadersFor(name)) {
       URL url = loader.findResource(name);
       if (url != null) {
         result.add(url);
@@ -89,6 +143,103 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
     return Iterators.asEnumeration(result.iterator());
   }
 
+  private byte[] findResourceBytes(String name) {
+    for (Loader loader : loadersFor(name)) {
+      byte[] bytes = loader.loadBytes(name);
+      if (bytes != null) {
+        return bytes;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether package of given resource exists in files of this class loader, i.e. without taking into account JDK.
+   * Unlike lookup of resource, this requires neither access to file system, nor to JAR files.
+   */
+  public boolean hasPackageOf(String name) {
+    return !loadersFor(name).isEmpty();
+  }
+
+  /**
+   * Same as {@link #getResource(String)} {@code != null}, but without creation of URL for resources of JAR files and directories.
+   */
+  public boolean hasResource(String name) {
+    return BOOTSTRAP_CLASS_LOADER.getResource(name) != null || hasOwnResource(name);
+  }
+
+  /**
+   * Same as {@link #hasResource(String)}, but only for JAR files and directories of this class loader, i.e. without taking into account JDK.
+   */
+  public boolean hasOwnResource(String name) {
+    for (Loader loader : loadersFor(name)) {
+      if (loader.hasResource(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same as JAR file of {@link #getResource(String)}, but without creation of URL for resources of JAR files and directories.
+   *
+   * @return JAR file, which contains given resource, or null if resource does not exist or is not in a JAR file
+   */
+  @Nullable
+  public File jarOf(String name) {
+    URL url = BOOTSTRAP_CLASS_LOADER.getResource(name);
+    if (url != null) {
+      return jarOf(url);
+    }
+    for (Loader loader : loadersFor(name)) {
+      if (loader.hasResource(name)) {
+        return loader instanceof JarLoader ? ((JarLoader) loader).getFile() : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return JAR file of given resource, or null if resource is not in a JAR file
+   */
+  @Nullable
+  static File jarOf(URL resource) {
+    if (!"jar".equals(resource.getProtocol())) {
+      return null;
+    }
+    String path = resource.getPath();
+    int separator = path.indexOf("!/");
+    if (separator < 0) {
+      return null;
+    }
+    String jarPath = path.substring(0, separator);
+    if (!jarPath.startsWith("file:")) {
+      // created by JarLoader
+      return new File(jarPath);
+    }
+    try {
+      return new File(new URI(jarPath));
+    } catch (URISyntaxException e) {
+      return null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Same as {@link ClassLoader#getResourceAsStream(String)}, but reads resources of JAR files and directories directly,
+   * without creation of URL.
+   */
+  @Override
+  public InputStream getResourceAsStream(String name) {
+    InputStream inputStream = BOOTSTRAP_CLASS_LOADER.getResourceAsStream(name);
+    if (inputStream != null) {
+      return inputStream;
+    }
+    byte[] bytes = findResourceBytes(name);
+    return bytes == null ? null : new ByteArrayInputStream(bytes);
+  }
+
   /**
    * Closes this class loader, so that it can no longer be used to load new classes or resources.
    * Any classes or resources that are already loaded, are still accessible.
@@ -31,6 +31,7 @@ import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TreeVisitor;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -70,7 +71,10 @@ public class InternalSyntaxToken extends JavaTree implements SyntaxToken {
     return trivias;
   }
 
-  private List<SyntaxTrivia> createTrivias(Token token) {
+  private static List<SyntaxTrivia> createTrivias(Token token) {
+    if (!token.hasTrivia()) {
+      return Collections.emptyList();
+    }
     List<SyntaxTrivia> result = Lists.newArrayList();
     for (Trivia trivia : token.getTrivia()) {
       result.add(InternalSyntaxTrivia.create(trivia.getToken().getValue(), trivia.getToken().getLine()));
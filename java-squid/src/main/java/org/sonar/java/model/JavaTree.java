@@ -20,6 +20,7 @@
 package org.sonar.java.model;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
@@ -58,6 +59,8 @@ public abstract class JavaTree extends AstNode implements Tree {
   };
 
   private final AstNode astNode;
+  private JavaTree parent;
+  private int id = -1;
 
   public JavaTree(AstNodeType type) {
     super(type, type.toString(), null);
@@ -149,12 +152,45 @@ public abstract class JavaTree extends AstNode implements Tree {
     return false;
   }
 
+  /**
+   * Parent of this node in tree of compilation unit created by {@link JavaTreeMaker}, which is not the same as {@link #getParent()} in AST.
+   */
+  @Nullable
+  public JavaTree parent() {
+    return parent;
+  }
+
+  /**
+   * Index of this node among the nodes of its compilation unit, given by {@link CompilationUnitTreeImpl#identify(JavaTree)}, or -1 when none was given.
+   * Identifies a node only within its compilation unit.
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * Makes this node the parent of its children, so must be called by nodes once all their children are attached.
+   */
+  protected void adoptChildren() {
+    if (isLeaf()) {
+      return;
+    }
+    for (Iterator<Tree> iter = childrenIterator(); iter.hasNext(); ) {
+      JavaTree child = (JavaTree) iter.next();
+      if (child != null) {
+        child.parent = this;
+      }
+    }
+  }
+
   public static class CompilationUnitTreeImpl extends JavaTree implements CompilationUnitTree {
     @Nullable
     private final ExpressionTree packageName;
     private final List<ImportTree> imports;
     private final List<Tree> types;
     private final List<AnnotationTree> packageAnnotations;
+    private List<SyntaxToken> tokens;
+    private int nodesWithId;
 
     public CompilationUnitTreeImpl(AstNode astNode, @Nullable ExpressionTree packageName, List<ImportTree> imports, List<Tree> types, List<AnnotationTree> packageAnnotations) {
       super(astNode);
@@ -162,6 +198,7 @@ public abstract class JavaTree extends AstNode implements Tree {
       this.imports = Preconditions.checkNotNull(imports);
       this.types = Preconditions.checkNotNull(types);
       this.packageAnnotations = Preconditions.checkNotNull(packageAnnotations);
+      adoptChildren();
     }
 
     @Override
@@ -169,6 +206,18 @@ public abstract class JavaTree extends AstNode implements Tree {
       return Kind.COMPILATION_UNIT;
     }
 
+    /**
+     * Gives an id to given node of this compilation unit, unless it already has one.
+     * Ids are given in sequence, so that they are unique within this compilation unit and can index arrays.
+     */
+    public int identify(JavaTree tree) {
+      if (tree.id < 0) {
+        tree.id = nodesWithId;
+        nodesWithId++;
+      }
+      return tree.id;
+    }
+
     @Override
     public List<AnnotationTree> packageAnnotations() {
       return packageAnnotations;
@@ -195,6 +244,22 @@ public abstract class JavaTree extends AstNode implements Tree {
       visitor.visitCompilationUnit(this);
     }
 
+    /**
+     * Tokens of the file with their trivia, in order of appearance and including EOF.
+     * They are extracted from the underlying AstNode only once per file, and then shared by all visitors of tokens.
+     */
+    public List<SyntaxToken> tokens() {
+      if (tokens == null) {
+        List<Token> astTokens = getAstNode().getTokens();
+        SyntaxToken[] result = new SyntaxToken[astTokens.size()];
+        for (int i = 0; i < result.length; i++) {
+          result[i] = new InternalSyntaxToken(astTokens.get(i));
+        }
+        tokens = ImmutableList.copyOf(result);
+      }
+      return tokens;
+    }
+
     @Override
     public Iterator<Tree> childrenIterator() {
       return Iterators.concat(
@@ -214,6 +279,7 @@ public abstract class JavaTree extends AstNode implements Tree {
       super(astNode);
       isStatic = aStatic;
       this.qualifiedIdentifier = qualifiedIdentifier;
+      adoptChildren();
     }
 
     @Override
@@ -259,6 +325,7 @@ public abstract class JavaTree extends AstNode implements Tree {
       this.bound = null;
 
       addChild(queryToken);
+      adoptChildren();
     }
 
     public WildcardTreeImpl(Kind kind, InternalSyntaxToken extendsOrSuperToken, List<AstNode> annotations, ExpressionTree bound) {
@@ -274,12 +341,14 @@ public abstract class JavaTree extends AstNode implements Tree {
         addChild(annotation);
       }
       addChild((AstNode) bound);
+      adoptChildren();
     }
 
     public WildcardTreeImpl complete(InternalSyntaxToken queryToken) {
       Preconditions.checkState(kind == Kind.EXTENDS_WILDCARD || kind == Kind.SUPER_WILDCARD);
       prependChildren(queryToken);
 
+      adoptChildren();
       return this;
     }
 
@@ -287,6 +356,7 @@ public abstract class JavaTree extends AstNode implements Tree {
       super(astNode);
       this.kind = Preconditions.checkNotNull(kind);
       this.bound = bound;
+      adoptChildren();
     }
 
     @Override
@@ -319,6 +389,7 @@ public abstract class JavaTree extends AstNode implements Tree {
     public UnionTypeTreeImpl(AstNode astNode, List<Tree> typeAlternatives) {
       super(astNode);
       this.typeAlternatives = Preconditions.checkNotNull(typeAlternatives);
+      adoptChildren();
     }
 
     @Override
@@ -462,12 +533,14 @@ public abstract class JavaTree extends AstNode implements Tree {
 
       addChild((AstNode) type);
       addChild(typeArguments);
+      adoptChildren();
     }
 
     public ParameterizedTypeTreeImpl(AstNode child, ExpressionTree type, List<Tree> typeArguments) {
       super(child);
       this.type = Preconditions.checkNotNull(type);
       this.typeArguments = Preconditions.checkNotNull(typeArguments);
+      adoptChildren();
     }
 
     @Override
@@ -509,11 +582,13 @@ public abstract class JavaTree extends AstNode implements Tree {
       for (AstNode child : children) {
         addChild(child);
       }
+      adoptChildren();
     }
 
     public ArrayTypeTreeImpl(AstNode astNode, Tree type) {
       super(astNode);
       this.type = Preconditions.checkNotNull(type);
+      adoptChildren();
     }
 
     @Override
@@ -43,6 +43,7 @@ public class TypeParameterTreeImpl extends JavaTree implements TypeParameterTree
     this.bounds = Collections.emptyList();
 
     addChild(identifier);
+    adoptChildren();
   }
 
   public TypeParameterTreeImpl(InternalSyntaxToken extendsToken, BoundListTreeImpl bounds) {
@@ -52,6 +53,7 @@ public class TypeParameterTreeImpl extends JavaTree implements TypeParameterTree
 
     addChild(extendsToken);
     addChild(bounds);
+    adoptChildren();
   }
 
   public TypeParameterTreeImpl complete(IdentifierTreeImpl identifier) {
@@ -60,6 +62,7 @@ public class TypeParameterTreeImpl extends JavaTree implements TypeParameterTree
 
     prependChildren(identifier);
 
+    adoptChildren();
     return this;
   }
 
@@ -27,11 +27,22 @@ import com.sonar.sslr.api.AstNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.java.AnalysisCache;
+import org.sonar.java.AnalysisCache.FileAnalysis;
+import org.sonar.java.CacheAwareVisitor;
 import org.sonar.java.CharsetAwareVisitor;
 import org.sonar.java.SonarComponents;
+import org.sonar.java.SourceAwareScannerContext;
+import org.sonar.java.ast.SourceBuffer;
 import org.sonar.java.ast.visitors.ComplexityVisitor;
 import org.sonar.java.ast.visitors.JavaAstVisitor;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
+import org.sonar.java.ast.visitors.SubscriptionMultiplexer;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.BytecodeCompleter;
+import org.sonar.java.resolve.BytecodeIndex;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -58,7 +69,12 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
 
   private SemanticModel semanticModel;
   private final SonarComponents sonarComponents;
+  private BytecodeCompleter librariesCompleter;
+  private SquidClassLoader projectClassLoader;
   private boolean analyseAccessors;
+  private File bytecodeIndexDir;
+  private long resolvedMethodsHits;
+  private long resolvedMethodsMisses;
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -66,13 +82,26 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
   }
 
   public VisitorsBridge(Iterable visitors, @Nullable SonarComponents sonarComponents) {
-    ImmutableList.Builder<JavaFileScanner> scannersBuilder = ImmutableList.builder();
+    List<JavaFileScanner> scannersList = Lists.newArrayList();
+    List<SubscriptionVisitor> multiplexedVisitors = Lists.newArrayList();
+    int multiplexerIndex = -1;
     for (Object visitor : visitors) {
-      if (visitor instanceof JavaFileScanner) {
-        scannersBuilder.add((JavaFileScanner) visitor);
+      if (SubscriptionMultiplexer.canBeMultiplexed(visitor)) {
+        if (multiplexedVisitors.isEmpty()) {
+          multiplexerIndex = scannersList.size();
+        }
+        multiplexedVisitors.add((SubscriptionVisitor) visitor);
+      } else if (visitor instanceof JavaFileScanner) {
+        scannersList.add((JavaFileScanner) visitor);
       }
     }
-    this.scanners = scannersBuilder.build();
+    // multiplexer takes place of first multiplexed visitor, so that order of scanners is kept as much as possible
+    if (multiplexedVisitors.size() > 1) {
+      scannersList.add(multiplexerIndex, new SubscriptionMultiplexer(multiplexedVisitors));
+    } else if (multiplexedVisitors.size() == 1) {
+      scannersList.add(multiplexerIndex, multiplexedVisitors.get(0));
+    }
+    this.scanners = ImmutableList.copyOf(scannersList);
     this.sonarComponents = sonarComponents;
   }
 
@@ -80,11 +109,21 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
     this.analyseAccessors = analyseAccessors;
   }
 
+  public void setBytecodeIndexDir(@Nullable File bytecodeIndexDir) {
+    this.bytecodeIndexDir = bytecodeIndexDir;
+  }
+
   @Override
   public void setCharset(Charset charset) {
     for (JavaFileScanner scanner : scanners) {
       if(scanner instanceof CharsetAwareVisitor) {
         ((CharsetAwareVisitor) scanner).setCharset(charset);
+      } else if (scanner instanceof SubscriptionMultiplexer) {
+        for (SubscriptionVisitor visitor : ((SubscriptionMultiplexer) scanner).getVisitors()) {
+          if (visitor instanceof CharsetAwareVisitor) {
+            ((CharsetAwareVisitor) visitor).setCharset(charset);
+          }
+        }
       }
     }
   }
@@ -93,22 +132,59 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
   public void visitFile(@Nullable AstNode astNode) {
     semanticModel = null;
     if (astNode != null) {
+      FileAnalysis cachedAnalysis = getVisitorContext().getCachedAnalysis();
+      if (cachedAnalysis != null) {
+        replay(cachedAnalysis);
+        return;
+      }
+      FileAnalysis analysisToCache = getVisitorContext().getAnalysisToCache();
       CompilationUnitTree tree = treeMaker.compilationUnit(astNode);
       if (isNotJavaLangOrSerializable()) {
         try {
-          semanticModel = SemanticModel.createFor(tree, getProjectClasspath());
+          semanticModel = SemanticModel.createFor(tree, getLibrariesCompleter(), getProjectClassLoader());
         } catch (Exception e) {
           LOG.error("Unable to create symbol table for : " + getContext().getFile().getName(), e);
+          getVisitorContext().setAnalysisToCache(null);
           return;
         }
-        createSonarSymbolTable(tree);
+        resolvedMethodsHits += semanticModel.getResolvedMethodsHits();
+        resolvedMethodsMisses += semanticModel.getResolvedMethodsMisses();
+        if (analysisToCache != null) {
+          for (String classFile : semanticModel.getProjectClassFiles()) {
+            analysisToCache.addClassFile(classFile);
+          }
+        }
+        createSonarSymbolTable(tree, analysisToCache);
       } else {
         SemanticModel.handleMissingTypes(tree);
       }
-      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, peekSourceFile(), getContext().getFile(), semanticModel, analyseAccessors);
+      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, peekSourceFile(), getSourceBuffer(), semanticModel, analyseAccessors, analysisToCache);
       for (JavaFileScanner scanner : scanners) {
+        if (scanner instanceof CacheAwareVisitor) {
+          ((CacheAwareVisitor) scanner).recordInto(analysisToCache);
+        }
         scanner.scanFile(context);
       }
+      // semantic model is not used after visit of file, and is the biggest structure created for it
+      semanticModel = null;
+    }
+  }
+
+  /**
+   * Replays results of previous analysis of a file which did not change, instead of analyzing it.
+   */
+  private void replay(FileAnalysis analysis) {
+    SourceFile sourceFile = peekSourceFile();
+    for (AnalysisCache.Issue issue : analysis.getIssues()) {
+      sourceFile.log(DefaultJavaFileScannerContext.checkMessage(issue.getLine(), RuleKey.parse(issue.getRuleKey()), issue.getMessage()));
+    }
+    if (sonarComponents != null) {
+      SonarSymbolTableVisitor.replay(sonarComponents.symbolizableFor(getContext().getFile()), analysis.getSymbols());
+    }
+    for (JavaFileScanner scanner : scanners) {
+      if (scanner instanceof CacheAwareVisitor) {
+        ((CacheAwareVisitor) scanner).replay(getContext().getFile(), analysis);
+      }
     }
   }
 
@@ -121,32 +197,73 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
     return !(isJavaLang || isJavaLangAnnotation || isSerializable);
   }
 
-  private List<File> getProjectClasspath() {
-    List<File> projectClasspath = Lists.newArrayList();
-    if (sonarComponents != null) {
-      projectClasspath = sonarComponents.getJavaClasspath();
+  @Override
+  public void destroy() {
+    LOG.debug("Method resolutions: " + resolvedMethodsHits + " cached, " + resolvedMethodsMisses + " looked up");
+    if (librariesCompleter != null) {
+      LOG.debug("Bytecode symbols shared between files: " + librariesCompleter.getHits() + " hits, " + librariesCompleter.getMisses() + " misses");
+      librariesCompleter.done();
+      librariesCompleter = null;
+    }
+    if (projectClassLoader != null) {
+      projectClassLoader.close();
+      projectClassLoader = null;
     }
-    return projectClasspath;
   }
 
-  private void createSonarSymbolTable(CompilationUnitTree tree) {
+  /**
+   * Symbols from JDK and libraries do not depend on sources, so they are completed once and shared between all files of a project.
+   */
+  private BytecodeCompleter getLibrariesCompleter() {
+    if (librariesCompleter == null) {
+      List<File> libraries = Lists.newArrayList();
+      if (sonarComponents != null) {
+        libraries = sonarComponents.getJavaLibraries();
+      }
+      librariesCompleter = SemanticModel.createLibrariesCompleter(libraries);
+      if (bytecodeIndexDir != null) {
+        librariesCompleter.setIndex(new BytecodeIndex(bytecodeIndexDir));
+      }
+    }
+    return librariesCompleter;
+  }
+
+  /**
+   * Class files of project are read through a single class loader for all files, while their symbols are created for each file.
+   */
+  @VisibleForTesting
+  SquidClassLoader getProjectClassLoader() {
+    if (projectClassLoader == null) {
+      List<File> projectBinaries = Lists.newArrayList();
+      if (sonarComponents != null) {
+        projectBinaries = sonarComponents.getJavaBinaryDirs();
+      }
+      projectClassLoader = ClassLoaderBuilder.create(projectBinaries);
+    }
+    return projectClassLoader;
+  }
+
+  private void createSonarSymbolTable(CompilationUnitTree tree, @Nullable FileAnalysis analysisToCache) {
     if (sonarComponents != null) {
-      SonarSymbolTableVisitor symVisitor = new SonarSymbolTableVisitor(sonarComponents.symbolizableFor(getContext().getFile()), semanticModel);
+      SonarSymbolTableVisitor symVisitor = new SonarSymbolTableVisitor(sonarComponents.symbolizableFor(getContext().getFile()), semanticModel, analysisToCache);
       symVisitor.visitCompilationUnit(tree);
     }
   }
 
-  private static class DefaultJavaFileScannerContext implements JavaFileScannerContext {
+  private static class DefaultJavaFileScannerContext implements SourceAwareScannerContext {
     private final CompilationUnitTree tree;
     private final SourceFile sourceFile;
     private final SemanticModel semanticModel;
     private final ComplexityVisitor complexityVisitor;
-    private File file;
+    private final SourceBuffer sourceBuffer;
+    private final FileAnalysis analysisToCache;
 
-    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, File file, SemanticModel semanticModel, boolean analyseAccessors) {
+    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, SourceBuffer sourceBuffer, SemanticModel semanticModel, boolean analyseAccessors,
+      @Nullable FileAnalysis analysisToCache) {
       this.tree = tree;
+      this.analysisToCache = analysisToCache;
       this.sourceFile = sourceFile;
-      this.file = file;
+      this.sourceBuffer = sourceBuffer;
       this.semanticModel = semanticModel;
       this.complexityVisitor = new ComplexityVisitor(analyseAccessors);
     }
@@ -170,12 +287,19 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
     public void addIssue(int line, RuleKey ruleKey, String message) {
       Preconditions.checkNotNull(ruleKey);
       Preconditions.checkNotNull(message);
+      sourceFile.log(checkMessage(line, ruleKey, message));
+      if (analysisToCache != null) {
+        analysisToCache.addIssue(ruleKey.toString(), line, message);
+      }
+    }
+
+    static CheckMessage checkMessage(int line, RuleKey ruleKey, String message) {
       CheckMessage checkMessage = new CheckMessage(ruleKey, message);
       if (line > 0) {
         checkMessage.setLine(line);
       }
       checkMessage.setBypassExclusion(ruleKey.rule().equals("NoSonar"));
-      sourceFile.log(checkMessage);
+      return checkMessage;
     }
 
     @Override
@@ -191,7 +315,12 @@ public class VisitorsBridge extends JavaAstVisitor implements CharsetAwareVisito
 
     @Override
     public File getFile() {
-      return file;
+      return sourceBuffer.getFile();
+    }
+
+    @Override
+    public SourceBuffer getSourceBuffer() {
+      return sourceBuffer;
     }
 
     @Override
@@ -50,12 +50,14 @@ public class AnnotationTreeImpl extends AbstractTypedTree implements AnnotationT
     if (arguments != null) {
       addChild(arguments);
     }
+    adoptChildren();
   }
 
   public AnnotationTreeImpl(AstNode astNode, Tree annotationType, List<ExpressionTree> arguments) {
     super(astNode);
     this.annotationType = annotationType;
     this.arguments = arguments;
+    adoptChildren();
   }
 
   @Override
@@ -65,6 +65,7 @@ public class ClassTreeImpl extends JavaTree implements ClassTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public ClassTreeImpl(
@@ -78,6 +79,7 @@ public class ClassTreeImpl extends JavaTree implements ClassTree {
     this.superClass = superClass;
     this.superInterfaces = Preconditions.checkNotNull(superInterfaces);
     this.members = Preconditions.checkNotNull(members);
+    adoptChildren();
   }
 
   // TODO remove:
@@ -91,12 +93,14 @@ public class ClassTreeImpl extends JavaTree implements ClassTree {
 
     prependChildren(atToken, interfaceToken, (AstNode) simpleName);
 
+    adoptChildren();
     return this;
   }
 
   // FIXME Remove
   public void setModifiers(ModifiersTree modifiers) {
     this.modifiers = modifiers;
+    adoptChildren();
   }
 
   @Override
@@ -66,6 +66,7 @@ public class MethodTreeImpl extends JavaTree implements MethodTree {
     if (defaultValue != null) {
       addChild((AstNode) defaultValue);
     }
+    adoptChildren();
   }
 
   public MethodTreeImpl(AstNode astNode, ModifiersTree modifiers, List<TypeParameterTree> typeParameters, @Nullable Tree returnType, IdentifierTree simpleName,
@@ -81,6 +82,7 @@ public class MethodTreeImpl extends JavaTree implements MethodTree {
     this.block = block;
     this.throwsClauses = Preconditions.checkNotNull(throwsClauses);
     this.defaultValue = defaultValue;
+    adoptChildren();
   }
 
   public MethodTreeImpl complete(Tree returnType, IdentifierTree simpleName) {
@@ -90,6 +92,7 @@ public class MethodTreeImpl extends JavaTree implements MethodTree {
 
     prependChildren((AstNode) returnType, (AstNode) simpleName);
 
+    adoptChildren();
     return this;
   }
 
@@ -99,6 +102,7 @@ public class MethodTreeImpl extends JavaTree implements MethodTree {
 
     prependChildren(modifiers);
 
+    adoptChildren();
     return this;
   }
 
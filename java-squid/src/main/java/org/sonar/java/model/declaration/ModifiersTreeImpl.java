@@ -51,6 +51,7 @@ public class ModifiersTreeImpl extends JavaTree implements ModifiersTree {
     super(astNode);
     this.modifiers = Preconditions.checkNotNull(modifiers);
     this.annotations = Preconditions.checkNotNull(annotations);
+    adoptChildren();
   }
 
   public ModifiersTreeImpl(List<Modifier> modifiers, List<AnnotationTree> annotations, List<AstNode> children) {
@@ -62,6 +63,7 @@ public class ModifiersTreeImpl extends JavaTree implements ModifiersTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
@@ -51,6 +51,7 @@ public class VariableTreeImpl extends JavaTree implements VariableTree {
     this.type = Preconditions.checkNotNull(type);
     this.simpleName = Preconditions.checkNotNull(simpleName);
     this.initializer = initializer;
+    adoptChildren();
   }
 
   public VariableTreeImpl(AstNode astNode, IdentifierTree simpleName) {
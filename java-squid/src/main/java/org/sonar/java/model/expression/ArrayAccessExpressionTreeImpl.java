@@ -43,12 +43,14 @@ public class ArrayAccessExpressionTreeImpl extends AbstractTypedTree implements
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public ArrayAccessExpressionTreeImpl(AstNode astNode, ExpressionTree expression, ExpressionTree index) {
     super(astNode);
     this.expression = Preconditions.checkNotNull(expression);
     this.index = Preconditions.checkNotNull(index);
+    adoptChildren();
   }
 
   @Override
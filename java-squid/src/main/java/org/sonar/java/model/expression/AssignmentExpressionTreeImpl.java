@@ -51,6 +51,7 @@ public class AssignmentExpressionTreeImpl extends AbstractTypedTree implements A
     addChild((AstNode) variable);
     addChild(operatorToken);
     addChild((AstNode) expression);
+    adoptChildren();
   }
 
   public AssignmentExpressionTreeImpl(AstNode astNode, ExpressionTree variable, Kind kind, ExpressionTree expression) {
@@ -59,6 +60,7 @@ public class AssignmentExpressionTreeImpl extends AbstractTypedTree implements A
     this.kind = Preconditions.checkNotNull(kind);
     this.operatorToken = InternalSyntaxToken.createLegacy(getAstNode());
     this.expression = Preconditions.checkNotNull(expression);
+    adoptChildren();
   }
 
   @Override
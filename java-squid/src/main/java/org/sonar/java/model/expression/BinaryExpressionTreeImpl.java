@@ -50,6 +50,7 @@ public class BinaryExpressionTreeImpl extends AbstractTypedTree implements Binar
     addChild((AstNode) leftOperand);
     addChild(operator);
     addChild((AstNode) rightOperand);
+    adoptChildren();
   }
 
   public BinaryExpressionTreeImpl(AstNode astNode, ExpressionTree leftOperand, Kind kind, ExpressionTree rightOperand) {
@@ -58,6 +59,7 @@ public class BinaryExpressionTreeImpl extends AbstractTypedTree implements Binar
     this.leftOperand = Preconditions.checkNotNull(leftOperand);
     this.operator = InternalSyntaxToken.createLegacy(super.getAstNode());
     this.rightOperand = Preconditions.checkNotNull(rightOperand);
+    adoptChildren();
   }
 
   @Override
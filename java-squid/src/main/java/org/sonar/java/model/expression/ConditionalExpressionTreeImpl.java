@@ -53,6 +53,7 @@ public class ConditionalExpressionTreeImpl extends AbstractTypedTree implements
     addChild(trueExpressionChild);
     addChild(colonToken);
     addChild(falseExpressionChild);
+    adoptChildren();
   }
 
   public ConditionalExpressionTreeImpl complete(ExpressionTree condition) {
@@ -61,6 +62,7 @@ public class ConditionalExpressionTreeImpl extends AbstractTypedTree implements
 
     prependChildren((AstNode) condition);
 
+    adoptChildren();
     return this;
   }
 
@@ -45,6 +45,7 @@ public class InstanceOfTreeImpl extends AbstractTypedTree implements InstanceOfT
 
     addChild(instanceofToken);
     addChild(child);
+    adoptChildren();
   }
 
   public InstanceOfTreeImpl complete(ExpressionTree expression) {
@@ -53,6 +54,7 @@ public class InstanceOfTreeImpl extends AbstractTypedTree implements InstanceOfT
 
     prependChildren((AstNode) expression);
 
+    adoptChildren();
     return this;
   }
 
@@ -46,6 +46,7 @@ public class InternalPostfixUnaryExpression extends AbstractTypedTree implements
 
     addChild((AstNode) expression);
     addChild(operatorToken);
+    adoptChildren();
   }
 
   @Override
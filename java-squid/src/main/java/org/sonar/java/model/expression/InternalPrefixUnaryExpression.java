@@ -46,6 +46,7 @@ public class InternalPrefixUnaryExpression extends AbstractTypedTree implements
 
     addChild(operatorToken);
     addChild((AstNode) expression);
+    adoptChildren();
   }
 
   @Override
@@ -50,6 +50,7 @@ public class LambdaExpressionTreeImpl extends AbstractTypedTree implements Lambd
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
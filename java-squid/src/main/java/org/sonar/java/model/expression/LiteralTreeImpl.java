@@ -39,6 +39,7 @@ public class LiteralTreeImpl extends AbstractTypedTree implements LiteralTree {
     this.kind = Preconditions.checkNotNull(kind);
     this.token = token;
     addChild(token);
+    adoptChildren();
   }
 
   @Override
@@ -45,12 +45,14 @@ public class MemberSelectExpressionTreeImpl extends AbstractTypedTree implements
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public MemberSelectExpressionTreeImpl(AstNode astNode, ExpressionTree expression, IdentifierTree identifier) {
     super(astNode);
     this.expression = Preconditions.checkNotNull(expression);
     this.identifier = Preconditions.checkNotNull(identifier);
+    adoptChildren();
   }
 
   @Override
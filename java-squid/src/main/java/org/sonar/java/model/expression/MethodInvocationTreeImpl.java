@@ -46,12 +46,14 @@ public class MethodInvocationTreeImpl extends AbstractTypedTree implements Metho
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public MethodInvocationTreeImpl(AstNode astNode, ExpressionTree methodSelect, List<ExpressionTree> arguments) {
     super(astNode);
     this.methodSelect = Preconditions.checkNotNull(methodSelect);
     this.arguments = Preconditions.checkNotNull(arguments);
+    adoptChildren();
   }
 
   @Override
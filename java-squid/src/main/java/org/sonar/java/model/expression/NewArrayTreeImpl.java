@@ -47,6 +47,7 @@ public class NewArrayTreeImpl extends AbstractTypedTree implements NewArrayTree
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public NewArrayTreeImpl complete(Tree type, AstNode... children) {
@@ -55,6 +56,7 @@ public class NewArrayTreeImpl extends AbstractTypedTree implements NewArrayTree
 
     prependChildren(children);
 
+    adoptChildren();
     return this;
   }
 
@@ -64,6 +66,7 @@ public class NewArrayTreeImpl extends AbstractTypedTree implements NewArrayTree
     this.type = type;
     this.dimensions = Preconditions.checkNotNull(dimensions);
     this.initializers = Preconditions.checkNotNull(initializers);
+    adoptChildren();
   }
 
   @Override
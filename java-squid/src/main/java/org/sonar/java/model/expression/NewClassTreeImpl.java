@@ -53,6 +53,7 @@ public class NewClassTreeImpl extends AbstractTypedTree implements NewClassTree
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public NewClassTreeImpl(AstNode astNode, @Nullable ExpressionTree enclosingExpression, ExpressionTree identifier, List<ExpressionTree> arguments,
@@ -62,6 +63,7 @@ public class NewClassTreeImpl extends AbstractTypedTree implements NewClassTree
     this.identifier = Preconditions.checkNotNull(identifier);
     this.arguments = Preconditions.checkNotNull(arguments);
     this.classBody = classBody;
+    adoptChildren();
   }
 
   @Override
@@ -44,6 +44,7 @@ public class ParenthesizedTreeImpl extends AbstractTypedTree implements Parenthe
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
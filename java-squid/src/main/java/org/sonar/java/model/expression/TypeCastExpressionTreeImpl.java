@@ -52,12 +52,14 @@ public class TypeCastExpressionTreeImpl extends AbstractTypedTree implements Typ
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public TypeCastExpressionTreeImpl(AstNode astNode, Tree type, ExpressionTree expression) {
     super(astNode);
     this.type = Preconditions.checkNotNull(type);
     this.expression = Preconditions.checkNotNull(expression);
+    adoptChildren();
   }
 
   public TypeCastExpressionTreeImpl complete(InternalSyntaxToken openParenToken) {
@@ -66,6 +68,7 @@ public class TypeCastExpressionTreeImpl extends AbstractTypedTree implements Typ
 
     prependChildren(openParenToken);
 
+    adoptChildren();
     return this;
   }
 
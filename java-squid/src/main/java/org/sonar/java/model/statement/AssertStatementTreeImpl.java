@@ -51,6 +51,7 @@ public class AssertStatementTreeImpl extends JavaTree implements AssertStatement
     addChild(assertToken);
     addChild(expression);
     addChild(semicolonToken);
+    adoptChildren();
   }
 
   public AssertStatementTreeImpl(ExpressionTree detail, AstNode colonToken, AstNode expression) {
@@ -59,6 +60,7 @@ public class AssertStatementTreeImpl extends JavaTree implements AssertStatement
 
     addChild(colonToken);
     addChild(expression);
+    adoptChildren();
   }
 
   public AssertStatementTreeImpl complete(ExpressionTree condition, AstNode assertToken, AstNode expression, AstNode semicolonToken) {
@@ -70,6 +72,7 @@ public class AssertStatementTreeImpl extends JavaTree implements AssertStatement
     // optional: colonToken, expression
     addChild(semicolonToken);
 
+    adoptChildren();
     return this;
   }
 
@@ -51,6 +51,7 @@ public class BlockTreeImpl extends JavaTree implements BlockTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public BlockTreeImpl(AstNode astNode, Kind newKind, BlockTreeImpl block) {
@@ -60,6 +61,7 @@ public class BlockTreeImpl extends JavaTree implements BlockTree {
     this.openBraceToken = block.openBraceToken;
     this.body = block.body;
     this.closeBraceToken = block.closeBraceToken;
+    adoptChildren();
   }
 
   @Override
@@ -47,6 +47,7 @@ public class BreakStatementTreeImpl extends JavaTree implements BreakStatementTr
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
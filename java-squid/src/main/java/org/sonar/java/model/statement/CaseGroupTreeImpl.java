@@ -48,6 +48,7 @@ public class CaseGroupTreeImpl extends JavaTree implements CaseGroupTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
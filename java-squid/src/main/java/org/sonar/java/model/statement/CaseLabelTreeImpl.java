@@ -47,6 +47,7 @@ public class CaseLabelTreeImpl extends JavaTree implements CaseLabelTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
@@ -43,6 +43,7 @@ public class CatchTreeImpl extends JavaTree implements CatchTree {
     super(astNode);
     this.parameter = Preconditions.checkNotNull(parameter);
     this.block = Preconditions.checkNotNull(block);
+    adoptChildren();
   }
 
   @Override
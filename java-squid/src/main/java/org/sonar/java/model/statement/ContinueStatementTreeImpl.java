@@ -47,6 +47,7 @@ public class ContinueStatementTreeImpl extends JavaTree implements ContinueState
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
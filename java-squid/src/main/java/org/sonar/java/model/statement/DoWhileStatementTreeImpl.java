@@ -58,6 +58,7 @@ public class DoWhileStatementTreeImpl extends JavaTree implements DoWhileStateme
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
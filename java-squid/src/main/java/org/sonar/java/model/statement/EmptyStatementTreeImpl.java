@@ -37,6 +37,7 @@ public class EmptyStatementTreeImpl extends JavaTree implements EmptyStatementTr
   public EmptyStatementTreeImpl(AstNode astNode) {
     super(JavaGrammar.EMPTY_STATEMENT);
     addChild(astNode);
+    adoptChildren();
   }
 
   @Override
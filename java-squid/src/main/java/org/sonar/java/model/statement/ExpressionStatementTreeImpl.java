@@ -40,6 +40,7 @@ public class ExpressionStatementTreeImpl extends JavaTree implements ExpressionS
   public ExpressionStatementTreeImpl(AstNode astNode, ExpressionTree expression) {
     super(astNode);
     this.expression = Preconditions.checkNotNull(expression);
+    adoptChildren();
   }
 
   public ExpressionStatementTreeImpl(ExpressionTree expression, AstNode... children) {
@@ -49,6 +50,7 @@ public class ExpressionStatementTreeImpl extends JavaTree implements ExpressionS
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
@@ -46,6 +46,7 @@ public class ForEachStatementImpl extends JavaTree implements ForEachStatement {
     this.variable = Preconditions.checkNotNull(variable);
     this.expression = Preconditions.checkNotNull(expression);
     this.statement = Preconditions.checkNotNull(statement);
+    adoptChildren();
   }
 
   @Override
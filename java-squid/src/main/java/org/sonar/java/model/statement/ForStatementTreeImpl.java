@@ -52,6 +52,7 @@ public class ForStatementTreeImpl extends JavaTree implements ForStatementTree {
     this.condition = condition;
     this.update = Preconditions.checkNotNull(update);
     this.statement = Preconditions.checkNotNull(statement);
+    adoptChildren();
   }
 
   @Override
@@ -56,6 +56,7 @@ public class IfStatementTreeImpl extends JavaTree implements IfStatementTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public IfStatementTreeImpl(InternalSyntaxToken ifKeyword, InternalSyntaxToken openParenToken, ExpressionTree condition, InternalSyntaxToken closeParenToken,
@@ -72,6 +73,7 @@ public class IfStatementTreeImpl extends JavaTree implements IfStatementTree {
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   public IfStatementTreeImpl complete(InternalSyntaxToken ifKeyword, InternalSyntaxToken openParenToken, ExpressionTree condition, InternalSyntaxToken closeParenToken,
@@ -85,6 +87,7 @@ public class IfStatementTreeImpl extends JavaTree implements IfStatementTree {
 
     prependChildren(children);
 
+    adoptChildren();
     return this;
   }
 
@@ -47,6 +47,7 @@ public class LabeledStatementTreeImpl extends JavaTree implements LabeledStateme
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
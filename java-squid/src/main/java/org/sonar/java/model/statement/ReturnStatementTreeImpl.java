@@ -47,6 +47,7 @@ public class ReturnStatementTreeImpl extends JavaTree implements ReturnStatement
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
@@ -60,6 +60,7 @@ public class SwitchStatementTreeImpl extends JavaTree implements SwitchStatement
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
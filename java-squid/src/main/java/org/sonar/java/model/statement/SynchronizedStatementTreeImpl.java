@@ -53,6 +53,7 @@ public class SynchronizedStatementTreeImpl extends JavaTree implements Synchroni
     for (AstNode child : childrens) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
@@ -45,6 +45,7 @@ public class ThrowStatementTreeImpl extends JavaTree implements ThrowStatementTr
     for (AstNode child : children) {
       addChild(child);
     }
+    adoptChildren();
   }
 
   @Override
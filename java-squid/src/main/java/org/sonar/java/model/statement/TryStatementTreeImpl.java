@@ -53,6 +53,7 @@ public class TryStatementTreeImpl extends JavaTree implements TryStatementTree {
     this.block = Preconditions.checkNotNull(block);
     this.catches = Preconditions.checkNotNull(catches);
     this.finallyBlock = finallyBlock;
+    adoptChildren();
   }
 
   @Override
@@ -55,6 +55,7 @@ public class WhileStatementTreeImpl extends JavaTree implements WhileStatementTr
     }
 
 
+    adoptChildren();
   }
 
   @Override
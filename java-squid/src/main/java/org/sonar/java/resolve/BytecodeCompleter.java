@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 import org.apache.commons.lang.StringUtils;
 import org.objectweb.asm.AnnotationVisitor;
@@ -36,15 +37,18 @@ import org.objectweb.asm.TypePath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 
 import javax.annotation.Nullable;
-import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class BytecodeCompleter implements Symbol.Completer {
 
@@ -55,25 +59,111 @@ public class BytecodeCompleter implements Symbol.Completer {
       Flags.STATIC | Flags.FINAL | Flags.SYNCHRONIZED | Flags.VOLATILE | Flags.TRANSIENT | Flags.NATIVE |
       Flags.ABSTRACT | Flags.STRICTFP;
 
+  private static final int MAX_READ_CLASS_FILES = 256;
+
   private Symbols symbols;
+
+  /**
+   * Classpath, from which this completer creates its own class loader, or null if class loader is given and shared with other completers.
+   */
+  @Nullable
   private final List<File> projectClasspath;
 
+  /**
+   * Completer of classes, which can be shared between files, or null if this completer is itself shared.
+   */
+  @Nullable
+  private final BytecodeCompleter parent;
+
   /**
    * Indexed by flat name.
    */
   private final Map<String, Symbol.TypeSymbol> classes = new HashMap<String, Symbol.TypeSymbol>();
   private final Map<String, Symbol.PackageSymbol> packages = new HashMap<String, Symbol.PackageSymbol>();
 
-  private ClassLoader classLoader;
+  /**
+   * Flat names of classes, which are not available on classpath of this completer.
+   */
+  private final Set<String> absentClasses = new HashSet<String>();
+
+  /**
+   * Full names of classes, for which {@link #loadClass(String)} already checked that name matches class file.
+   */
+  private final Set<String> loadedClasses = new HashSet<String>();
+
+  /**
+   * Full names of classes, for which {@link #loadClass(String)} found no class file with matching name.
+   * Most of lookups of types through star imports end here.
+   */
+  private final Set<String> notLoadedClasses = new HashSet<String>();
+
+  /**
+   * Content of class files read by {@link #loadClass(String)} to check their names, indexed by bytecode name,
+   * so that they are not read again when their symbols are completed. Least recently used are dropped.
+   */
+  private final Map<String, byte[]> readClassFiles = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+      return size() > MAX_READ_CLASS_FILES;
+    }
+  };
+
+  /**
+   * Resource names of class files from classpath of this completer, on which symbols of a single file depend.
+   * Not recorded for completer shared between files.
+   */
+  private final Set<String> projectClassFiles = new HashSet<String>();
+
+  /**
+   * Members of package "java.lang", which is implicitly imported by the file of this completer.
+   */
+  private Scope javaLangMembers;
+
+  private long hits;
+  private long misses;
 
+  private SquidClassLoader classLoader;
+
+  @Nullable
+  private BytecodeIndex index;
+
+  /**
+   * Creates completer, which can be shared between files of a project: it contains only symbols read from bytecode,
+   * i.e. symbols from JDK and from given classpath.
+   */
   public BytecodeCompleter(List<File> projectClasspath) {
+    this.parent = null;
     this.projectClasspath = projectClasspath;
   }
 
+  /**
+   * Creates completer for a single file, which delegates to given shared completer for classes from JDK and libraries,
+   * and keeps symbols of classes from given class loader (typically of project binaries) and from sources of the file.
+   * Class loader is shared by completers of all files and is not closed by {@link #done()}.
+   */
+  public BytecodeCompleter(BytecodeCompleter parent, SquidClassLoader projectClassLoader) {
+    this.parent = parent;
+    this.projectClasspath = null;
+    this.classLoader = projectClassLoader;
+    this.symbols = parent.symbols;
+  }
+
+  /**
+   * Completes symbols of classes from JAR files with given index, and adds to it classes which are not yet indexed.
+   * Index is saved by {@link #done()}.
+   */
+  public void setIndex(BytecodeIndex index) {
+    this.index = index;
+  }
+
   public void init(Symbols symbols) {
     this.symbols = symbols;
   }
 
+  Symbols getSymbols() {
+    return symbols;
+  }
+
   public Symbol.TypeSymbol registerClass(Symbol.TypeSymbol classSymbol) {
     String flatName = formFullName(classSymbol);
     Preconditions.checkState(!classes.containsKey(flatName), "Registering class 2 times : "+flatName);
@@ -81,6 +171,20 @@ public class BytecodeCompleter implements Symbol.Completer {
     return classSymbol;
   }
 
+  /**
+   * @return number of lookups of class symbols, which were served from already created symbols
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of lookups of class symbols, which required creation of new symbol
+   */
+  public long getMisses() {
+    return misses;
+  }
+
   @Override
   public void complete(Symbol symbol) {
     LOG.debug("Completing symbol : " + symbol.name);
@@ -88,26 +192,58 @@ public class BytecodeCompleter implements Symbol.Completer {
     Symbol.TypeSymbol classSymbol = getClassSymbol(bytecodeName);
     Preconditions.checkState(classSymbol == symbol);
 
-    InputStream inputStream = null;
-    ClassReader classReader = null;
+    String className = Convert.bytecodeName(bytecodeName);
+    byte[] classFile = readClassFiles.remove(className);
+    ClassVisitor visitor = new BytecodeVisitor((Symbol.TypeSymbol) symbol);
+    if (index != null) {
+      File jar = getClassLoader().jarOf(className + ".class");
+      if (jar != null) {
+        if (index.accept(jar, className, visitor)) {
+          return;
+        }
+        visitor = index.recorder(jar, visitor);
+      }
+    }
+
+    if (classFile == null) {
+      classFile = readClassFile(bytecodeName);
+    }
+    if (classFile != null) {
+      new ClassReader(classFile).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+    }
+  }
+
+  @Nullable
+  private byte[] readClassFile(String fullname) {
+    String name = Convert.bytecodeName(fullname) + ".class";
+    InputStream inputStream = getClassLoader().getResourceAsStream(name);
+    if (inputStream == null) {
+      return null;
+    }
+    recordProjectClassFile(name);
     try {
-      inputStream = inputStreamFor(bytecodeName);
-      classReader = new ClassReader(inputStream);
+      return ByteStreams.toByteArray(inputStream);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     } finally {
       Closeables.closeQuietly(inputStream);
     }
-    if (classReader != null) {
-      classReader.accept(new BytecodeVisitor((Symbol.TypeSymbol) symbol), ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+  }
+
+  private void recordProjectClassFile(String name) {
+    if (parent != null) {
+      projectClassFiles.add(name);
     }
   }
 
-  private InputStream inputStreamFor(String fullname) {
-    return getClassLoader().getResourceAsStream(Convert.bytecodeName(fullname) + ".class");
+  /**
+   * @return resource names of class files of the project read by this completer, i.e. "org/example/MyClass.class"
+   */
+  public Set<String> getProjectClassFiles() {
+    return projectClassFiles;
   }
 
-  private ClassLoader getClassLoader() {
+  private SquidClassLoader getClassLoader() {
     if (classLoader == null) {
       classLoader = ClassLoaderBuilder.create(projectClasspath);
     }
@@ -142,7 +278,12 @@ public class BytecodeCompleter implements Symbol.Completer {
   private Symbol.TypeSymbol getClassSymbol(String bytecodeName, int flags) {
     String flatName = Convert.flatName(bytecodeName);
     Symbol.TypeSymbol symbol = classes.get(flatName);
-    if (symbol == null) {
+    if (symbol != null) {
+      hits++;
+    } else if (isProvidedByParent(flatName)) {
+      symbol = parent.getClassSymbol(flatName, flags);
+    } else {
+      misses++;
       String shortName = Convert.shortName(flatName);
       String packageName = Convert.packagePart(flatName);
       String enclosingClassName = Convert.enclosingClassName(shortName);
@@ -155,7 +296,9 @@ public class BytecodeCompleter implements Symbol.Completer {
       symbol.members = new Scope(symbol);
 
       // (Godin): IOException will happen without this condition in case of missing class:
-      if (getClassLoader().getResource(Convert.bytecodeName(flatName) + ".class") != null) {
+      String className = Convert.bytecodeName(flatName);
+      if (readClassFiles.containsKey(className) || getClassLoader().hasResource(className + ".class")) {
+        recordProjectClassFile(className + ".class");
         symbol.completer = this;
       } else {
         LOG.error("Class not found: " + bytecodeName);
@@ -168,6 +311,34 @@ public class BytecodeCompleter implements Symbol.Completer {
     return symbol;
   }
 
+  /**
+   * Classes from JDK and libraries are served by parent, so that their symbols are created only once per project.
+   * As with a single class loader for binaries followed by libraries, a class from classpath of this completer takes precedence
+   * over a class with the same name from libraries.
+   */
+  private boolean isProvidedByParent(String flatName) {
+    return parent != null && !hasOwnClassFile(flatName) && parent.hasClass(flatName);
+  }
+
+  private boolean hasOwnClassFile(String flatName) {
+    String className = Convert.bytecodeName(flatName);
+    return readClassFiles.containsKey(className) || getClassLoader().hasOwnResource(className + ".class");
+  }
+
+  private boolean hasClass(String flatName) {
+    if (classes.containsKey(flatName)) {
+      return true;
+    }
+    if (absentClasses.contains(flatName)) {
+      return false;
+    }
+    if (getClassLoader().hasResource(Convert.bytecodeName(flatName) + ".class")) {
+      return true;
+    }
+    absentClasses.add(flatName);
+    return false;
+  }
+
   private int filterBytecodeFlags(int flags) {
     return flags & ACCEPTABLE_BYTECODE_FLAGS;
   }
@@ -181,32 +352,50 @@ public class BytecodeCompleter implements Symbol.Completer {
    */
   // TODO(Godin): Method name is misleading because of lazy loading.
   public Symbol loadClass(String fullname) {
-    // TODO(Godin): avoid unnecessary checks of the same class
+    if (loadedClasses.contains(fullname)) {
+      return getClassSymbol(fullname);
+    }
+    if (notLoadedClasses.contains(fullname)) {
+      return new Resolve.SymbolNotFound();
+    }
+    if (isProvidedByParent(fullname)) {
+      return parent.loadClass(fullname);
+    }
 
-    // TODO(Godin): pull out conversion of name from the next method to avoid unnecessary conversion afterwards:
-    InputStream inputStream = inputStreamFor(fullname);
     String bytecodeName = Convert.bytecodeName(fullname);
+    // classes of JDK and libraries are provided by parent, so that package can be checked without lookup in JDK
+    byte[] classFile = parent != null && !getClassLoader().hasPackageOf(bytecodeName + ".class") ? null : readClassFile(fullname);
 
-    if (inputStream == null) {
+    if (classFile == null || !new ClassReader(classFile).getClassName().equals(bytecodeName)) {
+      notLoadedClasses.add(fullname);
       return new Resolve.SymbolNotFound();
     }
-
-    try {
-      ClassReader classReader = new ClassReader(inputStream);
-      String className = classReader.getClassName();
-      if (!className.equals(bytecodeName)) {
-        return new Resolve.SymbolNotFound();
-      }
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
+    loadedClasses.add(fullname);
+    Symbol.TypeSymbol symbol = classes.get(Convert.flatName(bytecodeName));
+    if (symbol == null || symbol.completer != null) {
+      // kept only if symbol is not yet completed
+      readClassFiles.put(bytecodeName, classFile);
     }
-
     return getClassSymbol(fullname);
   }
 
+  /**
+   * Package symbols are shared between files, so that their members are not kept by them, but by completer of each file:
+   * lookups in members of a package are done through this completer and do not depend on files analyzed before.
+   */
+  Scope javaLangMembers() {
+    if (javaLangMembers == null) {
+      Symbol.PackageSymbol javaLang = enterPackage("java.lang");
+      javaLangMembers = new Scope.StarImportScope(javaLang, this);
+      javaLangMembers.enter(javaLang);
+    }
+    return javaLangMembers;
+  }
+
   public Symbol.PackageSymbol enterPackage(String fullname) {
+    if (parent != null) {
+      return parent.enterPackage(fullname);
+    }
     if (StringUtils.isBlank(fullname)) {
       return symbols.defaultPackage;
     }
@@ -219,8 +408,12 @@ public class BytecodeCompleter implements Symbol.Completer {
   }
 
   public void done() {
-    if (classLoader != null && classLoader instanceof Closeable) {
-      Closeables.closeQuietly((Closeable) classLoader);
+    if (classLoader != null && projectClasspath != null) {
+      classLoader.close();
+      classLoader = null;
+    }
+    if (index != null) {
+      index.save();
     }
   }
 
@@ -433,13 +626,8 @@ public class BytecodeCompleter implements Symbol.Completer {
       if (classSymbol.owner == null) {
         String flatName = className.replace('/', '.');
         classSymbol.name = flatName.substring(flatName.lastIndexOf('.') + 1);
+        // not entered into members of package, because package symbols are shared between files (see javaLangMembers())
         classSymbol.owner = enterPackage(flatName);
-        Symbol.PackageSymbol owner = (Symbol.PackageSymbol) classSymbol.owner;
-        if (owner.members == null) {
-          // package was without classes so far
-          owner.members = new Scope(owner);
-        }
-        owner.members.enter(classSymbol);
       }
     }
 
@@ -0,0 +1,610 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of classes of JAR files, stored on disk between analyses, so that symbols of libraries can be completed without reading of their class files.
+ * <p/>
+ * For each class, index contains calls of {@link ClassVisitor} made by ASM when code, debug information and annotations are skipped,
+ * i.e. flags, supertypes, inner classes, signatures of fields and methods, which are replayed to complete symbol of the class.
+ * Index of a JAR file is stored in its own files, which are memory-mapped, and are valid only for the same path, size and date of modification of the JAR file.
+ * Classes are added to index when they are read for the first time, and are written in a new file when {@link #save() analysis is done},
+ * because a memory-mapped file can not be replaced on all platforms. Files of a JAR file are merged before they are mapped, once they are too many.
+ */
+public class BytecodeIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BytecodeIndex.class);
+
+  private static final int MAGIC = 0x4a415649;
+  private static final int FORMAT_VERSION = 1;
+  private static final int NULL = -1;
+  private static final int MAX_FILES_PER_JAR = 8;
+
+  private final File dir;
+  private final Map<File, JarIndex> jars = Maps.newHashMap();
+  private int hits;
+  private int misses;
+
+  public BytecodeIndex(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Replays calls of visitor for given class, if it is indexed.
+   *
+   * @param jar JAR file of class, as given by class loader
+   * @param className internal name of class, i.e. "org/example/MyClass$InnerClass"
+   * @return false if class is not indexed, in which case visitor was not called
+   */
+  boolean accept(File jar, String className, ClassVisitor visitor) {
+    ClassRecord record = jarIndexFor(jar).get(className);
+    if (record == null) {
+      misses++;
+      return false;
+    }
+    hits++;
+    record.accept(visitor);
+    return true;
+  }
+
+  /**
+   * @return visitor, which passes calls to given visitor and adds class to index of given JAR file when visit ends
+   */
+  ClassVisitor recorder(File jar, ClassVisitor visitor) {
+    return new Recorder(jarIndexFor(jar), visitor);
+  }
+
+  /**
+   * Writes indexes of JAR files, in which classes were added.
+   */
+  public void save() {
+    LOG.debug("Bytecode index: " + hits + " classes replayed, " + misses + " classes read");
+    for (JarIndex jarIndex : jars.values()) {
+      if (!jarIndex.added.isEmpty()) {
+        try {
+          jarIndex.save();
+        } catch (IOException e) {
+          LOG.warn("Unable to save bytecode index of " + jarIndex.jar.getAbsolutePath(), e);
+        }
+      }
+    }
+    jars.clear();
+  }
+
+  int getHits() {
+    return hits;
+  }
+
+  int getMisses() {
+    return misses;
+  }
+
+  private JarIndex jarIndexFor(File jar) {
+    JarIndex jarIndex = jars.get(jar);
+    if (jarIndex == null) {
+      jarIndex = new JarIndex(jar, dir, jar.getName() + "-" + Integer.toHexString(jar.getAbsolutePath().hashCode()) + ".");
+      jars.put(jar, jarIndex);
+    }
+    return jarIndex;
+  }
+
+  /**
+   * Files of a JAR file are named "prefix" + "generation" + ".idx", where generation grows with each analysis, which added classes.
+   */
+  private static class JarIndex {
+
+    private final File jar;
+    private final File dir;
+    private final String prefix;
+    private int lastGeneration;
+    private final List<StoredIndex> stored = Lists.newArrayList();
+    private final Map<String, ClassRecord> added = Maps.newHashMap();
+
+    JarIndex(File jar, File dir, String prefix) {
+      this.jar = jar;
+      this.dir = dir;
+      this.prefix = prefix;
+      List<File> files = Lists.newArrayList();
+      for (File file : listFiles()) {
+        if (isIndexOf(file, jar)) {
+          files.add(file);
+        } else if (!file.delete()) {
+          // index of another version of JAR file, which is not mapped and so can be deleted
+          LOG.debug("Unable to delete " + file.getAbsolutePath());
+        }
+      }
+      try {
+        if (files.size() > MAX_FILES_PER_JAR) {
+          files = Lists.newArrayList(merge(files));
+        }
+        for (File file : files) {
+          StoredIndex index = StoredIndex.open(file, jar, true);
+          if (index != null) {
+            stored.add(index);
+          }
+        }
+      } catch (IOException e) {
+        LOG.warn("Unable to read bytecode index of " + jar.getAbsolutePath(), e);
+        stored.clear();
+      }
+    }
+
+    /**
+     * @return files of this JAR file ordered by generation
+     */
+    private List<File> listFiles() {
+      Map<Integer, File> files = new TreeMap<Integer, File>();
+      String[] names = dir.list();
+      if (names != null) {
+        for (String name : names) {
+          if (name.startsWith(prefix) && name.endsWith(".idx")) {
+            try {
+              int generation = Integer.parseInt(name.substring(prefix.length(), name.length() - ".idx".length()));
+              files.put(generation, new File(dir, name));
+              lastGeneration = Math.max(lastGeneration, generation);
+            } catch (NumberFormatException e) {
+              // not an index
+            }
+          }
+        }
+      }
+      return Lists.newArrayList(files.values());
+    }
+
+    /**
+     * Files are read without being mapped, so that they can be deleted once merged.
+     */
+    private File merge(List<File> files) throws IOException {
+      Map<String, ClassRecord> records = Maps.newHashMap();
+      for (File file : files) {
+        StoredIndex index = StoredIndex.open(file, jar, false);
+        if (index != null) {
+          records.putAll(index.getAll());
+        }
+      }
+      File merged = write(records);
+      for (File file : files) {
+        if (!file.delete()) {
+          LOG.debug("Unable to delete " + file.getAbsolutePath());
+        }
+      }
+      return merged;
+    }
+
+    @Nullable
+    ClassRecord get(String className) {
+      ClassRecord record = added.get(className);
+      for (int i = 0; record == null && i < stored.size(); i++) {
+        record = stored.get(i).get(className);
+      }
+      return record;
+    }
+
+    void save() throws IOException {
+      write(added);
+      added.clear();
+    }
+
+    /**
+     * Writes given records in a new file, so that files mapped by this or another analysis are never replaced.
+     */
+    private File write(Map<String, ClassRecord> records) throws IOException {
+      byte[] content = BytecodeIndex.write(jar, new TreeMap<String, ClassRecord>(records));
+      lastGeneration++;
+      File indexFile = new File(dir, prefix + lastGeneration + ".idx");
+      Files.createParentDirs(indexFile);
+      File tmpFile = new File(indexFile.getPath() + ".tmp");
+      Files.write(content, tmpFile);
+      if (!tmpFile.renameTo(indexFile)) {
+        throw new IOException("Unable to create " + indexFile.getAbsolutePath());
+      }
+      return indexFile;
+    }
+  }
+
+  /**
+   * Reads only header of given file, without mapping it, so that file can be deleted if it is not valid.
+   */
+  private static boolean isIndexOf(File indexFile, File jar) {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+      return in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION
+        && jar.getAbsolutePath().equals(in.readUTF()) && in.readLong() == jar.length() && in.readLong() == jar.lastModified();
+    } catch (IOException e) {
+      return false;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Layout of file: header, table of strings, directory of classes sorted by name, records of classes.
+   * Records refer to strings by their index in table, and contain only integers.
+   */
+  private static byte[] write(File jar, Map<String, ClassRecord> records) throws IOException {
+    StringTable strings = new StringTable();
+    ByteArrayOutputStream recordsBytes = new ByteArrayOutputStream();
+    DataOutputStream recordsOut = new DataOutputStream(recordsBytes);
+    int[] names = new int[records.size()];
+    int[] offsets = new int[records.size()];
+    int i = 0;
+    for (ClassRecord record : records.values()) {
+      names[i] = strings.indexOf(record.name);
+      offsets[i] = recordsOut.size();
+      record.write(recordsOut, strings);
+      i++;
+    }
+    recordsOut.flush();
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(result);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeUTF(jar.getAbsolutePath());
+    out.writeLong(jar.length());
+    out.writeLong(jar.lastModified());
+    strings.write(out);
+    out.writeInt(names.length);
+    for (i = 0; i < names.length; i++) {
+      out.writeInt(names[i]);
+      out.writeInt(offsets[i]);
+    }
+    out.writeInt(recordsOut.size());
+    recordsBytes.writeTo(out);
+    out.flush();
+    return result.toByteArray();
+  }
+
+  private static class StringTable {
+    private final Map<String, Integer> indexes = Maps.newHashMap();
+    private final List<byte[]> values = Lists.newArrayList();
+
+    int indexOf(@Nullable String value) {
+      if (value == null) {
+        return NULL;
+      }
+      Integer index = indexes.get(value);
+      if (index == null) {
+        index = values.size();
+        indexes.put(value, index);
+        values.add(value.getBytes(Charsets.UTF_8));
+      }
+      return index;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeInt(values.size());
+      int offset = 0;
+      for (byte[] value : values) {
+        out.writeInt(offset);
+        offset += value.length;
+      }
+      out.writeInt(offset);
+      for (byte[] value : values) {
+        out.write(value);
+      }
+    }
+  }
+
+  /**
+   * Index of a JAR file read from disk. Strings and records are decoded on demand, so that opening of index does not depend on its size.
+   */
+  private static class StoredIndex {
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final int stringOffsetsStart;
+    private final int stringsStart;
+    private final int classCount;
+    private final int directoryStart;
+    private final int recordsStart;
+
+    private StoredIndex(ByteBuffer buffer) {
+      this.buffer = buffer;
+      int stringCount = buffer.getInt();
+      strings = new String[stringCount];
+      stringOffsetsStart = buffer.position();
+      stringsStart = stringOffsetsStart + 4 * (stringCount + 1);
+      classCount = buffer.getInt(stringsStart + buffer.getInt(stringOffsetsStart + 4 * stringCount));
+      directoryStart = stringsStart + buffer.getInt(stringOffsetsStart + 4 * stringCount) + 4;
+      recordsStart = directoryStart + 8 * classCount + 4;
+    }
+
+    /**
+     * @param map whether file is memory-mapped, in which case it can not be deleted or replaced on all platforms as long as index is used
+     * @return index, or null if it was written for another version of JAR file or in another format
+     */
+    @Nullable
+    static StoredIndex open(File indexFile, File jar, boolean map) throws IOException {
+      ByteBuffer buffer;
+      if (map) {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try {
+          buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+          Closeables.closeQuietly(file);
+        }
+      } else {
+        buffer = ByteBuffer.wrap(Files.toByteArray(indexFile));
+      }
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      byte[] path = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(path);
+      // path is written in modified UTF-8, which is the same as UTF-8 for usual paths, and otherwise index is simply not used
+      if (!jar.getAbsolutePath().equals(new String(path, Charsets.UTF_8)) || buffer.getLong() != jar.length() || buffer.getLong() != jar.lastModified()) {
+        return null;
+      }
+      return new StoredIndex(buffer);
+    }
+
+    private String string(int index) {
+      if (index == NULL) {
+        return null;
+      }
+      String result = strings[index];
+      if (result == null) {
+        int start = buffer.getInt(stringOffsetsStart + 4 * index);
+        byte[] bytes = new byte[buffer.getInt(stringOffsetsStart + 4 * (index + 1)) - start];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(stringsStart + start);
+        slice.get(bytes);
+        result = new String(bytes, Charsets.UTF_8);
+        strings[index] = result;
+      }
+      return result;
+    }
+
+    @Nullable
+    ClassRecord get(String className) {
+      int low = 0;
+      int high = classCount - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int comparison = string(buffer.getInt(directoryStart + 8 * middle)).compareTo(className);
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          return read(middle);
+        }
+      }
+      return null;
+    }
+
+    Map<String, ClassRecord> getAll() {
+      Map<String, ClassRecord> result = Maps.newHashMap();
+      for (int i = 0; i < classCount; i++) {
+        ClassRecord record = read(i);
+        result.put(record.name, record);
+      }
+      return result;
+    }
+
+    private ClassRecord read(int classIndex) {
+      ByteBuffer in = buffer.duplicate();
+      in.position(recordsStart + buffer.getInt(directoryStart + 8 * classIndex + 4));
+      ClassRecord record = new ClassRecord();
+      record.version = in.getInt();
+      record.access = in.getInt();
+      record.name = string(in.getInt());
+      record.superName = string(in.getInt());
+      record.interfaces = readStrings(in);
+      int count = in.getInt();
+      for (int i = 0; i < count; i++) {
+        record.innerClasses.add(new Member(in.getInt(), string(in.getInt()), string(in.getInt()), string(in.getInt()), null));
+      }
+      count = in.getInt();
+      for (int i = 0; i < count; i++) {
+        record.fields.add(new Member(in.getInt(), string(in.getInt()), string(in.getInt()), null, null));
+      }
+      count = in.getInt();
+      for (int i = 0; i < count; i++) {
+        record.methods.add(new Member(in.getInt(), string(in.getInt()), string(in.getInt()), null, readStrings(in)));
+      }
+      return record;
+    }
+
+    @Nullable
+    private String[] readStrings(ByteBuffer in) {
+      int count = in.getInt();
+      if (count == NULL) {
+        return null;
+      }
+      String[] result = new String[count];
+      for (int i = 0; i < count; i++) {
+        result[i] = string(in.getInt());
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Inner class, field or method. Strings which are not used by {@link BytecodeCompleter}, such as generic signatures, are not recorded.
+   */
+  private static class Member {
+    final int access;
+    final String name;
+    @Nullable
+    final String desc;
+    @Nullable
+    final String innerName;
+    @Nullable
+    final String[] exceptions;
+
+    /**
+     * @param desc descriptor of field or method, or name of outer class for inner class
+     */
+    Member(int access, String name, @Nullable String desc, @Nullable String innerName, @Nullable String[] exceptions) {
+      this.access = access;
+      this.name = name;
+      this.desc = desc;
+      this.innerName = innerName;
+      this.exceptions = exceptions;
+    }
+  }
+
+  private static class ClassRecord {
+    int version;
+    int access;
+    String name;
+    @Nullable
+    String superName;
+    @Nullable
+    String[] interfaces;
+    final List<Member> innerClasses = Lists.newArrayList();
+    final List<Member> fields = Lists.newArrayList();
+    final List<Member> methods = Lists.newArrayList();
+
+    /**
+     * Calls visitor in the same order as {@link org.objectweb.asm.ClassReader}.
+     */
+    void accept(ClassVisitor visitor) {
+      visitor.visit(version, access, name, null, superName, interfaces);
+      for (Member innerClass : innerClasses) {
+        visitor.visitInnerClass(innerClass.name, innerClass.desc, innerClass.innerName, innerClass.access);
+      }
+      for (Member field : fields) {
+        visitor.visitField(field.access, field.name, field.desc, null, null);
+      }
+      for (Member method : methods) {
+        visitor.visitMethod(method.access, method.name, method.desc, null, method.exceptions);
+      }
+      visitor.visitEnd();
+    }
+
+    void write(DataOutputStream out, StringTable strings) throws IOException {
+      out.writeInt(version);
+      out.writeInt(access);
+      out.writeInt(strings.indexOf(name));
+      out.writeInt(strings.indexOf(superName));
+      writeStrings(out, strings, interfaces);
+      out.writeInt(innerClasses.size());
+      for (Member innerClass : innerClasses) {
+        out.writeInt(innerClass.access);
+        out.writeInt(strings.indexOf(innerClass.name));
+        out.writeInt(strings.indexOf(innerClass.desc));
+        out.writeInt(strings.indexOf(innerClass.innerName));
+      }
+      out.writeInt(fields.size());
+      for (Member field : fields) {
+        out.writeInt(field.access);
+        out.writeInt(strings.indexOf(field.name));
+        out.writeInt(strings.indexOf(field.desc));
+      }
+      out.writeInt(methods.size());
+      for (Member method : methods) {
+        out.writeInt(method.access);
+        out.writeInt(strings.indexOf(method.name));
+        out.writeInt(strings.indexOf(method.desc));
+        writeStrings(out, strings, method.exceptions);
+      }
+    }
+
+    private static void writeStrings(DataOutputStream out, StringTable strings, @Nullable String[] values) throws IOException {
+      if (values == null) {
+        out.writeInt(NULL);
+        return;
+      }
+      out.writeInt(values.length);
+      for (String value : values) {
+        out.writeInt(strings.indexOf(value));
+      }
+    }
+  }
+
+  /**
+   * Records calls made by ASM, and adds class to index once its visit is complete.
+   */
+  private static class Recorder extends ClassVisitor {
+    private final JarIndex jarIndex;
+    private final ClassRecord record = new ClassRecord();
+
+    Recorder(JarIndex jarIndex, ClassVisitor visitor) {
+      super(Opcodes.ASM5, visitor);
+      this.jarIndex = jarIndex;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, @Nullable String signature, @Nullable String superName, @Nullable String[] interfaces) {
+      record.version = version;
+      record.access = access;
+      record.name = name;
+      record.superName = superName;
+      record.interfaces = interfaces;
+      super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public void visitInnerClass(String name, @Nullable String outerName, @Nullable String innerName, int access) {
+      record.innerClasses.add(new Member(access, name, outerName, innerName, null));
+      super.visitInnerClass(name, outerName, innerName, access);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, @Nullable String signature, @Nullable Object value) {
+      record.fields.add(new Member(access, name, desc, null, null));
+      return super.visitField(access, name, desc, signature, value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, @Nullable String signature, @Nullable String[] exceptions) {
+      record.methods.add(new Member(access, name, desc, null, exceptions));
+      return super.visitMethod(access, name, desc, signature, exceptions);
+    }
+
+    @Override
+    public void visitEnd() {
+      super.visitEnd();
+      jarIndex.added.put(record.name, record);
+    }
+  }
+
+}
@@ -98,11 +98,10 @@ public class FirstPass extends BaseTreeVisitor {
       compilationUnitPackage = (Symbol.PackageSymbol) resolve.findIdentInPackage(env, compilationUnitPackage, packageResolver.packageName, Symbol.PCK);
       semanticModel.associateSymbol(packageName, compilationUnitPackage);
     }
-    compilationUnitPackage.members = new Scope(compilationUnitPackage);
-
     env = new Resolve.Env();
     env.packge = compilationUnitPackage;
-    env.scope = compilationUnitPackage.members;
+    // package symbol is shared between files, so top-level classes of this file are entered into dedicated scope
+    env.scope = new Scope(compilationUnitPackage);
     env.namedImports = new Scope(compilationUnitPackage);
     env.starImports = resolve.createStarImportScope(compilationUnitPackage);
     env.staticStarImports = resolve.createStaticStarImportScope(compilationUnitPackage);
@@ -20,8 +20,12 @@
 package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Routines for name resolution.
@@ -38,6 +42,14 @@ import java.util.List;
 public class Resolve {
 
   private final SymbolNotFound symbolNotFound = new SymbolNotFound();
+  private final AmbiguityErrorSymbol ambiguityError = new AmbiguityErrorSymbol();
+
+  /**
+   * Results of method resolution, which are looked up again for each invocation of same method, for example in chains of calls of builders.
+   */
+  private final Map<MethodLookup, Symbol> resolvedMethods = Maps.newHashMap();
+  private int resolvedMethodsHits;
+  private int resolvedMethodsMisses;
 
   private final BytecodeCompleter bytecodeCompleter;
   private final Types types = new Types();
@@ -265,8 +277,7 @@ public class Resolve {
       }
     }
     //java.lang
-    Symbol.PackageSymbol javaLang = bytecodeCompleter.enterPackage("java.lang");
-    for (Symbol symbol : javaLang.members().lookup(name)) {
+    for (Symbol symbol : bytecodeCompleter.javaLangMembers().lookup(name)) {
       if (symbol.kind < bestSoFar.kind) {
         return symbol;
       }
@@ -373,6 +384,19 @@ public class Resolve {
   }
 
   public Symbol findMethod(Env env, Symbol.TypeSymbol site, String name, List<Type> argTypes) {
+    MethodLookup lookup = new MethodLookup(env, site, name, argTypes);
+    Symbol result = resolvedMethods.get(lookup);
+    if (result == null) {
+      resolvedMethodsMisses++;
+      result = lookupMethod(env, site, name, argTypes);
+      resolvedMethods.put(lookup, result);
+    } else {
+      resolvedMethodsHits++;
+    }
+    return result;
+  }
+
+  private Symbol lookupMethod(Env env, Symbol.TypeSymbol site, String name, List<Type> argTypes) {
     Symbol bestSoFar = symbolNotFound;
 
     // TODO search in supertypes
@@ -390,7 +414,7 @@ public class Resolve {
     for (Symbol symbol : site.enclosingClass().members().lookup(name)) {
       if ((symbol.kind == Symbol.MTH) && isAccessible(env, site, symbol)) {
         if (bestSoFar.kind < Symbol.ERRONEOUS) {
-          return new AmbiguityErrorSymbol();
+          return ambiguityError;
         }
         bestSoFar = symbol;
       }
@@ -451,13 +475,13 @@ public class Resolve {
     boolean m2SignatureMoreSpecific = isSignatureMoreSpecific(m2, m1);
     if (m1SignatureMoreSpecific && m2SignatureMoreSpecific) {
       // TODO handle this case
-      return new AmbiguityErrorSymbol();
+      return ambiguityError;
     } else if (m1SignatureMoreSpecific) {
       return m1;
     } else if (m2SignatureMoreSpecific) {
       return m2;
     } else {
-      return new AmbiguityErrorSymbol();
+      return ambiguityError;
     }
   }
 
@@ -621,6 +645,52 @@ public class Resolve {
     }
   }
 
+  int getResolvedMethodsHits() {
+    return resolvedMethodsHits;
+  }
+
+  int getResolvedMethodsMisses() {
+    return resolvedMethodsMisses;
+  }
+
+  /**
+   * Key of method resolution: besides site, name and types of arguments, accessibility of methods depends on package and class from which they are invoked.
+   * Symbols and types do not override equals, so they are compared by identity.
+   */
+  private static class MethodLookup {
+    private final Symbol.TypeSymbol enclosingClass;
+    private final Symbol.PackageSymbol packge;
+    private final Symbol.TypeSymbol site;
+    private final String name;
+    private final List<Type> argTypes;
+
+    MethodLookup(Env env, Symbol.TypeSymbol site, String name, List<Type> argTypes) {
+      this.enclosingClass = env.enclosingClass();
+      this.packge = env.packge();
+      this.site = site;
+      this.name = name;
+      this.argTypes = ImmutableList.copyOf(argTypes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof MethodLookup)) {
+        return false;
+      }
+      MethodLookup other = (MethodLookup) obj;
+      return enclosingClass == other.enclosingClass
+        && packge == other.packge
+        && site == other.site
+        && name.equals(other.name)
+        && argTypes.equals(other.argTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(enclosingClass, packge, site, name, argTypes);
+    }
+  }
+
   private static Symbol.TypeSymbol superclassSymbol(Symbol.TypeSymbol c) {
     Type supertype = c.getSuperclass();
     return supertype == null ? null : supertype.symbol;
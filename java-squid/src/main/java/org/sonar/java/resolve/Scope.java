@@ -22,9 +22,11 @@ package org.sonar.java.resolve;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an area of visibility.
@@ -62,40 +64,75 @@ public class Scope {
     return ImmutableList.copyOf(symbols.values());
   }
 
+  /**
+   * Types of imported packages are looked up for each simple name which is not declared in file, including names of classes from java.lang,
+   * so that results of lookups are remembered until next import.
+   */
   public static class StarImportScope extends Scope {
 
     private final BytecodeCompleter bytecodeCompleter;
+    private final Map<String, List<Symbol>> lookups = Maps.newHashMap();
 
     public StarImportScope(Symbol owner, BytecodeCompleter bytecodeCompleter) {
       super(owner);
       this.bytecodeCompleter = bytecodeCompleter;
     }
 
+    @Override
+    public void enter(Symbol symbol) {
+      super.enter(symbol);
+      lookups.clear();
+    }
+
     @Override
     public List<Symbol> lookup(String name) {
-      List<Symbol> symbolsList = Lists.newArrayList();
-      for (Symbol site : symbols.values()) {
-        Symbol symbol = bytecodeCompleter.loadClass(bytecodeCompleter.formFullName(name, site));
-        if (symbol.kind < Symbol.ERRONEOUS) {
-          symbolsList.add(symbol);
+      List<Symbol> symbolsList = lookups.get(name);
+      if (symbolsList == null) {
+        symbolsList = Lists.newArrayList();
+        for (Symbol site : symbols.values()) {
+          Symbol symbol = bytecodeCompleter.loadClass(bytecodeCompleter.formFullName(name, site));
+          if (symbol.kind < Symbol.ERRONEOUS) {
+            symbolsList.add(symbol);
+          }
         }
+        symbolsList = ImmutableList.copyOf(symbolsList);
+        lookups.put(name, symbolsList);
       }
       return symbolsList;
     }
   }
 
 
+  /**
+   * Same as {@link StarImportScope}, but also for static members of imported types.
+   */
   public static class StaticStarImportScope extends Scope {
 
     private final BytecodeCompleter bytecodeCompleter;
+    private final Map<String, List<Symbol>> lookups = Maps.newHashMap();
 
     public StaticStarImportScope(Symbol owner, BytecodeCompleter bytecodeCompleter) {
       super(owner);
       this.bytecodeCompleter = bytecodeCompleter;
     }
 
+    @Override
+    public void enter(Symbol symbol) {
+      super.enter(symbol);
+      lookups.clear();
+    }
+
     @Override
     public List<Symbol> lookup(String name) {
+      List<Symbol> symbolsList = lookups.get(name);
+      if (symbolsList == null) {
+        symbolsList = ImmutableList.copyOf(lookupImports(name));
+        lookups.put(name, symbolsList);
+      }
+      return symbolsList;
+    }
+
+    private List<Symbol> lookupImports(String name) {
       List<Symbol> symbolsList = Lists.newArrayList();
       for (Symbol site : symbols.values()) {
         //site is a package, try to load referenced type.
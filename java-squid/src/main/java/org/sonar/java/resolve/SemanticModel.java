@@ -21,12 +21,10 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.model.AbstractTypedTree;
 import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
@@ -37,30 +35,71 @@ import org.sonar.plugins.java.api.tree.Tree;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SemanticModel {
 
-  private final BiMap<Tree, Symbol> symbolsTree = HashBiMap.create();
-  private Multimap<Symbol, IdentifierTree> usagesTree = HashMultimap.create();
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final JavaTree.CompilationUnitTreeImpl compilationUnit;
+
+  /**
+   * Symbols of trees indexed by {@link JavaTree#id()}, which {@link #compilationUnit} gives to trees associated to a symbol, and trees of symbols.
+   * A tree is associated to at most one symbol, and a symbol to at most one tree, namely its declaration.
+   */
+  private Symbol[] symbolsByTreeId = new Symbol[INITIAL_CAPACITY];
+  private final Map<Symbol, Tree> treesBySymbol = Maps.newIdentityHashMap();
+  private final SymbolUsages usages = new SymbolUsages();
+
+  private int resolvedMethodsHits;
+  private int resolvedMethodsMisses;
+  private Set<String> projectClassFiles = Collections.emptySet();
 
   private final Map<Symbol, Resolve.Env> symbolEnvs = Maps.newHashMap();
   private final Map<Tree, Resolve.Env> envs = Maps.newHashMap();
-  private final Map<Tree, Tree> parentLink = Maps.newHashMap();
 
   public static SemanticModel createFor(CompilationUnitTree tree, List<File> projectClasspath) {
-    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(projectClasspath);
-    Symbols symbols = new Symbols(bytecodeCompleter);
-    SemanticModel semanticModel = new SemanticModel();
-    semanticModel.createParentLink((JavaTree) tree);
+    BytecodeCompleter librariesCompleter = createLibrariesCompleter(ImmutableList.<File>of());
+    SquidClassLoader projectClassLoader = ClassLoaderBuilder.create(projectClasspath);
+    try {
+      return createFor(tree, librariesCompleter, projectClassLoader);
+    } finally {
+      projectClassLoader.close();
+      librariesCompleter.done();
+    }
+  }
+
+  /**
+   * Creates completer of symbols from JDK and given libraries, which can be shared between {@link #createFor(CompilationUnitTree, BytecodeCompleter, SquidClassLoader) files}.
+   * It is up to caller to invoke {@link BytecodeCompleter#done()} at the end of analysis.
+   */
+  public static BytecodeCompleter createLibrariesCompleter(List<File> libraries) {
+    BytecodeCompleter librariesCompleter = new BytecodeCompleter(libraries);
+    new Symbols(librariesCompleter);
+    return librariesCompleter;
+  }
+
+  /**
+   * @param librariesCompleter shared completer created by {@link #createLibrariesCompleter(List)}
+   * @param projectClassLoader class loader of project binaries, which can be shared between files, and which is not closed by this method.
+   * Symbols of its classes are completed separately for each file, because they can refer to symbols from sources of the file
+   */
+  public static SemanticModel createFor(CompilationUnitTree tree, BytecodeCompleter librariesCompleter, SquidClassLoader projectClassLoader) {
+    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(librariesCompleter, projectClassLoader);
+    Symbols symbols = bytecodeCompleter.getSymbols();
+    SemanticModel semanticModel = new SemanticModel(tree);
     try {
       Resolve resolve = new Resolve(symbols, bytecodeCompleter);
       new FirstPass(semanticModel, symbols, resolve).visitCompilationUnit(tree);
       new ExpressionVisitor(semanticModel, symbols, resolve).visitCompilationUnit(tree);
       new LabelsVisitor(semanticModel).visitCompilationUnit(tree);
+      semanticModel.resolvedMethodsHits = resolve.getResolvedMethodsHits();
+      semanticModel.resolvedMethodsMisses = resolve.getResolvedMethodsMisses();
+      semanticModel.projectClassFiles = bytecodeCompleter.getProjectClassFiles();
     } finally {
       bytecodeCompleter.done();
       handleMissingTypes(symbols, tree);
@@ -95,19 +134,29 @@ public class SemanticModel {
   }
 
   @VisibleForTesting
-  SemanticModel() {
+  SemanticModel(CompilationUnitTree compilationUnit) {
+    this.compilationUnit = (JavaTree.CompilationUnitTreeImpl) compilationUnit;
   }
 
-  private void createParentLink(JavaTree tree) {
-    if (!tree.isLeaf()) {
-      for (Iterator<Tree> iter = tree.childrenIterator(); iter.hasNext(); ) {
-        Tree next = iter.next();
-        if (next != null) {
-          parentLink.put(next, tree);
-          createParentLink((JavaTree) next);
-        }
-      }
-    }
+  /**
+   * @return resource names of class files of the project, from which symbols of this file were read, i.e. "org/example/MyClass.class"
+   */
+  public Set<String> getProjectClassFiles() {
+    return projectClassFiles;
+  }
+
+  /**
+   * @return number of method resolutions of this file, which were answered from cache of previous resolutions
+   */
+  public int getResolvedMethodsHits() {
+    return resolvedMethodsHits;
+  }
+
+  /**
+   * @return number of method resolutions of this file, which required lookup in members of classes
+   */
+  public int getResolvedMethodsMisses() {
+    return resolvedMethodsMisses;
   }
 
   public void saveEnv(Symbol symbol, Resolve.Env env) {
@@ -118,6 +167,9 @@ public class SemanticModel {
     return symbolEnvs.get(symbol);
   }
 
+  /**
+   * Environments are associated only to trees which own a scope, environment of other trees is the one of their closest owner.
+   */
   public void associateEnv(Tree tree, Resolve.Env env) {
     envs.put(tree, env);
   }
@@ -127,40 +179,59 @@ public class SemanticModel {
     Resolve.Env result = null;
     while (result == null && javaTree != null) {
       result = envs.get(javaTree);
-      javaTree = (JavaTree) parentLink.get(javaTree);
+      javaTree = javaTree.parent();
     }
     return result;
   }
 
   public void associateSymbol(Tree tree, Symbol symbol) {
     Preconditions.checkNotNull(symbol);
-    symbolsTree.put(tree, symbol);
+    Tree previousTree = treesBySymbol.get(symbol);
+    Preconditions.checkArgument(previousTree == null || previousTree == tree, "value already present: %s", symbol);
+    Symbol previousSymbol = getSymbol(tree);
+    if (previousSymbol != null) {
+      treesBySymbol.remove(previousSymbol);
+    }
+    treesBySymbol.put(symbol, tree);
+    int id = compilationUnit.identify((JavaTree) tree);
+    if (id >= symbolsByTreeId.length) {
+      symbolsByTreeId = Arrays.copyOf(symbolsByTreeId, Math.max(id + 1, 2 * symbolsByTreeId.length));
+    }
+    symbolsByTreeId[id] = symbol;
   }
 
+  /**
+   * @param tree node of the compilation unit of this model
+   */
   public Symbol getSymbol(Tree tree) {
-    return symbolsTree.get(tree);
+    int id = ((JavaTree) tree).id();
+    return id >= 0 && id < symbolsByTreeId.length ? symbolsByTreeId[id] : null;
   }
 
   public Tree getTree(Symbol symbol) {
-    return symbolsTree.inverse().get(symbol);
+    return treesBySymbol.get(symbol);
   }
 
 
   public void associateReference(IdentifierTree tree, Symbol symbol) {
-    usagesTree.put(symbol, tree);
+    usages.add(symbol, tree);
   }
 
   @VisibleForTesting
   Map<Tree, Symbol> getSymbolsTree() {
-    return Collections.unmodifiableMap(symbolsTree);
+    Map<Tree, Symbol> result = Maps.newIdentityHashMap();
+    for (Map.Entry<Symbol, Tree> entry : treesBySymbol.entrySet()) {
+      result.put(entry.getValue(), entry.getKey());
+    }
+    return Collections.unmodifiableMap(result);
   }
 
   public Collection<IdentifierTree> getUsages(Symbol symbol) {
-    return Collections.unmodifiableCollection(usagesTree.get(symbol));
+    return usages.get(symbol);
   }
 
   @VisibleForTesting
   Collection<Symbol> getSymbolUsed() {
-    return usagesTree.keySet();
+    return usages.symbols();
   }
 }
@@ -0,0 +1,121 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Usages of symbols of a compilation unit.
+ * References are appended to parallel arrays while they are resolved, and are grouped by symbol into compressed rows on first query:
+ * usages of row {@code r} are stored in {@code usages[rowStart[r] .. rowStart[r + 1]]}.
+ * Symbols do not override equals, and are shared between compilation units, so rows are keyed by identity.
+ */
+class SymbolUsages {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private Symbol[] symbols = new Symbol[INITIAL_CAPACITY];
+  private IdentifierTree[] trees = new IdentifierTree[INITIAL_CAPACITY];
+  private int size;
+
+  private Map<Symbol, Integer> rows;
+  private int[] rowStart;
+  private IdentifierTree[] usages;
+
+  void add(Symbol symbol, IdentifierTree tree) {
+    if (size == trees.length) {
+      symbols = Arrays.copyOf(symbols, 2 * size);
+      trees = Arrays.copyOf(trees, 2 * size);
+    }
+    symbols[size] = symbol;
+    trees[size] = tree;
+    size++;
+    rows = null;
+  }
+
+  Collection<IdentifierTree> get(Symbol symbol) {
+    compress();
+    Integer row = rows.get(symbol);
+    if (row == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(Arrays.asList(usages).subList(rowStart[row], rowStart[row + 1]));
+  }
+
+  Set<Symbol> symbols() {
+    compress();
+    return Collections.unmodifiableSet(rows.keySet());
+  }
+
+  private void compress() {
+    if (rows != null) {
+      return;
+    }
+    Map<Symbol, Integer> newRows = Maps.newIdentityHashMap();
+    int[] rowOfUsage = new int[size];
+    int[] counts = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      Integer row = newRows.get(symbols[i]);
+      if (row == null) {
+        row = newRows.size();
+        newRows.put(symbols[i], row);
+      }
+      rowOfUsage[i] = row;
+      counts[row]++;
+    }
+    int rowCount = newRows.size();
+    int[] next = new int[rowCount];
+    for (int row = 1; row < rowCount; row++) {
+      next[row] = next[row - 1] + counts[row - 1];
+    }
+    IdentifierTree[] grouped = new IdentifierTree[size];
+    for (int i = 0; i < size; i++) {
+      grouped[next[rowOfUsage[i]]++] = trees[i];
+    }
+    // same reference can be resolved more than once, but is a single usage
+    rowStart = new int[rowCount + 1];
+    usages = new IdentifierTree[size];
+    Set<IdentifierTree> seen = Sets.newIdentityHashSet();
+    int from = 0;
+    int length = 0;
+    for (int row = 0; row < rowCount; row++) {
+      rowStart[row] = length;
+      seen.clear();
+      for (int i = from; i < from + counts[row]; i++) {
+        if (seen.add(grouped[i])) {
+          usages[length] = grouped[i];
+          length++;
+        }
+      }
+      from += counts[row];
+    }
+    rowStart[rowCount] = length;
+    rows = newRows;
+  }
+
+}
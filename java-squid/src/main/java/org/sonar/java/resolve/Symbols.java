@@ -121,11 +121,6 @@ public class Symbols {
     bytecodeCompleter.init(this);
 
     // predefined types for java lang
-    Symbol.PackageSymbol javalang = bytecodeCompleter.enterPackage("java.lang");
-    //define a star import scope to let resolve types to java.lang when needed.
-    javalang.members = new Scope.StarImportScope(javalang, bytecodeCompleter);
-    javalang.members.enter(javalang);
-
     objectType = bytecodeCompleter.loadClass("java.lang.Object").type;
     classType = bytecodeCompleter.loadClass("java.lang.Class").type;
     stringType = bytecodeCompleter.loadClass("java.lang.String").type;
@@ -0,0 +1,160 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.AnalysisCache.FileAnalysis;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceCode;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.indexer.QueryByType;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_store_results_of_files_for_same_configuration() throws Exception {
+    File cacheFile = new File(temp.getRoot(), "cache");
+    File sourceFile = new File("A.java");
+
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "configuration", Collections.<File>emptyList());
+    assertThat(cache.get(sourceFile, "hash")).isNull();
+    FileAnalysis analysis = new FileAnalysis("hash");
+    analysis.addIssue("squid:S1", 3, "message");
+    analysis.addMeasure("lines", 10.0, null, false);
+    analysis.addSymbol(new int[] {1, 2, 3});
+    cache.put(sourceFile, analysis);
+    cache.save();
+
+    cache = AnalysisCache.load(cacheFile, "configuration", Collections.<File>emptyList());
+    assertThat(cache.get(sourceFile, "other hash")).isNull();
+    analysis = cache.get(sourceFile, "hash");
+    assertThat(analysis.getIssues()).hasSize(1);
+    assertThat(analysis.getIssues().get(0).getRuleKey()).isEqualTo("squid:S1");
+    assertThat(analysis.getIssues().get(0).getLine()).isEqualTo(3);
+    assertThat(analysis.getMeasures().get(0).getValue()).isEqualTo(10.0);
+    assertThat(analysis.getSymbols().get(0)).isEqualTo(new int[] {1, 2, 3});
+
+    assertThat(AnalysisCache.load(cacheFile, "other configuration", Collections.<File>emptyList()).get(sourceFile, "hash")).isNull();
+  }
+
+  @Test
+  public void should_not_replay_results_of_file_when_class_file_read_during_its_analysis_changed() throws Exception {
+    File cacheFile = new File(temp.getRoot(), "cache");
+    File binaries = temp.newFolder("classes");
+    File classFile = new File(binaries, "org/example/B.class");
+    Files.createParentDirs(classFile);
+    Files.write(new byte[] {1, 2}, classFile);
+    File sourceFile = new File("A.java");
+    List<File> projectBinaries = Collections.singletonList(binaries);
+
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "configuration", projectBinaries);
+    FileAnalysis analysis = new FileAnalysis("hash");
+    analysis.addClassFile("org/example/B.class");
+    cache.put(sourceFile, analysis);
+    cache.save();
+
+    assertThat(AnalysisCache.load(cacheFile, "configuration", projectBinaries).get(sourceFile, "hash")).isNotNull();
+
+    // recompiled without change
+    Files.write(new byte[] {1, 2}, classFile);
+    assertThat(AnalysisCache.load(cacheFile, "configuration", projectBinaries).get(sourceFile, "hash")).isNotNull();
+
+    Files.write(new byte[] {1, 3}, classFile);
+    assertThat(AnalysisCache.load(cacheFile, "configuration", projectBinaries).get(sourceFile, "hash")).isNull();
+
+    classFile.delete();
+    assertThat(AnalysisCache.load(cacheFile, "configuration", projectBinaries).get(sourceFile, "hash")).isNull();
+  }
+
+  @Test
+  public void should_ignore_unreadable_cache() throws Exception {
+    File cacheFile = temp.newFile();
+    Files.write("not a cache", cacheFile, Charsets.UTF_8);
+
+    assertThat(AnalysisCache.load(cacheFile, "configuration", Collections.<File>emptyList()).get(new File("A.java"), "hash")).isNull();
+  }
+
+  @Test
+  public void should_replay_issues_of_unchanged_files() throws Exception {
+    File sourceDir = temp.newFolder();
+    File changedFile = new File(sourceDir, "A.java");
+    Files.write("class A {}", changedFile, Charsets.UTF_8);
+    Files.write("class B {}", new File(sourceDir, "B.java"), Charsets.UTF_8);
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setAnalysisCache(new File(temp.getRoot(), "cache"), "configuration");
+
+    IssueOnEachFile check = new IssueOnEachFile();
+    List<String> issues = scan(conf, sourceDir, check);
+    assertThat(check.scannedFiles).isEqualTo(2);
+    assertThat(issues).containsOnly("A.java:1", "B.java:1");
+
+    check = new IssueOnEachFile();
+    assertThat(scan(conf, sourceDir, check)).isEqualTo(issues);
+    assertThat(check.scannedFiles).isEqualTo(0);
+
+    Files.write("\nclass A {}", changedFile, Charsets.UTF_8);
+    check = new IssueOnEachFile();
+    assertThat(scan(conf, sourceDir, check)).containsOnly("A.java:2", "B.java:1");
+    assertThat(check.scannedFiles).isEqualTo(1);
+  }
+
+  private static List<String> scan(JavaConfiguration conf, File sourceDir, IssueOnEachFile check) {
+    JavaSquid squid = new JavaSquid(conf, check);
+    squid.scanDirectories(Collections.singleton(sourceDir), Collections.<File>emptyList());
+    List<String> issues = Lists.newArrayList();
+    for (SourceCode sourceFile : squid.search(new QueryByType(SourceFile.class))) {
+      for (CheckMessage checkMessage : sourceFile.getCheckMessages()) {
+        issues.add(new File(sourceFile.getName()).getName() + ":" + checkMessage.getLine());
+      }
+    }
+    Collections.sort(issues);
+    return issues;
+  }
+
+  private static class IssueOnEachFile implements JavaFileScanner {
+
+    private int scannedFiles;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scannedFiles++;
+      context.addIssue(context.getTree(), RuleKey.of("squid", "IssueOnEachFile"), "message");
+    }
+
+  }
+
+}
@@ -20,10 +20,13 @@
 package org.sonar.java.ast;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AuditListener;
 import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Rule;
@@ -31,6 +34,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 import org.sonar.api.resources.InputFile;
+import org.sonar.java.ast.visitors.JavaAstVisitor;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.AnalysisException;
 import org.sonar.sslr.grammar.GrammarRuleKey;
@@ -38,8 +42,12 @@ import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.parser.LexerlessGrammar;
 import org.sonar.sslr.parser.ParserAdapter;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
+import java.util.List;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -54,7 +62,7 @@ public class AstScannerTest {
   public void should_not_fail_whole_analysis_upon_parse_error_and_notify_audit_listeners() {
     FakeAuditListener listener = spy(new FakeAuditListener());
 
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(listener);
 
     scanner.scan(ImmutableList.of(mockInputFile(new File("src/test/resources/AstScannerParseError.txt"))));
@@ -63,7 +71,7 @@ public class AstScannerTest {
 
   @Test
   public void should_propagate_visitor_exception_when_there_also_is_a_parse_error() {
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
 
       @Override
@@ -93,7 +101,7 @@ public class AstScannerTest {
 
   @Test
   public void should_propagate_visitor_exception_when_no_parse_error() {
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
 
       @Override
@@ -121,6 +129,53 @@ public class AstScannerTest {
     scanner.scan(ImmutableList.of(mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt"))));
   }
 
+  @Test
+  public void should_visit_files_in_order_when_parsing_on_several_threads() {
+    FakeAuditListener listener = spy(new FakeAuditListener());
+    final List<String> visitedFiles = Lists.newArrayList();
+
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
+    scanner.setParsingThreads(2, new Supplier<Parser<LexerlessGrammar>>() {
+      @Override
+      public Parser<LexerlessGrammar> get() {
+        return new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build());
+      }
+    });
+    scanner.withSquidAstVisitor(listener);
+    scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
+      @Override
+      public void visitFile(@Nullable AstNode node) {
+        visitedFiles.add(getContext().getFile().getName() + (node == null ? ":error" : ":ok"));
+      }
+    });
+
+    scanner.scan(ImmutableList.of(
+      mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt")),
+      mockInputFile(new File("src/test/resources/AstScannerParseError.txt")),
+      mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt"))));
+    verify(listener).processRecognitionException(Mockito.any(RecognitionException.class));
+    assertThat(visitedFiles).containsExactly("AstScannerNoParseError.txt:ok", "AstScannerParseError.txt:error", "AstScannerNoParseError.txt:ok");
+  }
+
+  @Test
+  public void should_share_content_of_file_with_visitors() {
+    final List<String> contents = Lists.newArrayList();
+
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
+    scanner.withSquidAstVisitor(new JavaAstVisitor() {
+      @Override
+      public void leaveFile(@Nullable AstNode node) {
+        contents.add(getSourceBuffer().getLine(1));
+      }
+    });
+
+    scanner.scan(ImmutableList.of(
+      mockInputFile(new File("src/test/resources/AstScannerNoParseError.txt")),
+      mockInputFile(new File("src/test/resources/AstScannerParseError.txt"))));
+    assertThat(contents).hasSize(2);
+    assertThat(contents.get(0)).isEqualTo("foo");
+  }
+
   private static class FakeAuditListener extends SquidAstVisitor<LexerlessGrammar> implements AuditListener {
 
     @Override
@@ -0,0 +1,78 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SourceBufferTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void lines_with_mixed_terminators() throws Exception {
+    SourceBuffer sourceBuffer = read("a\nbc\r\nd\re");
+
+    assertThat(sourceBuffer.getLineCount()).isEqualTo(4);
+    assertThat(sourceBuffer.getLineStart(1)).isEqualTo(0);
+    assertThat(sourceBuffer.getLineStart(2)).isEqualTo(2);
+    assertThat(sourceBuffer.getLineStart(3)).isEqualTo(6);
+    assertThat(sourceBuffer.getLineStart(4)).isEqualTo(8);
+    assertThat(sourceBuffer.getLine(2)).isEqualTo("bc");
+    assertThat(sourceBuffer.getLines()).containsExactly("a", "bc", "d", "e");
+    assertThat(sourceBuffer.endsWithNewLine()).isFalse();
+  }
+
+  @Test
+  public void terminator_at_end_of_file() throws Exception {
+    SourceBuffer sourceBuffer = read("a\r\n");
+
+    assertThat(sourceBuffer.getLineCount()).isEqualTo(2);
+    assertThat(sourceBuffer.getLine(2)).isEmpty();
+    assertThat(sourceBuffer.getLines()).isEqualTo(Files.readLines(sourceBuffer.getFile(), Charsets.UTF_8));
+    assertThat(sourceBuffer.endsWithNewLine()).isTrue();
+  }
+
+  @Test
+  public void empty_file() throws Exception {
+    SourceBuffer sourceBuffer = read("");
+
+    assertThat(sourceBuffer.getLineCount()).isEqualTo(1);
+    assertThat(sourceBuffer.getLines()).isEmpty();
+    assertThat(sourceBuffer.endsWithNewLine()).isFalse();
+  }
+
+  private SourceBuffer read(String content) throws Exception {
+    File file = temp.newFile();
+    Files.write(content, file, Charsets.UTF_8);
+    SourceBuffer sourceBuffer = SourceBuffer.read(file, Charsets.UTF_8);
+    assertThat(new String(sourceBuffer.getContent())).isEqualTo(content);
+    return sourceBuffer;
+  }
+
+}
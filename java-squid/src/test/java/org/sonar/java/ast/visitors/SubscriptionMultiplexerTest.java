@@ -0,0 +1,149 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SubscriptionMultiplexerTest {
+
+  private static final File FILE = new File("src/test/files/metrics/Comments.java");
+
+  @Test
+  public void should_visit_like_each_visitor_alone() {
+    RecordingVisitor methods = new RecordingVisitor(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR);
+    RecordingVisitor classesAndTrivia = new RecordingVisitor(Tree.Kind.CLASS, Tree.Kind.TRIVIA);
+    RecordingVisitor tokens = new RecordingVisitor(Tree.Kind.TOKEN, Tree.Kind.METHOD);
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(ImmutableList.of(methods, classesAndTrivia, tokens), null));
+
+    assertThat(methods.events).isEqualTo(scanAlone(new RecordingVisitor(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR)));
+    assertThat(classesAndTrivia.events).isEqualTo(scanAlone(new RecordingVisitor(Tree.Kind.CLASS, Tree.Kind.TRIVIA)));
+    assertThat(tokens.events).isEqualTo(scanAlone(new RecordingVisitor(Tree.Kind.TOKEN, Tree.Kind.METHOD)));
+    assertThat(methods.events).isNotEmpty();
+    assertThat(classesAndTrivia.events).isNotEmpty();
+    assertThat(tokens.events).isNotEmpty();
+  }
+
+  @Test
+  public void visitors_overriding_scan_should_not_be_multiplexed() {
+    assertThat(SubscriptionMultiplexer.canBeMultiplexed(new RecordingVisitor(Tree.Kind.CLASS))).isTrue();
+    assertThat(SubscriptionMultiplexer.canBeMultiplexed(new ScanningVisitor())).isFalse();
+    assertThat(SubscriptionMultiplexer.canBeMultiplexed(new Object())).isFalse();
+  }
+
+  @Test
+  public void multiplexer_should_take_place_of_first_multiplexed_visitor() {
+    final List<String> order = Lists.newArrayList();
+    JavaFileScanner scanner = new JavaFileScanner() {
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        order.add("scanner");
+      }
+    };
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(ImmutableList.of(new OrderVisitor(order, "first"), scanner, new OrderVisitor(order, "second")), null));
+
+    assertThat(order).isEqualTo(ImmutableList.of("first", "second", "scanner"));
+  }
+
+  private static List<String> scanAlone(RecordingVisitor visitor) {
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(visitor));
+    return visitor.events;
+  }
+
+  private static class RecordingVisitor extends SubscriptionVisitor {
+
+    private final List<Tree.Kind> nodesToVisit;
+    private final List<String> events = Lists.newArrayList();
+
+    RecordingVisitor(Tree.Kind... nodesToVisit) {
+      this.nodesToVisit = ImmutableList.copyOf(nodesToVisit);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return nodesToVisit;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      assertThat(context).isNotNull();
+      events.add("visit " + ((JavaTree) tree).getKind());
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + ((JavaTree) tree).getKind());
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      events.add("token " + syntaxToken.text());
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      events.add("trivia " + syntaxTrivia.comment());
+    }
+  }
+
+  private static class OrderVisitor extends SubscriptionVisitor {
+
+    private final List<String> order;
+    private final String name;
+
+    OrderVisitor(List<String> order, String name) {
+      this.order = order;
+      this.name = name;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return ImmutableList.of(Tree.Kind.COMPILATION_UNIT);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      order.add(name);
+    }
+  }
+
+  private static class ScanningVisitor extends RecordingVisitor {
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      super.scanFile(context);
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SubscriptionVisitorTest {
+
+  private static final File FILE = new File("src/test/files/metrics/Comments.java");
+
+  @Test
+  public void subscriptions_should_be_compiled_once() {
+    CountingVisitor visitor = new CountingVisitor(Tree.Kind.METHOD, Tree.Kind.TRIVIA);
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(visitor));
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(visitor));
+
+    assertThat(visitor.subscriptionRequests).isEqualTo(1);
+    assertThat(visitor.methods).isGreaterThan(0);
+    assertThat(visitor.tokens).isGreaterThan(0);
+    assertThat(visitor.trivias).isGreaterThan(0);
+  }
+
+  @Test
+  public void should_not_visit_tokens_without_subscription() {
+    CountingVisitor visitor = new CountingVisitor(Tree.Kind.METHOD);
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(visitor));
+
+    assertThat(visitor.methods).isGreaterThan(0);
+    assertThat(visitor.tokens).isEqualTo(0);
+    assertThat(visitor.trivias).isEqualTo(0);
+  }
+
+  private static class CountingVisitor extends SubscriptionVisitor {
+
+    private final List<Tree.Kind> nodesToVisit;
+    private int subscriptionRequests;
+    private int methods;
+    private int tokens;
+    private int trivias;
+
+    CountingVisitor(Tree.Kind... nodesToVisit) {
+      this.nodesToVisit = ImmutableList.copyOf(nodesToVisit);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      subscriptionRequests++;
+      return nodesToVisit;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      methods++;
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      tokens++;
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      trivias++;
+    }
+  }
+
+}
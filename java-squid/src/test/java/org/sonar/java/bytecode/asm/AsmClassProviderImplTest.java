@@ -24,7 +24,9 @@ import org.sonar.java.bytecode.ClassLoaderBuilder;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -108,4 +110,25 @@ public class AsmClassProviderImplTest {
     assertThat(asmClassProviderImpl.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS).getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
   }
 
+  @Test
+  public void load_classes_in_parallel() {
+    List<String> classes = Arrays.asList("java/lang/Integer", "java/lang/Double", "java/lang/UnknownClass", "java/lang/Character", "java/lang/String");
+    AsmClassProviderImpl sequential = new AsmClassProviderImpl(getClass().getClassLoader(), 1);
+    sequential.loadClasses(classes, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    AsmClassProviderImpl parallel = new AsmClassProviderImpl(getClass().getClassLoader(), 2);
+    parallel.loadClasses(classes, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+
+    for (String internalName : classes) {
+      AsmClass expected = sequential.getClass(internalName, DETAIL_LEVEL.NOTHING);
+      AsmClass actual = parallel.getClass(internalName, DETAIL_LEVEL.NOTHING);
+      assertThat(actual.getDetailLevel()).isEqualTo(expected.getDetailLevel());
+      assertThat(actual.getMethods()).hasSize(expected.getMethods().size());
+      assertThat(actual.getFields()).hasSize(expected.getFields().size());
+      assertThat(actual.getInterfaces()).hasSize(expected.getInterfaces().size());
+    }
+    AsmMethod parseIntMethod = getParseIntMethod(parallel.getClass("java/lang/Integer", DETAIL_LEVEL.NOTHING).getMethods());
+    assertThat(parseIntMethod.getThrows()).hasSize(1);
+    assertThat(parseIntMethod.getCallsToMethod()).isNotEmpty();
+  }
+
 }
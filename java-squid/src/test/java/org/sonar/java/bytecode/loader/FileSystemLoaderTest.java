@@ -61,6 +61,37 @@ public class FileSystemLoaderTest {
     loader.findResource("tags/TagName.class");
   }
 
+  @Test
+  public void testHasResource() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    FileSystemLoader loader = new FileSystemLoader(dir);
+
+    assertThat(loader.hasResource("notfound")).isFalse();
+    assertThat(loader.hasResource("tags")).isFalse();
+    assertThat(loader.hasResource("tags/TagName.class")).isTrue();
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.hasResource("tags/TagName.class");
+  }
+
+  @Test
+  public void testPackages() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    FileSystemLoader loader = new FileSystemLoader(dir);
+
+    assertThat(loader.packages()).contains("", "tags");
+    assertThat(loader.packages()).excludes("tags/TagName.class");
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.packages();
+  }
+
   @Test
   public void testLoadBytes() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
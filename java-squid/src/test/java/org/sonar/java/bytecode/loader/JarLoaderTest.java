@@ -88,6 +88,32 @@ public class JarLoaderTest {
     loader.loadBytes("META-INF/MANIFEST.MF");
   }
 
+  @Test
+  public void testHasResource() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    JarLoader loader = new JarLoader(jar);
+
+    assertThat(loader.hasResource("notfound")).isFalse();
+    assertThat(loader.hasResource("org/sonar/tests/Hello.class")).isTrue();
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("zip file closed");
+    loader.hasResource("org/sonar/tests/Hello.class");
+  }
+
+  @Test
+  public void testPackages() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    JarLoader loader = new JarLoader(jar);
+
+    assertThat(loader.packages()).containsOnly("", "org", "org/sonar", "org/sonar/tests", "META-INF", "META-INF/maven",
+      "META-INF/maven/org.sonar.tests", "META-INF/maven/org.sonar.tests/no-tests");
+
+    loader.close();
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.loader;
 
 import com.google.common.collect.Iterators;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Rule;
@@ -27,6 +28,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.File;
+import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -70,6 +72,16 @@ public class SquidClassLoaderTest {
     classLoader.loadClass("foo.Unknown");
   }
 
+  @Test
+  public void hasPackageOf() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(jar));
+
+    assertThat(classLoader.hasPackageOf("org/sonar/tests/Unknown.class")).isTrue();
+    assertThat(classLoader.hasPackageOf("com/Unknown.class")).isFalse();
+    assertThat(classLoader.hasPackageOf("java/lang/Integer.class")).isFalse();
+  }
+
   @Test
   public void unknownJarIsIgnored() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/unknown.jar");
@@ -118,6 +130,71 @@ public class SquidClassLoaderTest {
     assertThat(Iterators.forEnumeration(classLoader.findResources("notfound"))).hasSize(0);
   }
 
+  @Test
+  public void testHasResource() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir));
+
+    assertThat(classLoader.hasResource("java/lang/Integer.class")).isTrue();
+    assertThat(classLoader.hasResource("org/sonar/tests/Hello.class")).isTrue();
+    assertThat(classLoader.hasResource("tags/TagName.class")).isTrue();
+    assertThat(classLoader.hasResource("tags/Unknown.class")).isFalse();
+    assertThat(classLoader.hasResource("unknown/Unknown.class")).isFalse();
+    assertThat(classLoader.hasResource(SquidClassLoader.class.getName().replace('.', '/') + ".class")).isFalse();
+  }
+
+  @Test
+  public void testGetResourceAsStream() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir));
+
+    assertThat(IOUtils.toByteArray(classLoader.getResourceAsStream("java/lang/Integer.class"))).isNotEmpty();
+    assertThat(IOUtils.toByteArray(classLoader.getResourceAsStream("tags/TagName.class")))
+      .isEqualTo(FileUtils.readFileToByteArray(new File(dir, "tags/TagName.class")));
+    assertThat(classLoader.getResourceAsStream("tags/Unknown.class")).isNull();
+  }
+
+  @Test
+  public void directories_should_be_indexed_once_on_first_lookup() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir));
+    assertThat(classLoader.isIndexed()).isFalse();
+
+    assertThat(classLoader.hasResource("org/sonar/tests/Hello.class")).isTrue();
+    assertThat(classLoader.isIndexed()).isTrue();
+    assertThat(classLoader.hasResource("tags/TagName.class")).isTrue();
+  }
+
+  @Test
+  public void testJarOf() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(dir, jar));
+
+    assertThat(classLoader.jarOf("org/sonar/tests/Hello.class")).isEqualTo(jar);
+    assertThat(classLoader.jarOf("tags/TagName.class")).isNull();
+    assertThat(classLoader.jarOf("org/sonar/tests/Unknown.class")).isNull();
+    assertThat(classLoader.jarOf("java/lang/Integer.class")).isNotNull();
+  }
+
+  @Test
+  public void testJarOfUrl() throws Exception {
+    assertThat(SquidClassLoader.jarOf(new URL("jar", "", -1, "/lib/classes.jar!/org/example/A.class"))).isEqualTo(new File("/lib/classes.jar"));
+    assertThat(SquidClassLoader.jarOf(new URL("jar:file:/lib/my%20classes.jar!/org/example/A.class"))).isEqualTo(new File("/lib/my classes.jar"));
+    assertThat(SquidClassLoader.jarOf(new URL("file:/classes/org/example/A.class"))).isNull();
+  }
+
+  @Test
+  public void testPackageOf() {
+    assertThat(SquidClassLoader.packageOf("Foo.class")).isEqualTo("");
+    assertThat(SquidClassLoader.packageOf("org/")).isEqualTo("");
+    assertThat(SquidClassLoader.packageOf("org/sonar/Foo.class")).isEqualTo("org/sonar");
+    assertThat(SquidClassLoader.packageOf("org/sonar/")).isEqualTo("org");
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
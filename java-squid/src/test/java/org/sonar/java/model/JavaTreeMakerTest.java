@@ -30,6 +30,7 @@ import org.sonar.java.ast.parser.JavaGrammar;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.ast.parser.TypeArgumentListTreeImpl;
 import org.sonar.java.ast.parser.TypeParameterListTreeImpl;
+import org.sonar.java.model.declaration.ModifiersTreeImpl;
 import org.sonar.plugins.java.api.tree.AnnotationTree;
 import org.sonar.plugins.java.api.tree.ArrayAccessExpressionTree;
 import org.sonar.plugins.java.api.tree.ArrayTypeTree;
@@ -69,6 +70,7 @@ import org.sonar.plugins.java.api.tree.PrimitiveTypeTree;
 import org.sonar.plugins.java.api.tree.ReturnStatementTree;
 import org.sonar.plugins.java.api.tree.StatementTree;
 import org.sonar.plugins.java.api.tree.SwitchStatementTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.SynchronizedStatementTree;
 import org.sonar.plugins.java.api.tree.ThrowStatementTree;
 import org.sonar.plugins.java.api.tree.Tree;
@@ -83,6 +85,7 @@ import org.sonar.plugins.java.api.tree.WhileStatementTree;
 import org.sonar.plugins.java.api.tree.WildcardTree;
 
 import java.io.File;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -106,6 +109,68 @@ public class JavaTreeMakerTest {
     }
   }
 
+  @Test
+  public void parents_are_linked() {
+    CompilationUnitTree tree = maker.compilationUnit(p.parse("class A { void m() { int a = 1 + 2; } }"));
+    assertThat(((JavaTree) tree).parent()).isNull();
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    assertThat(((JavaTree) classTree).parent()).isSameAs(tree);
+    MethodTree methodTree = (MethodTree) classTree.members().get(0);
+    assertThat(((JavaTree) methodTree).parent()).isSameAs(classTree);
+    VariableTree variableTree = (VariableTree) methodTree.block().body().get(0);
+    assertThat(((JavaTree) variableTree).parent()).isSameAs(methodTree.block());
+    BinaryExpressionTree binaryTree = (BinaryExpressionTree) variableTree.initializer();
+    assertThat(((JavaTree) binaryTree).parent()).isSameAs(variableTree);
+    assertThat(((JavaTree) binaryTree.leftOperand()).parent()).isSameAs(binaryTree);
+  }
+
+  @Test
+  public void parents_are_linked_for_every_node() {
+    JavaTree tree = (JavaTree) maker.compilationUnit(p.parse(
+      "@interface Annotation { int value() default 0; }" +
+        "enum E { A(1) { }; E(int i) { } }" +
+        "@Annotation(1) class A<T extends Number & Comparable<? super T>> extends B implements C {" +
+        "  @Deprecated A(java.util.List<? extends T> list) { super(); }" +
+        "  <U> U m(Object o, int... a) throws Exception {" +
+        "    if (o instanceof String) { assert a.length > 0 : \"message\"; } else if (a == null) { return (U) o; }" +
+        "    for (int i : a) { i = i > 0 ? i : -i; }" +
+        "    switch (a[0]) { case 0: break; default: }" +
+        "    try (Resource r = new Resource()) { new int[] {1, 2}.clone(); } catch (IllegalStateException | IllegalArgumentException e) { } finally { }" +
+        "    Runnable r = () -> { }; r = new Runnable() { public void run() { } };" +
+        "    return null;" +
+        "  }" +
+        "}"));
+    assertParentsAreLinked(tree);
+  }
+
+  private static void assertParentsAreLinked(JavaTree tree) {
+    if (tree.isLeaf()) {
+      return;
+    }
+    for (Iterator<Tree> iter = tree.childrenIterator(); iter.hasNext(); ) {
+      JavaTree child = (JavaTree) iter.next();
+      // modifiers without tokens are shared between nodes
+      if (child != null && child != ModifiersTreeImpl.EMPTY) {
+        assertThat(child.parent()).as(child.getKind() + " in " + tree.getKind()).isSameAs(tree);
+        assertParentsAreLinked(child);
+      }
+    }
+  }
+
+  @Test
+  public void tokens_of_compilation_unit() {
+    JavaTree.CompilationUnitTreeImpl tree = (JavaTree.CompilationUnitTreeImpl) maker.compilationUnit(p.parse("class A { /* comment */ }"));
+    List<SyntaxToken> tokens = tree.tokens();
+    assertThat(tokens).hasSize(5);
+    assertThat(tokens.get(0).text()).isEqualTo("class");
+    assertThat(tokens.get(0).trivias()).isEmpty();
+    assertThat(tokens.get(3).text()).isEqualTo("}");
+    assertThat(tokens.get(3).trivias()).hasSize(1);
+    assertThat(tokens.get(3).trivias().get(0).comment()).isEqualTo("/* comment */");
+    assertThat(((InternalSyntaxToken) tokens.get(4)).isEOF()).isTrue();
+    assertThat(tree.tokens()).isSameAs(tokens);
+  }
+
   @Test
   public void explicit_generic_invocation() {
     p.parse("class A { void f() { <A>foo(); } }");
@@ -0,0 +1,182 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.model;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.api.source.Symbolizable;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.SourceAwareScannerContext;
+import org.sonar.java.ast.SourceBuffer;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.GeneratedClasses;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.resolve.Symbol;
+import org.sonar.java.resolve.Type;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VisitorsBridgeTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void files_should_share_symbols_of_libraries_but_prefer_classes_of_binaries() throws Exception {
+    File binaries = temp.newFolder("classes");
+    GeneratedClasses.writeClass(binaries, "org/example/Shadowed", "fromBinaries");
+    File library = new File(temp.getRoot(), "library.jar");
+    GeneratedClasses.writeJar(library, "org/example/Shadowed", "fromLibraries");
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    when(sonarComponents.getJavaBinaryDirs()).thenReturn(Collections.singletonList(binaries));
+    when(sonarComponents.getJavaLibraries()).thenReturn(Collections.singletonList(library));
+    when(sonarComponents.symbolizableFor(any(File.class))).thenReturn(mock(Symbolizable.class, RETURNS_DEEP_STUBS));
+
+    File sourceDir = temp.newFolder("src");
+    Files.write("class A { java.util.List list; org.example.Shadowed shadowed; }", new File(sourceDir, "A.java"), Charsets.UTF_8);
+    Files.write("class B { java.util.List list; org.example.Shadowed shadowed; }", new File(sourceDir, "B.java"), Charsets.UTF_8);
+    List<InputFile> inputFiles = Lists.newArrayList(
+      InputFileUtils.create(sourceDir, new File(sourceDir, "A.java")),
+      InputFileUtils.create(sourceDir, new File(sourceDir, "B.java")));
+
+    FieldTypes fieldTypes = new FieldTypes();
+    JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new VisitorsBridge(Collections.singletonList(fieldTypes), sonarComponents)).scan(inputFiles);
+
+    assertThat(fieldTypes.lists).hasSize(2);
+    assertThat(fieldTypes.lists.get(0)).isSameAs(fieldTypes.lists.get(1));
+    assertThat(fieldTypes.shadowed).hasSize(2);
+    assertThat(fieldTypes.shadowed.get(0)).isNotSameAs(fieldTypes.shadowed.get(1));
+    assertThat(fieldTypes.shadowedFromBinaries).isEqualTo(2);
+  }
+
+  @Test
+  public void files_should_share_class_loader_of_binaries() throws Exception {
+    File binaries = temp.newFolder("classes");
+    GeneratedClasses.writeClass(binaries, "org/example/Shadowed", "fromBinaries");
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    when(sonarComponents.getJavaBinaryDirs()).thenReturn(Collections.singletonList(binaries));
+    when(sonarComponents.getJavaLibraries()).thenReturn(Collections.<File>emptyList());
+    when(sonarComponents.symbolizableFor(any(File.class))).thenReturn(mock(Symbolizable.class, RETURNS_DEEP_STUBS));
+
+    File sourceDir = temp.newFolder("src");
+    Files.write("class A { org.example.Shadowed shadowed; }", new File(sourceDir, "A.java"), Charsets.UTF_8);
+    Files.write("class B { org.example.Shadowed shadowed; }", new File(sourceDir, "B.java"), Charsets.UTF_8);
+    List<InputFile> inputFiles = Lists.newArrayList(
+      InputFileUtils.create(sourceDir, new File(sourceDir, "A.java")),
+      InputFileUtils.create(sourceDir, new File(sourceDir, "B.java")));
+
+    ClassLoaders classLoaders = new ClassLoaders();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(Collections.singletonList(classLoaders), sonarComponents);
+    classLoaders.visitorsBridge = visitorsBridge;
+    JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), visitorsBridge).scan(inputFiles);
+
+    // index of binaries is built by the first file, and reused by the second one
+    assertThat(classLoaders.used).hasSize(2);
+    assertThat(classLoaders.used.get(0)).isSameAs(classLoaders.used.get(1));
+  }
+
+  @Test
+  public void content_of_file_should_be_given_to_visitors() throws Exception {
+    File sourceDir = temp.newFolder("src");
+    Files.write("class A {}\n", new File(sourceDir, "A.java"), Charsets.UTF_8);
+    List<InputFile> inputFiles = Lists.newArrayList(InputFileUtils.create(sourceDir, new File(sourceDir, "A.java")));
+
+    SourceBuffers sourceBuffers = new SourceBuffers();
+    JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new VisitorsBridge(sourceBuffers)).scan(inputFiles);
+
+    assertThat(sourceBuffers.used).hasSize(1);
+    assertThat(sourceBuffers.used.get(0).getLines()).containsExactly("class A {}");
+    assertThat(sourceBuffers.used.get(0).endsWithNewLine()).isTrue();
+  }
+
+  private static class SourceBuffers implements JavaFileScanner {
+
+    private final List<SourceBuffer> used = Lists.newArrayList();
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      used.add(((SourceAwareScannerContext) context).getSourceBuffer());
+    }
+
+  }
+
+  private static class ClassLoaders implements JavaFileScanner {
+
+    private final List<SquidClassLoader> used = Lists.newArrayList();
+    private VisitorsBridge visitorsBridge;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      used.add(visitorsBridge.getProjectClassLoader());
+    }
+
+  }
+
+  private static class FieldTypes extends BaseTreeVisitor implements JavaFileScanner {
+
+    private final List<Symbol.TypeSymbol> lists = Lists.newArrayList();
+    private final List<Symbol.TypeSymbol> shadowed = Lists.newArrayList();
+    private int shadowedFromBinaries;
+    private SemanticModel semanticModel;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      semanticModel = (SemanticModel) context.getSemanticModel();
+      scan(context.getTree());
+    }
+
+    @Override
+    public void visitVariable(VariableTree tree) {
+      Symbol.TypeSymbol type = ((Type.ClassType) semanticModel.getSymbol(tree).getType()).getSymbol();
+      if ("list".equals(tree.simpleName().name())) {
+        lists.add(type);
+      } else {
+        shadowed.add(type);
+        // symbols are completed before end of analysis, which closes class loaders
+        if (!type.members().lookup("fromBinaries").isEmpty() && type.members().lookup("fromLibraries").isEmpty()) {
+          shadowedFromBinaries++;
+        }
+      }
+      super.visitVariable(tree);
+    }
+
+  }
+
+}
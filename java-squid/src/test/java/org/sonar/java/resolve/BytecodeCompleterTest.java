@@ -22,6 +22,8 @@ package org.sonar.java.resolve;
 import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.resolve.targets.Annotations;
 import org.sonar.java.resolve.targets.AnonymousClass;
 import org.sonar.java.resolve.targets.HasInnerClass;
@@ -106,6 +108,35 @@ public class BytecodeCompleterTest {
     assertThat(symbol.type.symbol.owner().name).isEqualTo(thisTest.owner().name);
   }
 
+  @Test
+  public void loaded_class_should_be_completed() {
+    Symbol.TypeSymbol symbol = (Symbol.TypeSymbol) bytecodeCompleter.loadClass(BytecodeCompleterPackageVisibility.class.getName());
+    assertThat(symbol.members().lookup("add")).hasSize(1);
+    assertThat(bytecodeCompleter.loadClass(BytecodeCompleterPackageVisibility.class.getName())).isSameAs(symbol);
+    assertThat(bytecodeCompleter.loadClass(BytecodeCompleterPackageVisibility.class.getName().toUpperCase()).kind).isEqualTo(Symbol.ABSENT);
+  }
+
+  @Test
+  public void symbols_of_libraries_should_be_shared_between_files() {
+    BytecodeCompleter librariesCompleter = SemanticModel.createLibrariesCompleter(Lists.<File>newArrayList());
+    SquidClassLoader projectClassLoader = ClassLoaderBuilder.create(Lists.newArrayList(new File("target/test-classes"), new File("target/classes")));
+    BytecodeCompleter file1 = new BytecodeCompleter(librariesCompleter, projectClassLoader);
+    BytecodeCompleter file2 = new BytecodeCompleter(librariesCompleter, projectClassLoader);
+
+    Symbol.TypeSymbol arrayList = file1.getClassSymbol("java/util/ArrayList");
+    assertThat(file2.getClassSymbol("java/util/ArrayList")).isSameAs(arrayList);
+    assertThat(file2.loadClass("java.util.ArrayList")).isSameAs(arrayList);
+    assertThat(librariesCompleter.getHits()).isGreaterThan(0);
+
+    Symbol.TypeSymbol projectClass = file1.getClassSymbol(HasInnerClass.class.getName());
+    assertThat(file2.getClassSymbol(HasInnerClass.class.getName())).isNotSameAs(projectClass);
+    assertThat(projectClass.getSuperclass()).isSameAs(librariesCompleter.getClassSymbol("java.lang.Object").type);
+    file1.done();
+    file2.done();
+    projectClassLoader.close();
+    librariesCompleter.done();
+  }
+
   @Test
   public void void_method_type_should_be_resolved() {
     Symbol.TypeSymbol thisTest = bytecodeCompleter.getClassSymbol(Convert.bytecodeName(getClass().getName()));
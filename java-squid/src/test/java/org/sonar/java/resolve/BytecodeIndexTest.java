@@ -0,0 +1,161 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.sonar.java.resolve.targets.HasInnerClass;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BytecodeIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void classes_of_jar_are_completed_from_index_of_previous_analysis() throws Exception {
+    File jar = temp.newFile("classes.jar");
+    writeJar(jar, HasInnerClass.class, HasInnerClass.InnerClass.class, BytecodeCompleterPackageVisibility.class);
+    File dir = temp.newFolder("index");
+
+    BytecodeIndex index = new BytecodeIndex(dir);
+    assertThat(isIndexed(index, jar, HasInnerClass.class)).isFalse();
+    verifySymbols(jar, index);
+    assertThat(indexFileNames(dir, jar)).containsOnly(indexFileName(jar, 1));
+
+    index = new BytecodeIndex(dir);
+    assertThat(isIndexed(index, jar, HasInnerClass.class)).isTrue();
+    assertThat(isIndexed(index, jar, HasInnerClass.InnerClass.class)).isTrue();
+    verifySymbols(jar, index);
+    assertThat(index.getHits()).isGreaterThanOrEqualTo(3);
+  }
+
+  @Test
+  public void index_is_dropped_when_jar_changes() throws Exception {
+    File jar = temp.newFile("classes.jar");
+    writeJar(jar, HasInnerClass.class, HasInnerClass.InnerClass.class, BytecodeCompleterPackageVisibility.class);
+    File dir = temp.newFolder("index");
+    verifySymbols(jar, new BytecodeIndex(dir));
+
+    writeJar(jar, HasInnerClass.class, HasInnerClass.InnerClass.class, BytecodeCompleterPackageVisibility.class, BytecodeCompleterTest.class);
+    jar.setLastModified(jar.lastModified() + 2000);
+    BytecodeIndex index = new BytecodeIndex(dir);
+    assertThat(isIndexed(index, jar, HasInnerClass.class)).isFalse();
+    verifySymbols(jar, index);
+
+    assertThat(isIndexed(new BytecodeIndex(dir), jar, HasInnerClass.class)).isTrue();
+  }
+
+  @Test
+  public void classes_added_by_analysis_are_saved_in_new_file_and_files_are_merged_once_too_many() throws Exception {
+    File jar = temp.newFile("classes.jar");
+    writeJar(jar, HasInnerClass.class, HasInnerClass.InnerClass.class, BytecodeCompleterPackageVisibility.class);
+    File dir = temp.newFolder("index");
+
+    BytecodeCompleter bytecodeCompleter = createCompleter(jar, new BytecodeIndex(dir));
+    bytecodeCompleter.getClassSymbol(HasInnerClass.class.getName()).members();
+    bytecodeCompleter.done();
+    assertThat(indexFileNames(dir, jar)).containsOnly(indexFileName(jar, 1));
+
+    verifySymbols(jar, new BytecodeIndex(dir));
+    assertThat(indexFileNames(dir, jar)).containsOnly(indexFileName(jar, 1), indexFileName(jar, 2));
+
+    for (int generation = 3; generation <= 9; generation++) {
+      Files.copy(new File(dir, indexFileName(jar, 2)), new File(dir, indexFileName(jar, generation)));
+    }
+    BytecodeIndex index = new BytecodeIndex(dir);
+    assertThat(isIndexed(index, jar, HasInnerClass.class)).isTrue();
+    assertThat(isIndexed(index, jar, BytecodeCompleterPackageVisibility.class)).isTrue();
+    assertThat(indexFileNames(dir, jar)).containsOnly(indexFileName(jar, 10));
+  }
+
+  private static String indexFileName(File jar, int generation) {
+    return "classes.jar-" + Integer.toHexString(jar.getAbsolutePath().hashCode()) + "." + generation + ".idx";
+  }
+
+  /**
+   * Classes of JDK are indexed as well, so files of other JAR files are ignored.
+   */
+  private static String[] indexFileNames(File dir, File jar) {
+    final String prefix = jar.getName() + "-";
+    return dir.list(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith(prefix);
+      }
+    });
+  }
+
+  private static boolean isIndexed(BytecodeIndex index, File jar, Class clazz) {
+    return index.accept(jar, clazz.getName().replace('.', '/'), new ClassVisitor(Opcodes.ASM5) {
+    });
+  }
+
+  private static void verifySymbols(File jar, BytecodeIndex index) {
+    BytecodeCompleter bytecodeCompleter = createCompleter(jar, index);
+
+    Symbol.TypeSymbol outerClass = bytecodeCompleter.getClassSymbol(HasInnerClass.class.getName());
+    Symbol.TypeSymbol innerClass = bytecodeCompleter.getClassSymbol(HasInnerClass.InnerClass.class.getName());
+    assertThat(outerClass.members().lookup("InnerClass")).containsExactly(innerClass);
+    assertThat(innerClass.owner()).isSameAs(outerClass);
+    assertThat(innerClass.members().lookup("<init>")).hasSize(1);
+
+    Symbol.TypeSymbol classSymbol = bytecodeCompleter.getClassSymbol(BytecodeCompleterPackageVisibility.class.getName());
+    assertThat(classSymbol.getSuperclass().symbol.getName()).isEqualTo("Object");
+    Symbol method = classSymbol.members().lookup("add").get(0);
+    assertThat(((Type.MethodType) method.type).argTypes).hasSize(2);
+
+    bytecodeCompleter.done();
+  }
+
+  private static BytecodeCompleter createCompleter(File jar, BytecodeIndex index) {
+    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(ImmutableList.of(jar));
+    bytecodeCompleter.setIndex(index);
+    new Symbols(bytecodeCompleter);
+    return bytecodeCompleter;
+  }
+
+  private static void writeJar(File jar, Class... classes) throws Exception {
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      for (Class clazz : classes) {
+        String name = clazz.getName().replace('.', '/') + ".class";
+        out.putNextEntry(new ZipEntry(name));
+        out.write(Files.toByteArray(new File("target/test-classes", name)));
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+}
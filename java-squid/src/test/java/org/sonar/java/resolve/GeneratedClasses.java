@@ -0,0 +1,71 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.io.Files;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes class files with a single abstract method, so that tests can tell from which classpath element a class was read.
+ */
+public final class GeneratedClasses {
+
+  private GeneratedClasses() {
+  }
+
+  /**
+   * @param className internal name of class, i.e. "org/example/MyClass"
+   */
+  public static void writeClass(File dir, String className, String methodName) throws IOException {
+    File file = new File(dir, className + ".class");
+    Files.createParentDirs(file);
+    Files.write(classFile(className, methodName), file);
+  }
+
+  /**
+   * @param className internal name of class, i.e. "org/example/MyClass"
+   */
+  public static void writeJar(File jar, String className, String methodName) throws IOException {
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      out.putNextEntry(new ZipEntry(className + ".class"));
+      out.write(classFile(className, methodName));
+      out.closeEntry();
+    } finally {
+      out.close();
+    }
+  }
+
+  private static byte[] classFile(String className, String methodName) {
+    ClassWriter classWriter = new ClassWriter(0);
+    classWriter.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, className, null, "java/lang/Object", null);
+    classWriter.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, methodName, "()V", null, null).visitEnd();
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+}
@@ -188,4 +188,20 @@ public class ResolveTest {
     assertThat(resolve.isInheritedIn(symbol, clazz)).isFalse();
   }
 
+  @Test
+  public void method_resolution_is_cached() {
+    Symbol.PackageSymbol packageSymbol = new Symbol.PackageSymbol("package", null);
+    Symbol.TypeSymbol site = new Symbol.TypeSymbol(Flags.PUBLIC, "class", packageSymbol);
+    site.members = new Scope(site);
+    Type.MethodType methodType = new Type.MethodType(ImmutableList.<Type>of(), null, ImmutableList.<Type>of(), null);
+    Symbol.MethodSymbol method = new Symbol.MethodSymbol(Flags.PUBLIC, "method", methodType, site);
+    site.members.enter(method);
+
+    assertThat(resolve.findMethod(env, site, "method", ImmutableList.<Type>of())).isSameAs(method);
+    assertThat(resolve.findMethod(env, site, "method", ImmutableList.<Type>of())).isSameAs(method);
+    assertThat(resolve.findMethod(env, site, "another", ImmutableList.<Type>of()).kind).isEqualTo(Symbol.ABSENT);
+    assertThat(resolve.getResolvedMethodsHits()).isEqualTo(1);
+    assertThat(resolve.getResolvedMethodsMisses()).isEqualTo(2);
+  }
+
 }
@@ -23,6 +23,9 @@ import org.junit.Test;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ScopeTest {
 
@@ -60,4 +63,22 @@ public class ScopeTest {
     assertThat(scope.lookup("nonexistent")).isEmpty();
   }
 
+  @Test
+  public void star_import_lookups_are_remembered_until_next_import() {
+    BytecodeCompleter bytecodeCompleter = mock(BytecodeCompleter.class);
+    Symbol symbol = new Symbol(Symbol.TYP, 0, "name", null);
+    when(bytecodeCompleter.formFullName("name", owner)).thenReturn("package.name");
+    when(bytecodeCompleter.loadClass("package.name")).thenReturn(symbol);
+    Scope scope = new Scope.StarImportScope(owner, bytecodeCompleter);
+    scope.enter(owner);
+
+    assertThat(scope.lookup("name")).containsOnly(symbol);
+    assertThat(scope.lookup("name")).containsOnly(symbol);
+    verify(bytecodeCompleter, times(1)).loadClass("package.name");
+
+    scope.enter(owner);
+    assertThat(scope.lookup("name")).hasSize(2);
+    verify(bytecodeCompleter, times(3)).loadClass("package.name");
+  }
+
 }
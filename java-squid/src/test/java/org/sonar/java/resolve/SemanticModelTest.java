@@ -0,0 +1,176 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.sonar.sslr.impl.Parser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaTreeMaker;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SemanticModelTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final Parser parser = JavaParser.createParser(Charsets.UTF_8, true);
+  private BytecodeCompleter librariesCompleter;
+  private SquidClassLoader projectClassLoader;
+
+  @Before
+  public void setUp() throws Exception {
+    File binaries = temp.newFolder("classes");
+    GeneratedClasses.writeClass(binaries, "org/example/Shadowed", "fromBinaries");
+    File library = new File(temp.getRoot(), "library.jar");
+    GeneratedClasses.writeJar(library, "org/example/Shadowed", "fromLibraries");
+    librariesCompleter = SemanticModel.createLibrariesCompleter(Collections.singletonList(library));
+    projectClassLoader = ClassLoaderBuilder.create(Collections.singletonList(binaries));
+  }
+
+  @After
+  public void tearDown() {
+    projectClassLoader.close();
+    librariesCompleter.done();
+  }
+
+  @Test
+  public void symbols_of_libraries_should_be_shared_between_files() {
+    SemanticModel file1 = createFor("class A { java.util.List field; }");
+    SemanticModel file2 = createFor("class B { java.util.List field; }");
+
+    Symbol.TypeSymbol list = fieldType(file1);
+    assertThat(list.name).isEqualTo("List");
+    assertThat(fieldType(file2)).isSameAs(list);
+  }
+
+  @Test
+  public void classes_of_binaries_should_take_precedence_over_libraries() {
+    SemanticModel file1 = createFor("class A { org.example.Shadowed field; }");
+    SemanticModel file2 = createFor("class B { org.example.Shadowed field; }");
+
+    Symbol.TypeSymbol shadowed = fieldType(file1);
+    assertThat(shadowed.members().lookup("fromBinaries")).hasSize(1);
+    assertThat(shadowed.members().lookup("fromLibraries")).isEmpty();
+    // symbols of binaries are not shared, because they can refer to symbols from sources of a file
+    assertThat(fieldType(file2)).isNotSameAs(shadowed);
+    assertThat(file1.getProjectClassFiles()).containsOnly("org/example/Shadowed.class");
+  }
+
+  @Test
+  public void trees_should_be_identified_within_their_compilation_unit() {
+    CompilationUnitTree tree = new JavaTreeMaker().compilationUnit(parser.parse("class A { int field; }"));
+    SemanticModel first = SemanticModel.createFor(tree, librariesCompleter, projectClassLoader);
+    SemanticModel second = SemanticModel.createFor(tree, librariesCompleter, projectClassLoader);
+
+    assertThat(first.getSymbolsTree()).isNotEmpty();
+    for (Map.Entry<Tree, Symbol> entry : first.getSymbolsTree().entrySet()) {
+      assertThat(first.getSymbol(entry.getKey())).isSameAs(entry.getValue());
+      // ids given by first model are kept, so that second one finds its own symbols
+      Symbol symbol = second.getSymbol(entry.getKey());
+      assertThat(symbol).isNotSameAs(entry.getValue());
+      assertThat(second.getTree(symbol)).isSameAs(entry.getKey());
+    }
+    // trees without symbol have no id
+    assertThat(first.getSymbol(tree)).isNull();
+    assertThat(((JavaTree) tree).id()).isEqualTo(-1);
+  }
+
+  @Test
+  public void symbols_should_not_depend_on_order_of_files() {
+    String fileA = "package org.example; class A { String string; Thread.State state; Shadowed shadowed; }";
+    String fileB = "package org.example; import java.util.*; class B { String string; State state; List list; Shadowed shadowed; }";
+
+    Map<String, String> forward = fieldTypes(fileA, fileB);
+    Map<String, String> backward = fieldTypes(fileB, fileA);
+
+    assertThat(forward).isEqualTo(backward);
+    assertThat(forward.get("A.string")).isEqualTo("java.lang.String");
+    assertThat(forward.get("A.state")).isEqualTo("java.lang.Thread$State");
+    assertThat(forward.get("B.state")).isEqualTo("!unknown!");
+    assertThat(forward.get("B.list")).isEqualTo("java.util.List");
+    assertThat(forward.get("B.shadowed")).isEqualTo("org.example.Shadowed");
+  }
+
+  /**
+   * Analyzes given files one after the other, with a new completer of libraries,
+   * and returns qualified names of types of their fields, indexed by "Class.field".
+   */
+  private Map<String, String> fieldTypes(String... sources) {
+    BytecodeCompleter completer = SemanticModel.createLibrariesCompleter(Collections.<File>emptyList());
+    Map<String, String> result = Maps.newHashMap();
+    try {
+      for (String source : sources) {
+        for (Symbol symbol : createFor(source, completer).getSymbolsTree().values()) {
+          if (symbol.kind == Symbol.VAR) {
+            result.put(symbol.owner().name + "." + symbol.name, qualifiedName(symbol.getType()));
+          }
+        }
+      }
+    } finally {
+      completer.done();
+    }
+    return result;
+  }
+
+  private static String qualifiedName(Type type) {
+    if (type.tag == Type.UNKNOWN) {
+      return type.toString();
+    }
+    Symbol symbol = type.symbol;
+    if (symbol.owner().kind == Symbol.TYP) {
+      return qualifiedName(symbol.owner().type) + "$" + symbol.name;
+    }
+    return symbol.owner().name + "." + symbol.name;
+  }
+
+  private SemanticModel createFor(String source, BytecodeCompleter completer) {
+    return SemanticModel.createFor(new JavaTreeMaker().compilationUnit(parser.parse(source)), completer, projectClassLoader);
+  }
+
+  private SemanticModel createFor(String source) {
+    return createFor(source, librariesCompleter);
+  }
+
+  private static Symbol.TypeSymbol fieldType(SemanticModel semanticModel) {
+    for (Symbol symbol : semanticModel.getSymbolsTree().values()) {
+      if ("field".equals(symbol.name)) {
+        return symbol.getType().symbol;
+      }
+    }
+    throw new IllegalArgumentException("Symbol not found");
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import org.junit.Test;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SymbolUsagesTest {
+
+  private final SymbolUsages usages = new SymbolUsages();
+
+  @Test
+  public void usages_are_grouped_by_symbol() {
+    Symbol first = new Symbol(0, 0, "first", null);
+    Symbol second = new Symbol(0, 0, "second", null);
+    IdentifierTree tree1 = mock(IdentifierTree.class);
+    IdentifierTree tree2 = mock(IdentifierTree.class);
+    IdentifierTree tree3 = mock(IdentifierTree.class);
+    usages.add(first, tree1);
+    usages.add(second, tree2);
+    usages.add(first, tree3);
+
+    assertThat(usages.get(first)).containsOnly(tree1, tree3);
+    assertThat(usages.get(second)).containsOnly(tree2);
+    assertThat(usages.get(new Symbol(0, 0, "first", null))).isEmpty();
+    assertThat(usages.symbols()).containsOnly(first, second);
+  }
+
+  @Test
+  public void usage_is_counted_once() {
+    Symbol symbol = new Symbol(0, 0, "symbol", null);
+    IdentifierTree tree = mock(IdentifierTree.class);
+    usages.add(symbol, tree);
+    usages.add(symbol, tree);
+
+    assertThat(usages.get(symbol)).hasSize(1);
+  }
+
+  @Test
+  public void usages_can_be_added_after_query() {
+    Symbol symbol = new Symbol(0, 0, "symbol", null);
+    IdentifierTree tree1 = mock(IdentifierTree.class);
+    IdentifierTree tree2 = mock(IdentifierTree.class);
+    usages.add(symbol, tree1);
+    assertThat(usages.get(symbol)).containsOnly(tree1);
+
+    for (int i = 0; i < 100; i++) {
+      usages.add(symbol, tree2);
+    }
+    assertThat(usages.get(symbol)).hasSize(2).containsOnly(tree1, tree2);
+  }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.jacoco;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.sonar.java.jacoco.JacocoController.JacocoControllerError;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Appends execution data, taken in memory from the agent, to its report from a background thread, so that tests do not wait for writes to disk.
+ * Execution data of classes without executed probes is dropped, because agent includes all loaded classes in each snapshot.
+ */
+class ExecutionDataAppender {
+
+  /**
+   * Size of snapshots waiting to be written, above which tests wait for the writer.
+   */
+  private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+  private static final byte[] END = new byte[0];
+
+  private final File file;
+  private final BlockingQueue<byte[]> snapshots = new LinkedBlockingQueue<byte[]>();
+  private final int maxPendingBytes;
+  private final Semaphore pendingBytes;
+  private final Thread writer;
+  /**
+   * First failure of writer, after which snapshots are dropped and tests fail.
+   */
+  private volatile Throwable failure;
+
+  ExecutionDataAppender(File file) {
+    this(file, MAX_PENDING_BYTES);
+  }
+
+  ExecutionDataAppender(File file, int maxPendingBytes) {
+    this.file = file;
+    this.maxPendingBytes = maxPendingBytes;
+    this.pendingBytes = new Semaphore(maxPendingBytes);
+    this.writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeSnapshots();
+      }
+    }, "sonar-jacoco-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Returns appender to the report of JaCoCo agent given in arguments of JVM,
+   * or null when agent does not append execution data to a file, in which case execution data must be dumped by the agent itself.
+   */
+  static ExecutionDataAppender forAgent(List<String> jvmArguments) {
+    for (String argument : jvmArguments) {
+      if (argument.startsWith("-javaagent:") && argument.contains("jacoco")) {
+        int optionsStart = argument.indexOf('=');
+        File file = destFile(optionsStart < 0 ? "" : argument.substring(optionsStart + 1));
+        return file == null ? null : new ExecutionDataAppender(file);
+      }
+    }
+    return null;
+  }
+
+  private static File destFile(String agentOptions) {
+    String destFile = "jacoco.exec";
+    for (String option : agentOptions.split(",")) {
+      int i = option.indexOf('=');
+      String key = i < 0 ? option : option.substring(0, i);
+      String value = i < 0 ? "" : option.substring(i + 1);
+      if ("destfile".equals(key)) {
+        destFile = value;
+      } else if (("output".equals(key) && !"file".equals(value)) || ("append".equals(key) && !"true".equals(value))) {
+        // Agent writes elsewhere, or would overwrite execution data appended by this class
+        return null;
+      }
+    }
+    return new File(destFile).getAbsoluteFile();
+  }
+
+  void append(byte[] executionData) {
+    checkFailure();
+    try {
+      // Snapshot larger than the limit is written alone
+      pendingBytes.acquire(permits(executionData));
+      snapshots.put(executionData);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JacocoControllerError(e);
+    }
+  }
+
+  /**
+   * Waits until all execution data appended so far is written, and file is not locked anymore.
+   * Permits of snapshots are released only once they are written, so that all of them are available when nothing is pending.
+   */
+  void flush() {
+    try {
+      pendingBytes.acquire(maxPendingBytes);
+      pendingBytes.release(maxPendingBytes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JacocoControllerError(e);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Writes remaining execution data and stops writer. Never fails, because it is called at exit of JVM,
+   * where nothing can handle an error: failure of writer is only printed.
+   */
+  void close() {
+    try {
+      snapshots.put(END);
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      System.err.println("Unable to write coverage per test to " + file + ": " + failure);
+    }
+  }
+
+  private int permits(byte[] executionData) {
+    return Math.min(executionData.length, maxPendingBytes);
+  }
+
+  private void checkFailure() {
+    if (failure != null) {
+      throw new JacocoControllerError(failure);
+    }
+  }
+
+  /**
+   * Runs until the end of snapshots even after a failure, so that permits of pending snapshots are always released
+   * and tests never wait for a writer, which is gone.
+   */
+  private void writeSnapshots() {
+    List<byte[]> batch = new ArrayList<byte[]>();
+    boolean end = false;
+    while (!end) {
+      try {
+        batch.add(snapshots.take());
+        snapshots.drainTo(batch);
+        end = batch.remove(END);
+        if (failure == null && !batch.isEmpty()) {
+          write(batch);
+        }
+      } catch (Throwable e) {
+        // For instance classes of JaCoCo are missing, or lock of file failed
+        if (failure == null) {
+          failure = e;
+        }
+      } finally {
+        for (byte[] executionData : batch) {
+          pendingBytes.release(permits(executionData));
+        }
+        batch.clear();
+      }
+    }
+  }
+
+  void write(List<byte[]> batch) throws IOException {
+    FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+    try {
+      // Same lock as the one of agent, which also appends to this file at the end of execution
+      lock(fileOutputStream);
+      OutputStream outputStream = new BufferedOutputStream(fileOutputStream);
+      for (byte[] executionData : batch) {
+        outputStream.write(withoutEmptyClasses(executionData));
+      }
+      outputStream.flush();
+    } finally {
+      fileOutputStream.close();
+    }
+  }
+
+  private void lock(FileOutputStream fileOutputStream) throws IOException {
+    while (true) {
+      try {
+        fileOutputStream.getChannel().lock();
+        return;
+      } catch (OverlappingFileLockException e) {
+        // Lock is held by agent in this JVM
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for lock of " + file, interrupted);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes execution data of classes without executed probes.
+   * Execution data is returned unchanged if it can not be read, for instance because it comes from an agent using another version of format.
+   */
+  static byte[] withoutEmptyClasses(byte[] executionData) {
+    ByteArrayOutputStream result = new ByteArrayOutputStream(executionData.length);
+    try {
+      ExecutionDataReader reader = new ExecutionDataReader(new ByteArrayInputStream(executionData));
+      final ExecutionDataWriter writer = new ExecutionDataWriter(result);
+      reader.setSessionInfoVisitor(writer);
+      reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+        @Override
+        public void visitClassExecution(ExecutionData data) {
+          if (isExecuted(data)) {
+            writer.visitClassExecution(data);
+          }
+        }
+      });
+      reader.read();
+    } catch (IOException e) {
+      return executionData;
+    } catch (RuntimeException e) {
+      // Malformed execution data
+      return executionData;
+    }
+    return result.toByteArray();
+  }
+
+  private static boolean isExecuted(ExecutionData data) {
+    for (boolean probe : data.getProbes()) {
+      if (probe) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
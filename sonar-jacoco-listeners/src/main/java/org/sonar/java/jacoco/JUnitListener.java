@@ -20,6 +20,7 @@
 package org.sonar.java.jacoco;
 
 import org.junit.runner.Description;
+import org.junit.runner.Result;
 import org.junit.runner.notification.RunListener;
 
 /**
@@ -47,6 +48,11 @@ public class JUnitListener extends RunListener {
     jacoco.onTestFinish(getName(description));
   }
 
+  @Override
+  public void testRunFinished(Result result) {
+    jacoco.onTestRunFinish();
+  }
+
   private static String getName(Description description) {
     return description.getClassName() + " " + description.getMethodName();
   }
@@ -23,13 +23,24 @@ import org.jacoco.agent.rt.IAgent;
 import org.jacoco.agent.rt.RT;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 class JacocoController {
 
   private static final String ERROR = "Unable to access JaCoCo Agent - make sure that you use JaCoCo and version not lower than 0.6.2.";
 
+  /**
+   * Class of JaCoCo core required by {@link ExecutionDataAppender}, which is not a dependency of listeners at runtime.
+   */
+  private static final String EXECUTION_DATA_READER = "org.jacoco.core.data.ExecutionDataReader";
+
   private final IAgent agent;
 
+  /**
+   * Null when execution data is dumped by the agent itself.
+   */
+  private final ExecutionDataAppender appender;
+
   private boolean testStarted;
 
   private static JacocoController singleton;
@@ -49,10 +60,43 @@ class JacocoController {
     } catch (Exception e) {
       throw new JacocoControllerError(ERROR, e);
     }
+    if (canFilterExecutionData(JacocoController.class.getClassLoader())) {
+      this.appender = ExecutionDataAppender.forAgent(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    } else {
+      this.appender = null;
+    }
+    if (appender != null) {
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          // Only for execution data of tests after the last end of run notified to listeners, which is written concurrently with dump of agent
+          appender.close();
+        }
+      });
+    }
+  }
+
+  /**
+   * Execution data is appended in background only when JaCoCo core is on classpath of tests, otherwise it is dumped by the agent itself.
+   */
+  static boolean canFilterExecutionData(ClassLoader classLoader) {
+    try {
+      Class.forName(EXECUTION_DATA_READER, false, classLoader);
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    } catch (LinkageError e) {
+      return false;
+    }
   }
 
   JacocoController(IAgent agent) {
+    this(agent, null);
+  }
+
+  JacocoController(IAgent agent, ExecutionDataAppender appender) {
     this.agent = agent;
+    this.appender = appender;
   }
 
   public synchronized void onTestStart(String name) {
@@ -70,8 +114,26 @@ class JacocoController {
     testStarted = false;
   }
 
+  /**
+   * Waits until execution data of tests is written, so that the file is not locked anymore when agent dumps to it at exit of JVM:
+   * agent fails to lock a file which is already locked in the same JVM, and would lose its execution data.
+   */
+  public synchronized void onTestRunFinish() {
+    if (appender != null) {
+      appender.flush();
+    }
+  }
+
+  /**
+   * When agent appends to a file, execution data since previous dump is taken in memory and written in background,
+   * otherwise agent dumps it synchronously.
+   */
   private void dump(String sessionId) {
     agent.setSessionId(sessionId);
+    if (appender != null) {
+      appender.append(agent.getExecutionData(true));
+      return;
+    }
     try {
       agent.dump(true);
     } catch (IOException e) {
@@ -65,7 +65,7 @@ public class TestNGListener extends JUnitListener implements ITestListener {
   }
 
   public void onFinish(ITestContext context) {
-    // nop
+    jacoco.onTestRunFinish();
   }
 
 }
@@ -0,0 +1,253 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.jacoco;
+
+import org.jacoco.agent.rt.IAgent;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.jacoco.JacocoController.JacocoControllerError;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExecutionDataAppenderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_remove_classes_without_executed_probes() throws IOException {
+    byte[] executionData = executionData("test",
+      new ExecutionData(1, "Executed", new boolean[] {false, false, false, false, false, false, false, false, true}),
+      new ExecutionData(2, "NotExecuted", new boolean[] {false, false, false, false, false, false, false, false, false}),
+      new ExecutionData(3, "Empty", new boolean[0]));
+
+    byte[] filtered = ExecutionDataAppender.withoutEmptyClasses(executionData);
+
+    SessionInfoStore sessionInfoStore = new SessionInfoStore();
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    read(new ByteArrayInputStream(filtered), sessionInfoStore, executionDataStore);
+    assertEquals("test", sessionInfoStore.getInfos().get(0).getId());
+    assertEquals(1, executionDataStore.getContents().size());
+    assertEquals("Executed", executionDataStore.get(1).getName());
+    assertEquals(true, executionDataStore.get(1).getProbes()[8]);
+  }
+
+  @Test
+  public void should_not_change_execution_data_of_unknown_format() throws IOException {
+    byte[] executionData = executionData("test", new ExecutionData(1, "NotExecuted", new boolean[] {false}));
+    byte[] unknownVersion = Arrays.copyOf(executionData, executionData.length);
+    unknownVersion[3]++;
+    assertArrayEquals(unknownVersion, ExecutionDataAppender.withoutEmptyClasses(unknownVersion));
+
+    byte[] unknownBlock = Arrays.copyOf(executionData, executionData.length);
+    // Type of session info block, which follows header
+    unknownBlock[5] = 0x7F;
+    assertArrayEquals(unknownBlock, ExecutionDataAppender.withoutEmptyClasses(unknownBlock));
+  }
+
+  @Test
+  public void should_append_execution_data_to_file() throws IOException {
+    File file = temporaryFolder.newFile("jacoco.exec");
+    ExecutionDataAppender appender = new ExecutionDataAppender(file);
+    appender.append(executionData("", new ExecutionData(1, "A", new boolean[] {true})));
+    appender.append(executionData("test", new ExecutionData(1, "A", new boolean[] {false}), new ExecutionData(2, "B", new boolean[] {true})));
+    appender.close();
+
+    SessionInfoStore sessionInfoStore = new SessionInfoStore();
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      read(inputStream, sessionInfoStore, executionDataStore);
+    } finally {
+      inputStream.close();
+    }
+    assertEquals(2, sessionInfoStore.getInfos().size());
+    assertEquals(2, executionDataStore.getContents().size());
+  }
+
+  @Test
+  public void should_wait_for_writer_when_too_many_bytes_are_pending() throws IOException {
+    File file = temporaryFolder.newFile("jacoco.exec");
+    ExecutionDataAppender appender = new ExecutionDataAppender(file, 10);
+    for (int i = 0; i < 100; i++) {
+      appender.append(executionData("test" + i, new ExecutionData(i, "A" + i, new boolean[] {true})));
+    }
+    appender.close();
+
+    SessionInfoStore sessionInfoStore = new SessionInfoStore();
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      read(inputStream, sessionInfoStore, executionDataStore);
+    } finally {
+      inputStream.close();
+    }
+    assertEquals(100, sessionInfoStore.getInfos().size());
+    assertEquals(100, executionDataStore.getContents().size());
+  }
+
+  @Test(timeout = 10000)
+  public void should_fail_instead_of_waiting_when_writer_failed() throws IOException {
+    File file = temporaryFolder.newFile("jacoco.exec");
+    ExecutionDataAppender appender = new ExecutionDataAppender(file, 10) {
+      @Override
+      void write(List<byte[]> batch) {
+        throw new NoClassDefFoundError("org/jacoco/core/data/ExecutionDataReader");
+      }
+    };
+    try {
+      for (int i = 0; i < 100; i++) {
+        appender.append(executionData("test" + i, new ExecutionData(i, "A" + i, new boolean[] {true})));
+      }
+      appender.flush();
+      fail();
+    } catch (JacocoControllerError e) {
+      assertTrue(e.getCause() instanceof NoClassDefFoundError);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void close_should_not_fail_when_writer_failed() throws IOException {
+    File file = temporaryFolder.newFile("jacoco.exec");
+    ExecutionDataAppender appender = new ExecutionDataAppender(file) {
+      @Override
+      void write(List<byte[]> batch) {
+        throw new NoClassDefFoundError("org/jacoco/core/data/ExecutionDataReader");
+      }
+    };
+    appender.append(executionData("test", new ExecutionData(1, "A", new boolean[] {true})));
+    appender.close();
+  }
+
+  @Test
+  public void execution_data_should_be_written_before_dump_of_agent_to_same_file() throws IOException {
+    File file = temporaryFolder.newFile("jacoco.exec");
+    ExecutionDataAppender appender = new ExecutionDataAppender(file) {
+      @Override
+      void write(List<byte[]> batch) throws IOException {
+        try {
+          // Writer is behind tests
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        super.write(batch);
+      }
+    };
+    IAgent agent = mock(IAgent.class);
+    when(agent.getExecutionData(true)).thenReturn(
+      executionData("", new ExecutionData(1, "A", new boolean[] {true})),
+      executionData("test", new ExecutionData(2, "B", new boolean[] {true})));
+    JacocoController jacoco = new JacocoController(agent, appender);
+
+    jacoco.onTestStart("test");
+    jacoco.onTestFinish("test");
+    jacoco.onTestRunFinish();
+    dumpAsAgent(file, executionData("exit", new ExecutionData(3, "C", new boolean[] {true})));
+    appender.close();
+
+    SessionInfoStore sessionInfoStore = new SessionInfoStore();
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      read(inputStream, sessionInfoStore, executionDataStore);
+    } finally {
+      inputStream.close();
+    }
+    List<SessionInfo> sessions = sessionInfoStore.getInfos();
+    assertEquals(3, sessions.size());
+    assertEquals("", sessions.get(0).getId());
+    assertEquals("test", sessions.get(1).getId());
+    assertEquals("exit", sessions.get(2).getId());
+    assertEquals(3, executionDataStore.getContents().size());
+  }
+
+  /**
+   * Same as the dump of agent at exit of JVM, which fails with {@link java.nio.channels.OverlappingFileLockException}
+   * when file is locked in the same JVM.
+   */
+  private static void dumpAsAgent(File file, byte[] executionData) throws IOException {
+    FileOutputStream outputStream = new FileOutputStream(file, true);
+    try {
+      outputStream.getChannel().lock();
+      outputStream.write(executionData);
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  @Test
+  public void should_find_report_of_agent() {
+    ExecutionDataAppender appender = ExecutionDataAppender.forAgent(Arrays.asList("-Xmx512m",
+      "-javaagent:/path/org.jacoco.agent-runtime.jar=destfile=target/jacoco.exec,append=true,includes=org.*"));
+    assertNotNull(appender);
+    appender.close();
+    appender = ExecutionDataAppender.forAgent(Collections.singletonList("-javaagent:/path/jacocoagent.jar"));
+    assertNotNull(appender);
+    appender.close();
+
+    assertNull(ExecutionDataAppender.forAgent(Collections.singletonList("-Xmx512m")));
+    assertNull(ExecutionDataAppender.forAgent(Collections.singletonList("-javaagent:/path/jacocoagent.jar=output=tcpserver")));
+    assertNull(ExecutionDataAppender.forAgent(Collections.singletonList("-javaagent:/path/jacocoagent.jar=destfile=jacoco.exec,append=false")));
+  }
+
+  private static byte[] executionData(String sessionId, ExecutionData... data) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ExecutionDataWriter writer = new ExecutionDataWriter(outputStream);
+    writer.visitSessionInfo(new SessionInfo(sessionId, 1, 2));
+    for (ExecutionData executionData : data) {
+      writer.visitClassExecution(executionData);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static void read(InputStream inputStream, SessionInfoStore sessionInfoStore, ExecutionDataStore executionDataStore) throws IOException {
+    ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+    reader.setSessionInfoVisitor(sessionInfoStore);
+    reader.setExecutionDataVisitor(executionDataStore);
+    reader.read();
+  }
+
+}
@@ -63,6 +63,7 @@ public class JUnitListenerTest {
     InOrder orderedExecution = inOrder(jacoco);
     orderedExecution.verify(jacoco).onTestStart(testName);
     orderedExecution.verify(jacoco).onTestFinish(testName);
+    orderedExecution.verify(jacoco).onTestRunFinish();
   }
 
   @Test
@@ -72,6 +73,7 @@ public class JUnitListenerTest {
     InOrder orderedExecution = inOrder(jacoco);
     orderedExecution.verify(jacoco).onTestStart(testName);
     orderedExecution.verify(jacoco).onTestFinish(testName);
+    orderedExecution.verify(jacoco).onTestRunFinish();
   }
 
   private void execute(Class cls) {
@@ -30,9 +30,13 @@ import org.sonar.java.jacoco.JacocoController.JacocoControllerError;
 
 import java.io.IOException;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -69,6 +73,48 @@ public class JacocoControllerTest {
     verifyNoMoreInteractions(agent);
   }
 
+  @Test
+  public void should_append_execution_data_taken_in_memory() throws Exception {
+    ExecutionDataAppender appender = mock(ExecutionDataAppender.class);
+    jacoco = new JacocoController(agent, appender);
+    byte[] executionData = new byte[] {1};
+    when(agent.getExecutionData(true)).thenReturn(executionData);
+
+    jacoco.onTestStart("test");
+    jacoco.onTestFinish("test");
+
+    InOrder inOrder = Mockito.inOrder(agent, appender);
+    inOrder.verify(agent).setSessionId("");
+    inOrder.verify(agent).getExecutionData(true);
+    inOrder.verify(appender).append(executionData);
+    inOrder.verify(agent).setSessionId("test");
+    inOrder.verify(agent).getExecutionData(true);
+    inOrder.verify(appender).append(executionData);
+    verify(agent, never()).dump(anyBoolean());
+  }
+
+  @Test
+  public void should_wait_for_appender_at_end_of_run() {
+    ExecutionDataAppender appender = mock(ExecutionDataAppender.class);
+    jacoco = new JacocoController(agent, appender);
+    jacoco.onTestRunFinish();
+    verify(appender).flush();
+  }
+
+  @Test
+  public void end_of_run_should_be_ignored_when_agent_dumps_itself() {
+    jacoco.onTestRunFinish();
+    verifyNoMoreInteractions(agent);
+  }
+
+  @Test
+  public void should_append_execution_data_only_when_jacoco_core_is_available() {
+    assertTrue(JacocoController.canFilterExecutionData(getClass().getClassLoader()));
+    // Class loader of JDK only
+    assertFalse(JacocoController.canFilterExecutionData(new ClassLoader(null) {
+    }));
+  }
+
   @Test
   public void should_throw_exception_when_dump_failed() throws Exception {
     doThrow(IOException.class).when(agent).dump(anyBoolean());
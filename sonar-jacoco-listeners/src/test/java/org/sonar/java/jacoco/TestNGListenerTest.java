@@ -22,8 +22,10 @@ package org.sonar.java.jacoco;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.Description;
+import org.junit.runner.Result;
 import org.mockito.InOrder;
 import org.testng.ITestClass;
+import org.testng.ITestContext;
 import org.testng.ITestNGMethod;
 import org.testng.ITestResult;
 import org.testng.TestNG;
@@ -76,6 +78,7 @@ public class TestNGListenerTest {
     InOrder orderedExecution = inOrder(jacoco);
     orderedExecution.verify(jacoco).onTestStart(testName);
     orderedExecution.verify(jacoco).onTestFinish(testName);
+    orderedExecution.verify(jacoco).onTestRunFinish();
   }
 
   @Test
@@ -85,6 +88,7 @@ public class TestNGListenerTest {
     InOrder orderedExecution = inOrder(jacoco);
     orderedExecution.verify(jacoco).onTestStart(testName);
     orderedExecution.verify(jacoco).onTestFinish(testName);
+    orderedExecution.verify(jacoco).onTestRunFinish();
   }
 
   @Test
@@ -94,6 +98,7 @@ public class TestNGListenerTest {
     InOrder orderedExecution = inOrder(jacoco);
     orderedExecution.verify(jacoco).onTestStart(testName);
     orderedExecution.verify(jacoco).onTestFinish(testName);
+    orderedExecution.verify(jacoco).onTestRunFinish();
   }
 
   private void execute(Class cls) {
@@ -117,6 +122,12 @@ public class TestNGListenerTest {
     verify(jacoco).onTestFinish("class method");
   }
 
+  @Test
+  public void testRunFinished() {
+    listener.testRunFinished(new Result());
+    verify(jacoco).onTestRunFinish();
+  }
+
   // TestNG
 
   @Test
@@ -149,6 +160,12 @@ public class TestNGListenerTest {
     verify(jacoco).onTestFinish("class method");
   }
 
+  @Test
+  public void onFinish() {
+    listener.onFinish(mock(ITestContext.class));
+    verify(jacoco).onTestRunFinish();
+  }
+
   private ITestResult mockTestResult() {
     ITestResult testResult = mock(ITestResult.class);
     ITestClass testClass = mock(ITestClass.class);
@@ -63,7 +63,8 @@ public class Bridges {
         resourceIndex,
         squid,
         noSonarFilter,
-        profile);
+        profile,
+        settings);
     saveProject(resourceIndex, bridges);
     savePackages(resourceIndex, bridges);
     saveFiles(resourceIndex, bridges);
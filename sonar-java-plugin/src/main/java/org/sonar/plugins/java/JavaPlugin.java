@@ -27,6 +27,7 @@ import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.java.JavaClasspath;
 import org.sonar.java.SonarComponents;
+import org.sonar.plugins.java.bridges.DesignBridge;
 import org.sonar.plugins.jacoco.JaCoCoExtensions;
 import org.sonar.plugins.surefire.SurefireExtensions;
 
@@ -39,6 +40,14 @@ public class JavaPlugin extends SonarPlugin {
 
   public static final String SQUID_ANALYSE_ACCESSORS_PROPERTY = "sonar.squid.analyse.property.accessors";
   public static final boolean SQUID_ANALYSE_ACCESSORS_DEFAULT_VALUE = true;
+  public static final String ANALYSIS_THREADS_PROPERTY = "sonar.java.analysis.threads";
+  public static final int ANALYSIS_THREADS_DEFAULT_VALUE = 1;
+  public static final String ANALYSIS_CACHE_PROPERTY = "sonar.java.analysis.cache";
+  public static final boolean ANALYSIS_CACHE_DEFAULT_VALUE = false;
+  public static final String ANALYSIS_STREAMING_PROPERTY = "sonar.java.analysis.streaming";
+  public static final boolean ANALYSIS_STREAMING_DEFAULT_VALUE = false;
+  public static final String BYTECODE_INDEX_PROPERTY = "sonar.java.analysis.bytecodeIndex";
+  public static final boolean BYTECODE_INDEX_DEFAULT_VALUE = false;
 
   @Override
   public List getExtensions() {
@@ -77,6 +86,65 @@ public class JavaPlugin extends SonarPlugin {
             .type(PropertyType.BOOLEAN)
             .hidden()
             .build(),
+        PropertyDefinition.builder(DesignBridge.DSM_SPARSE_PROPERTY)
+            .defaultValue(DesignBridge.DSM_SPARSE_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Sparse dependency matrix")
+            .description("Flag whether dependency matrices should be saved in a sparse format, which lists only non-empty cells with their column. " +
+                "Such matrices are much smaller on large projects, but can be displayed only by viewers supporting this format.")
+            .type(PropertyType.BOOLEAN)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(DesignBridge.DSM_MAX_DIMENSION_PROPERTY)
+            .defaultValue(DesignBridge.DSM_MAX_DIMENSION_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Maximum dependency matrix dimension")
+            .description("Dependency matrices with more packages or files than this number are not saved. Zero means no limit.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.ANALYSIS_THREADS_PROPERTY)
+            .defaultValue(JavaPlugin.ANALYSIS_THREADS_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Analysis threads")
+            .description("Number of threads used to parse source files and class files. Files are still analyzed by rules one after another.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.ANALYSIS_CACHE_PROPERTY)
+            .defaultValue(JavaPlugin.ANALYSIS_CACHE_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Analysis cache")
+            .description("Flag whether results of rules on source files which did not change since previous analysis should be reused. " +
+                "The cache is dropped when rules, their parameters or libraries change. " +
+                "Results of a file are not reused when one of the classes of the project, which were read during its analysis, changed.")
+            .type(PropertyType.BOOLEAN)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.ANALYSIS_STREAMING_PROPERTY)
+            .defaultValue(JavaPlugin.ANALYSIS_STREAMING_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Streaming analysis")
+            .description("Flag whether issues raised on a source file should be saved as soon as the file is analyzed, instead of at the end of the analysis, " +
+                "so that memory consumption does not grow with the number of issues of the project. Issues raised on bytecode are still saved at the end.")
+            .type(PropertyType.BOOLEAN)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.BYTECODE_INDEX_PROPERTY)
+            .defaultValue(JavaPlugin.BYTECODE_INDEX_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Bytecode index")
+            .description("Flag whether classes of libraries and JDK read by an analysis should be indexed in the working directory, " +
+                "so that next analyses do not read them again. Index of a library is dropped when its file changes.")
+            .type(PropertyType.BOOLEAN)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
 
         JavaRuleRepository.class,
         JavaSonarWayProfile.class,
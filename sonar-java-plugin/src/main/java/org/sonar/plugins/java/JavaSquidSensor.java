@@ -19,6 +19,9 @@
  */
 package org.sonar.plugins.java;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
@@ -30,6 +33,8 @@ import org.sonar.api.checks.NoSonarFilter;
 import org.sonar.api.config.Settings;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.InputFile;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.ActiveRuleParam;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.Project;
 import org.sonar.api.scan.filesystem.FileQuery;
@@ -42,12 +47,14 @@ import org.sonar.java.Measurer;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.api.JavaUtils;
 import org.sonar.java.checks.CheckList;
+import org.sonar.plugins.java.bridges.IssuesStreamer;
 import org.sonar.squidbridge.api.CodeVisitor;
 
 import java.io.File;
 import java.nio.charset.Charset;
-import java.util.Collection;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 @Phase(name = Phase.Name.PRE)
@@ -83,9 +90,13 @@ public class JavaSquidSensor implements Sensor {
 
   @Override
   public void analyse(Project project, SensorContext context) {
-    Collection<CodeVisitor> checks = annotationCheckFactory.getChecks();
+    List<CodeVisitor> visitors = Lists.newArrayList(annotationCheckFactory.getChecks());
+    if (settings.getBoolean(JavaPlugin.ANALYSIS_STREAMING_PROPERTY)) {
+      // must be the last visitor, so that it sees issues of all checks
+      visitors.add(new IssuesStreamer(context, project, annotationCheckFactory, noSonarFilter, profile));
+    }
     JavaConfiguration configuration = createConfiguration();
-    JavaSquid squid = new JavaSquid(configuration, sonarComponents, new Measurer(project, context, configuration.isAnalysePropertyAccessors()), checks.toArray(new CodeVisitor[checks.size()]));
+    JavaSquid squid = new JavaSquid(configuration, sonarComponents, new Measurer(project, context, configuration.isAnalysePropertyAccessors()), visitors.toArray(new CodeVisitor[visitors.size()]));
     squid.scan(getSourceFiles(project), getTestFiles(project), getBytecodeFiles());
 
     javaResourceLocator.setSquidIndex(squid.getIndex());
@@ -114,9 +125,72 @@ public class JavaSquidSensor implements Sensor {
     JavaConfiguration conf = new JavaConfiguration(charset);
     conf.setAnalyzePropertyAccessors(analyzePropertyAccessors);
     conf.setVerifyAssertions(false);
+    conf.setAnalysisThreads(settings.getInt(JavaPlugin.ANALYSIS_THREADS_PROPERTY));
+    if (settings.getBoolean(JavaPlugin.ANALYSIS_CACHE_PROPERTY)) {
+      conf.setAnalysisCache(new File(moduleFileSystem.workingDir(), "java-analysis-cache"), getAnalysisFingerprint(conf));
+    }
+    if (settings.getBoolean(JavaPlugin.BYTECODE_INDEX_PROPERTY)) {
+      conf.setBytecodeIndexDir(new File(moduleFileSystem.workingDir(), "java-bytecode-index"));
+    }
     return conf;
   }
 
+  /**
+   * Describes everything besides content of a file which has an influence on results of its analysis.
+   * Class files of the project are not part of it, because they are checked by {@link org.sonar.java.AnalysisCache} for each file separately.
+   */
+  private String getAnalysisFingerprint(JavaConfiguration conf) {
+    List<String> elements = Lists.newArrayList();
+    elements.add(JavaSquidSensor.class.getProtectionDomain().getCodeSource().getLocation().toString());
+    elements.add(conf.getCharset().name());
+    elements.add(Boolean.toString(conf.isAnalysePropertyAccessors()));
+    List<String> rules = Lists.newArrayList();
+    for (ActiveRule activeRule : profile.getActiveRules()) {
+      StringBuilder rule = new StringBuilder(activeRule.getRepositoryKey()).append(':').append(activeRule.getRuleKey());
+      for (ActiveRuleParam param : activeRule.getActiveRuleParams()) {
+        rule.append(';').append(param.getKey()).append('=').append(param.getValue());
+      }
+      rules.add(rule.toString());
+    }
+    Collections.sort(rules);
+    elements.addAll(rules);
+    for (File element : javaClasspath.getLibraries()) {
+      elements.add(fingerprint(element));
+    }
+    return Joiner.on('\n').join(elements);
+  }
+
+  /**
+   * Size and date of a directory of classes do not change when class files in it change,
+   * so that sizes and dates of all files under a directory are taken into account.
+   */
+  @VisibleForTesting
+  static String fingerprint(File classpathElement) {
+    StringBuilder result = new StringBuilder(classpathElement.getAbsolutePath());
+    if (!classpathElement.isDirectory()) {
+      return result.append(';').append(classpathElement.length()).append(';').append(classpathElement.lastModified()).toString();
+    }
+    int files = 0;
+    long hash = 0;
+    Deque<File> directories = new ArrayDeque<File>();
+    directories.push(classpathElement);
+    while (!directories.isEmpty()) {
+      File[] children = directories.pop().listFiles();
+      if (children != null) {
+        for (File child : children) {
+          if (child.isDirectory()) {
+            directories.push(child);
+          } else {
+            files++;
+            // Independent of order of listing
+            hash += (child.getPath().hashCode() * 31L + child.length()) * 31L + child.lastModified();
+          }
+        }
+      }
+    }
+    return result.append(';').append(files).append(';').append(hash).toString();
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName();
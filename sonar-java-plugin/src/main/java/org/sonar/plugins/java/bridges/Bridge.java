@@ -21,6 +21,7 @@ package org.sonar.plugins.java.bridges;
 
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.checks.CheckFactory;
+import org.sonar.api.config.Settings;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
@@ -39,6 +40,7 @@ public abstract class Bridge {
   SensorContext context;
   CheckFactory checkFactory;
   RulesProfile profile;
+  Settings settings;
 
   public boolean needsBytecode() {
     return false;
@@ -64,6 +66,10 @@ public abstract class Bridge {
     this.context = context;
   }
 
+  protected final void setSettings(Settings settings) {
+    this.settings = settings;
+  }
+
   public void onProject(SourceProject squidProject, Project sonarProject) {
 
   }
@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.checks.CheckFactory;
 import org.sonar.api.checks.NoSonarFilter;
+import org.sonar.api.config.Settings;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.java.JavaSquid;
 
@@ -46,7 +47,7 @@ public final class BridgeFactory {
   }
 
   public static List<Bridge> create(boolean bytecodeScanned, boolean skipPackageDesignAnalysis, SensorContext context, CheckFactory checkFactory,
-                                    ResourceIndex resourceIndex, JavaSquid squid, NoSonarFilter noSonarFilter, RulesProfile profile) {
+                                    ResourceIndex resourceIndex, JavaSquid squid, NoSonarFilter noSonarFilter, RulesProfile profile, Settings settings) {
     List<Bridge> result = new ArrayList<Bridge>();
     for (Bridge bridge : create(noSonarFilter, skipPackageDesignAnalysis)) {
       bridge.setCheckFactory(checkFactory);
@@ -55,6 +56,7 @@ public final class BridgeFactory {
         bridge.setSquid(squid);
         bridge.setResourceIndex(resourceIndex);
         bridge.setProfile(profile);
+        bridge.setSettings(settings);
         result.add(bridge);
       }
     }
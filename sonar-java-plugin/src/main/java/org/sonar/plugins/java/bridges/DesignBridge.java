@@ -33,6 +33,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.Violation;
+import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.graph.Cycle;
 import org.sonar.graph.Dsm;
@@ -48,13 +49,21 @@ import org.sonar.squidbridge.api.SourceCodeEdge;
 import org.sonar.squidbridge.api.SourcePackage;
 import org.sonar.squidbridge.api.SourceProject;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 public class DesignBridge extends Bridge {
 
+  public static final String DSM_SPARSE_PROPERTY = "sonar.java.design.sparseDsm";
+  public static final boolean DSM_SPARSE_DEFAULT_VALUE = false;
+  public static final String DSM_MAX_DIMENSION_PROPERTY = "sonar.java.design.maxDsmDimension";
+  public static final int DSM_MAX_DIMENSION_DEFAULT_VALUE = 0;
+
   private static final Logger LOG = LoggerFactory.getLogger(DesignBridge.class);
 
   /*
@@ -99,8 +108,10 @@ public class DesignBridge extends Bridge {
       savePositiveMeasure(sonarProject, CoreMetrics.PACKAGE_EDGES_WEIGHT, getEdgesWeight(squidPackages));
 
       String dsmJson = serializeDsm(squid, squidPackages, feedbackEdges);
-      Measure dsmMeasure = new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson).setPersistenceMode(PersistenceMode.DATABASE);
-      context.saveMeasure(sonarProject, dsmMeasure);
+      if (dsmJson != null) {
+        Measure dsmMeasure = new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson).setPersistenceMode(PersistenceMode.DATABASE);
+        context.saveMeasure(sonarProject, dsmMeasure);
+      }
 
       profiler.stop();
     }
@@ -132,7 +143,9 @@ public class DesignBridge extends Bridge {
       savePositiveMeasure(sonarPackage, CoreMetrics.FILE_EDGES_WEIGHT, getEdgesWeight(squidFiles));
 
       String dsmJson = serializeDsm(squid, squidFiles, feedbackEdges);
-      context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
+      if (dsmJson != null) {
+        context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
+      }
     }
   }
 
@@ -145,10 +158,36 @@ public class DesignBridge extends Bridge {
     return total;
   }
 
+  /**
+   * Returns null when DSM is larger than allowed, because building it takes memory quadratic in its dimension.
+   */
+  @CheckForNull
   private String serializeDsm(JavaSquid squid, Set<SourceCode> squidSources, Set<Edge> feedbackEdges) {
+    int maxDimension = getMaxDsmDimension();
+    if (maxDimension > 0 && squidSources.size() > maxDimension) {
+      LOG.info("Dependency matrix of {} elements is not saved, because it is larger than {} elements", squidSources.size(), maxDimension);
+      return null;
+    }
     Dsm<SourceCode> dsm = new Dsm<SourceCode>(squid, squidSources, feedbackEdges);
     DsmTopologicalSorter.sort(dsm);
-    return DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex);
+    StringWriter writer = new StringWriter();
+    try {
+      DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, isSparseDsm(), writer);
+    } catch (IOException e) {
+      throw new SonarException(e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Settings are set only by {@link BridgeFactory}, default values are used otherwise.
+   */
+  int getMaxDsmDimension() {
+    return settings == null ? DSM_MAX_DIMENSION_DEFAULT_VALUE : settings.getInt(DSM_MAX_DIMENSION_PROPERTY);
+  }
+
+  boolean isSparseDsm() {
+    return settings == null ? DSM_SPARSE_DEFAULT_VALUE : settings.getBoolean(DSM_SPARSE_PROPERTY);
   }
 
   /**
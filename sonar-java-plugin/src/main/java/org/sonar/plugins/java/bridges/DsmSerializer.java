@@ -19,78 +19,111 @@
  */
 package org.sonar.plugins.java.bridges;
 
+import com.google.common.base.Throwables;
 import org.sonar.api.resources.Resource;
 import org.sonar.graph.Dsm;
 import org.sonar.graph.DsmCell;
 import org.sonar.squidbridge.api.SourceCode;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Writes a DSM as JSON, one object per row.
+ * <p/>
+ * In dense format, each row lists all its cells, empty ones included, so that size of JSON is quadratic in dimension of DSM.
+ * In sparse format, each row lists only its non-empty cells, with their column in "x", so that size of JSON is linear in amount of dependencies.
+ */
 public final class DsmSerializer {
 
-  private Dsm dsm;
-  private StringBuilder json;
-  private DependencyIndex dependencyIndex;
-  private ResourceIndex resourceIndex;
+  private final Dsm dsm;
+  private final Writer writer;
+  private final boolean sparse;
+  private final DependencyIndex dependencyIndex;
+  private final ResourceIndex resourceIndex;
 
-  private DsmSerializer(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex) {
+  private DsmSerializer(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex, boolean sparse, Writer writer) {
     this.dsm = dsm;
-    this.json = new StringBuilder();
+    this.writer = writer;
+    this.sparse = sparse;
     this.dependencyIndex = dependencyIndex;
     this.resourceIndex = resourceIndex;
   }
 
-  private String serialize() {
-    json.append('[');
+  private void serialize() throws IOException {
+    writer.write('[');
     serializeRows();
-    json.append(']');
-    return json.toString();
+    writer.write(']');
   }
 
-  private void serializeRows() {
+  private void serializeRows() throws IOException {
     for (int y = 0; y < dsm.getDimension(); y++) {
       if (y > 0) {
-        json.append(',');
+        writer.write(',');
       }
       serializeRow(y);
     }
   }
 
-  private void serializeRow(int y) {
+  private void serializeRow(int y) throws IOException {
     SourceCode squidResource = (SourceCode) dsm.getVertex(y);
     Resource sonarResource = resourceIndex.get(squidResource);
 
-    json.append("{");
+    writer.write("{");
     if (sonarResource != null) {
-      json.append("\"i\":");
-      json.append(sonarResource.getId());
-      json.append(",\"n\":\"");
-      json.append(sonarResource.getName());
-      json.append("\",\"q\":\"");
-      json.append(sonarResource.getQualifier());
-      json.append("\",\"v\":[");
+      writer.write("\"i\":");
+      writer.write(String.valueOf(sonarResource.getId()));
+      writer.write(",\"n\":\"");
+      writer.write(sonarResource.getName());
+      writer.write("\",\"q\":\"");
+      writer.write(sonarResource.getQualifier());
+      writer.write("\",\"v\":[");
+      boolean first = true;
       for (int x = 0; x < dsm.getDimension(); x++) {
-        if (x > 0) {
-          json.append(',');
+        DsmCell cell = dsm.getCell(x, y);
+        boolean empty = cell.getEdge() == null || cell.getWeight() <= 0;
+        if (!sparse || !empty) {
+          if (!first) {
+            writer.write(',');
+          }
+          first = false;
+          serializeCell(x, cell, empty);
         }
-        serializeCell(y, x);
       }
-      json.append("]");
+      writer.write("]");
     }
-    json.append("}");
+    writer.write("}");
   }
 
-  private void serializeCell(int y, int x) {
-    DsmCell cell = dsm.getCell(x, y);
-    json.append('{');
-    if (cell.getEdge() != null && cell.getWeight() > 0) {
-      json.append("\"i\":");
-      json.append(dependencyIndex.get(cell.getEdge()).getId());
-      json.append(",\"w\":");
-      json.append(cell.getWeight());
+  private void serializeCell(int x, DsmCell cell, boolean empty) throws IOException {
+    writer.write('{');
+    if (sparse) {
+      writer.write("\"x\":");
+      writer.write(String.valueOf(x));
+      writer.write(',');
+    }
+    if (!empty) {
+      writer.write("\"i\":");
+      writer.write(String.valueOf(dependencyIndex.get(cell.getEdge()).getId()));
+      writer.write(",\"w\":");
+      writer.write(String.valueOf(cell.getWeight()));
     }
-    json.append('}');
+    writer.write('}');
   }
 
   public static String serialize(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex) {
-    return new DsmSerializer(dsm, dependencyIndex, resourceIndex).serialize();
+    StringWriter writer = new StringWriter();
+    try {
+      serialize(dsm, dependencyIndex, resourceIndex, false, writer);
+    } catch (IOException e) {
+      // Can not happen with StringWriter
+      throw Throwables.propagate(e);
+    }
+    return writer.toString();
+  }
+
+  public static void serialize(Dsm<SourceCode> dsm, DependencyIndex dependencyIndex, ResourceIndex resourceIndex, boolean sparse, Writer writer) throws IOException {
+    new DsmSerializer(dsm, dependencyIndex, resourceIndex, sparse, writer).serialize();
   }
 }
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.ImmutableList;
+import com.sonar.sslr.api.AstNode;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.checks.CheckFactory;
+import org.sonar.api.checks.NoSonarFilter;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.java.ast.visitors.JavaAstVisitor;
+import org.sonar.squidbridge.api.SourceFile;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Saves issues raised on a file as soon as the file is visited, instead of keeping them in memory until the end of analysis.
+ * This visitor must be the last one, so that it leaves file before others: issues raised by others when leaving file are saved when next file is visited.
+ * Issues raised later, for instance on bytecode, are saved by {@link ChecksBridge} at the end of analysis.
+ */
+public class IssuesStreamer extends JavaAstVisitor {
+
+  private final SensorContext context;
+  private final Project project;
+  private final List<Bridge> bridges;
+  private SourceFile analyzedFile;
+
+  public IssuesStreamer(SensorContext context, Project project, CheckFactory checkFactory, NoSonarFilter noSonarFilter, RulesProfile profile) {
+    this.context = context;
+    this.project = project;
+    // NoSonar lines must be known before issues are saved
+    this.bridges = ImmutableList.of(new NoSonarFilterLoader(noSonarFilter), new ChecksBridge());
+    for (Bridge bridge : bridges) {
+      bridge.setContext(context);
+      bridge.setCheckFactory(checkFactory);
+      bridge.setProfile(profile);
+    }
+  }
+
+  @Override
+  public void visitFile(@Nullable AstNode astNode) {
+    saveRemainingIssues();
+  }
+
+  @Override
+  public void leaveFile(@Nullable AstNode astNode) {
+    analyzedFile = peekSourceFile();
+    save(analyzedFile);
+  }
+
+  @Override
+  public void destroy() {
+    saveRemainingIssues();
+  }
+
+  private void saveRemainingIssues() {
+    if (analyzedFile != null && analyzedFile.hasCheckMessages()) {
+      save(analyzedFile);
+    }
+    analyzedFile = null;
+  }
+
+  private void save(SourceFile squidFile) {
+    Resource sonarFile = context.getResource(org.sonar.api.resources.File.fromIOFile(new File(squidFile.getName()), project));
+    if (sonarFile != null) {
+      for (Bridge bridge : bridges) {
+        bridge.onFile(squidFile, sonarFile);
+      }
+    }
+  }
+
+}
@@ -20,8 +20,11 @@
 package org.sonar.plugins.java;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.checks.NoSonarFilter;
 import org.sonar.api.config.Settings;
@@ -41,6 +44,9 @@ import static org.mockito.Mockito.when;
 
 public class JavaSquidSensorTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private final ModuleFileSystem moduleFileSystem = mock(ModuleFileSystem.class);
   private JavaSquidSensor sensor;
 
@@ -60,6 +66,32 @@ public class JavaSquidSensorTest {
     assertThat(sensor.shouldExecuteOnProject(project)).isTrue();
   }
 
+  @Test
+  public void fingerprint_of_directory_should_change_with_class_files_in_it() throws Exception {
+    File directory = temporaryFolder.newFolder("classes");
+    File classFile = new File(directory, "org/example/A.class");
+    Files.createParentDirs(classFile);
+    Files.write(new byte[] {1, 2}, classFile);
+    classFile.setLastModified(1000000000L);
+    long directoryLastModified = directory.lastModified();
+    String fingerprint = JavaSquidSensor.fingerprint(directory);
+    assertThat(JavaSquidSensor.fingerprint(directory)).isEqualTo(fingerprint);
+
+    Files.write(new byte[] {1, 3}, classFile);
+    classFile.setLastModified(2000000000L);
+    directory.setLastModified(directoryLastModified);
+    assertThat(JavaSquidSensor.fingerprint(directory)).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  public void fingerprint_of_file_should_change_with_its_size() throws Exception {
+    File jar = temporaryFolder.newFile("lib.jar");
+    String fingerprint = JavaSquidSensor.fingerprint(jar);
+    Files.write(new byte[] {1}, jar);
+    jar.setLastModified(1000000000L);
+    assertThat(JavaSquidSensor.fingerprint(jar)).isNotEqualTo(fingerprint);
+  }
+
   @Test
   public void test_toString() {
     assertThat(sensor.toString()).isEqualTo("JavaSquidSensor");
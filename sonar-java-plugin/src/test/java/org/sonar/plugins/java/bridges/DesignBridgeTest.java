@@ -20,6 +20,7 @@
 package org.sonar.plugins.java.bridges;
 
 import org.junit.Test;
+import org.sonar.api.config.Settings;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -32,5 +33,21 @@ public class DesignBridgeTest {
     assertThat(bridge.needsBytecode()).isTrue();
   }
 
+  @Test
+  public void dsm_settings_should_have_default_values_without_settings() {
+    assertThat(bridge.getMaxDsmDimension()).isEqualTo(DesignBridge.DSM_MAX_DIMENSION_DEFAULT_VALUE);
+    assertThat(bridge.isSparseDsm()).isEqualTo(DesignBridge.DSM_SPARSE_DEFAULT_VALUE);
+  }
+
+  @Test
+  public void dsm_settings_should_be_read_from_settings() {
+    Settings settings = new Settings();
+    settings.setProperty(DesignBridge.DSM_MAX_DIMENSION_PROPERTY, 100);
+    settings.setProperty(DesignBridge.DSM_SPARSE_PROPERTY, true);
+    bridge.setSettings(settings);
+    assertThat(bridge.getMaxDsmDimension()).isEqualTo(100);
+    assertThat(bridge.isSparseDsm()).isTrue();
+  }
+
 
 }
@@ -0,0 +1,96 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.Resource;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.Dsm;
+import org.sonar.graph.Edge;
+import org.sonar.squidbridge.api.SourceCode;
+import org.sonar.squidbridge.api.SourceCodeEdge;
+import org.sonar.squidbridge.api.SourceCodeEdgeUsage;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.api.SourcePackage;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+public class DsmSerializerTest {
+
+  private final DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+  private final DependencyIndex dependencyIndex = new DependencyIndex();
+  private final ResourceIndex resourceIndex = new ResourceIndex(false);
+  private Dsm<SourceCode> dsm;
+
+  @Before
+  public void setUp() {
+    SourcePackage a = addPackage("a", 1);
+    SourcePackage b = addPackage("b", 2);
+    SourcePackage c = addPackage("c", 3);
+    SourceCodeEdge edge = new SourceCodeEdge(a, c, SourceCodeEdgeUsage.USES);
+    edge.addRootEdge(new SourceCodeEdge(new SourceFile("a/A1.java"), new SourceFile("c/C.java"), SourceCodeEdgeUsage.USES));
+    edge.addRootEdge(new SourceCodeEdge(new SourceFile("a/A2.java"), new SourceFile("c/C.java"), SourceCodeEdgeUsage.USES));
+    graph.addEdge(edge);
+    Dependency dependency = new Dependency(resourceIndex.get(a), resourceIndex.get(c));
+    dependency.setId(10L);
+    dependencyIndex.put(edge, dependency);
+    dsm = new Dsm<SourceCode>(graph, ImmutableSet.<SourceCode>of(a, b, c), Collections.<Edge>emptySet());
+  }
+
+  private SourcePackage addPackage(String key, int id) {
+    SourcePackage squidPackage = new SourcePackage(key);
+    graph.addVertex(squidPackage);
+    Resource resource = spy(new Directory(key));
+    resource.setId(id);
+    doReturn(key).when(resource).getName();
+    resourceIndex.put(squidPackage, resource);
+    return squidPackage;
+  }
+
+  @Test
+  public void should_serialize_all_cells() {
+    assertThat(DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex)).isEqualTo("["
+      + "{\"i\":1,\"n\":\"a\",\"q\":\"DIR\",\"v\":[{},{},{}]},"
+      + "{\"i\":2,\"n\":\"b\",\"q\":\"DIR\",\"v\":[{},{},{}]},"
+      + "{\"i\":3,\"n\":\"c\",\"q\":\"DIR\",\"v\":[{\"i\":10,\"w\":2},{},{}]}"
+      + "]");
+  }
+
+  @Test
+  public void should_serialize_only_non_empty_cells() throws Exception {
+    StringWriter writer = new StringWriter();
+    DsmSerializer.serialize(dsm, dependencyIndex, resourceIndex, true, writer);
+    assertThat(writer.toString()).isEqualTo("["
+      + "{\"i\":1,\"n\":\"a\",\"q\":\"DIR\",\"v\":[]},"
+      + "{\"i\":2,\"n\":\"b\",\"q\":\"DIR\",\"v\":[]},"
+      + "{\"i\":3,\"n\":\"c\",\"q\":\"DIR\",\"v\":[{\"x\":0,\"i\":10,\"w\":2}]}"
+      + "]");
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.checks.CheckFactory;
+import org.sonar.api.checks.NoSonarFilter;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.Violation;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.JavaSquid;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.squidbridge.api.SourceCode;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.indexer.QueryByType;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IssuesStreamerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void issues_of_file_should_be_saved_before_next_file_is_analyzed() throws Exception {
+    File sourceDir = temp.newFolder();
+    Files.write("class A {}", new File(sourceDir, "A.java"), Charsets.UTF_8);
+    Files.write("class B {}", new File(sourceDir, "B.java"), Charsets.UTF_8);
+
+    Project project = mock(Project.class);
+    ProjectFileSystem projectFileSystem = mock(ProjectFileSystem.class);
+    when(projectFileSystem.getBasedir()).thenReturn(sourceDir);
+    when(project.getFileSystem()).thenReturn(projectFileSystem);
+    SensorContext context = mock(SensorContext.class);
+    when(context.getResource(any(Resource.class))).thenReturn(new JavaFile("A"));
+    RulesProfile profile = mock(RulesProfile.class);
+    ActiveRule activeRule = mock(ActiveRule.class);
+    when(activeRule.getRule()).thenReturn(org.sonar.api.rules.Rule.create("squid", "IssueOnEachFile"));
+    when(profile.getActiveRule("squid", "IssueOnEachFile")).thenReturn(activeRule);
+    NoSonarFilter noSonarFilter = mock(NoSonarFilter.class);
+    final AtomicInteger savedViolations = new AtomicInteger();
+    doAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) {
+        savedViolations.incrementAndGet();
+        return true;
+      }
+    }).when(context).saveViolation(any(Violation.class), anyBoolean());
+
+    IssueOnEachFile check = new IssueOnEachFile(savedViolations);
+    IssuesStreamer issuesStreamer = new IssuesStreamer(context, project, mock(CheckFactory.class), noSonarFilter, profile);
+    JavaSquid squid = new JavaSquid(new JavaConfiguration(Charsets.UTF_8), check, issuesStreamer);
+    squid.scanDirectories(Collections.singleton(sourceDir), Collections.<File>emptyList());
+
+    assertThat(check.savedViolationsOnVisit).containsExactly(0, 1);
+    assertThat(savedViolations.get()).isEqualTo(2);
+    verify(noSonarFilter, times(2)).addResource(any(Resource.class), anySetOf(Integer.class));
+    for (SourceCode sourceFile : squid.search(new QueryByType(SourceFile.class))) {
+      assertThat(sourceFile.hasCheckMessages()).isFalse();
+    }
+  }
+
+  private static class IssueOnEachFile extends SubscriptionVisitor {
+
+    private final AtomicInteger savedViolations;
+    private final List<Integer> savedViolationsOnVisit = Lists.newArrayList();
+
+    IssueOnEachFile(AtomicInteger savedViolations) {
+      this.savedViolations = savedViolations;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      savedViolationsOnVisit.add(savedViolations.get());
+      context.addIssueOnFile(RuleKey.of("squid", "IssueOnEachFile"), "message");
+    }
+  }
+
+}